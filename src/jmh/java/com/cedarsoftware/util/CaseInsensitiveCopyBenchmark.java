@@ -0,0 +1,74 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying a CaseInsensitiveMap / CaseInsensitiveSet (copy constructor, putAll() into an empty Map) - the "clone
+ * per request" pattern.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaseInsensitiveCopyBenchmark
+{
+    @Param({"100", "10000"})
+    public int size;
+
+    private CaseInsensitiveMap<String, Object> map;
+    private CaseInsensitiveSet<String> set;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        map = new CaseInsensitiveMap<>();
+        set = new CaseInsensitiveSet<>();
+        for (int i = 0; i < size; i++)
+        {
+            map.put("Header-Name-" + i, i);
+            set.add("Column_" + i);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> copyConstructor()
+    {
+        return new CaseInsensitiveMap<>(map);
+    }
+
+    @Benchmark
+    public Map<String, Object> putAll()
+    {
+        Map<String, Object> copy = new CaseInsensitiveMap<>();
+        copy.putAll(map);
+        return copy;
+    }
+
+    @Benchmark
+    public Set<String> copySet()
+    {
+        return new CaseInsensitiveSet<>(set);
+    }
+}
@@ -0,0 +1,202 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for CompactMap (and its Linked / case-insensitive variants) against CaseInsensitiveMap and the
+ * JDK HashMap / LinkedHashMap.  The sizes walk through each CompactMap storage tier: empty, single entry, the
+ * Object[] (2 thru compactSize()), and the Map returned from getNewMap() (size {@literal >} compactSize()), so that
+ * the cost of the Object[] to Map transition shows up release-over-release.<pre>
+ *
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="CompactMapBenchmark"
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="CompactMapBenchmark.get -p type=CompactCIHashMap,HashMap"
+ * </pre>
+ * Lookups are performed with different (but equal) String instances than those stored, so that no implementation
+ * benefits from an identity match.  Case-insensitive maps are probed with upper-cased keys.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompactMapBenchmark
+{
+    @Param({"CompactMap", "CompactMapHashIndexed", "CompactMapSorted", "CompactLinkedMap", "CompactCIHashMap", "CompactCILinkedMap", "ConcurrentCompactMap", "SynchronizedCompactMap", "CaseInsensitiveMap", "CaseInsensitiveMapOnCIHashMap", "CaseInsensitiveHashMap", "HashMap", "LinkedHashMap", "ConcurrentHashMap"})
+    public String type;
+
+    // 0, 1, Object[] tier (2..80), first size in Map tier (81), well into Map tier (160)
+    @Param({"0", "1", "2", "10", "40", "80", "81", "160"})
+    public int size;
+
+    private String[] keys;
+    private String[] probes;
+    private String[] misses;
+    private Map<String, Object> map;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        keys = keys(size, "key");
+        probes = new String[size];
+        misses = keys(Math.max(size, 1), "miss");
+        boolean ci = isCaseInsensitive(type);
+        for (int i = 0; i < size; i++)
+        {
+            String key = keys[i];
+            probes[i] = ci ? key.toUpperCase() : new String(key);
+        }
+        map = fill(newMap(type), keys);
+    }
+
+    @Benchmark
+    public void get(Blackhole bh)
+    {
+        final Map<String, Object> m = map;
+        for (String probe : probes)
+        {
+            bh.consume(m.get(probe));
+        }
+    }
+
+    @Benchmark
+    public void getMiss(Blackhole bh)
+    {
+        final Map<String, Object> m = map;
+        for (String miss : misses)
+        {
+            bh.consume(m.get(miss));
+        }
+    }
+
+    @Benchmark
+    public void containsKey(Blackhole bh)
+    {
+        final Map<String, Object> m = map;
+        for (String probe : probes)
+        {
+            bh.consume(m.containsKey(probe));
+        }
+    }
+
+    /**
+     * Builds a new Map of 'size' entries from empty - this crosses every tier transition up to 'size'.
+     */
+    @Benchmark
+    public Map<String, Object> put()
+    {
+        return fill(newMap(type), keys);
+    }
+
+    /**
+     * Builds a new Map of 'size' entries, then removes them all - crosses every tier transition in both directions.
+     */
+    @Benchmark
+    public Map<String, Object> putRemove()
+    {
+        Map<String, Object> m = fill(newMap(type), keys);
+        for (String probe : probes)
+        {
+            m.remove(probe);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh)
+    {
+        for (Map.Entry<String, Object> entry : map.entrySet())
+        {
+            bh.consume(entry.getKey());
+            bh.consume(entry.getValue());
+        }
+    }
+
+    static String[] keys(int count, String prefix)
+    {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++)
+        {
+            keys[i] = prefix + i;
+        }
+        return keys;
+    }
+
+    static Map<String, Object> fill(Map<String, Object> map, String[] keys)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            map.put(keys[i], i);
+        }
+        return map;
+    }
+
+    static boolean isCaseInsensitive(String type)
+    {
+        return type.startsWith("CompactCI") || type.startsWith("CaseInsensitive");
+    }
+
+    static Map<String, Object> newMap(String type)
+    {
+        switch (type)
+        {
+            case "CompactMap":
+                return new CompactMap<>();
+            case "CompactMapHashIndexed":
+                return new CompactMap<String, Object>()
+                {
+                    protected boolean isHashIndexed() { return true; }
+                };
+            case "CompactMapSorted":
+                return new CompactMap<String, Object>()
+                {
+                    protected boolean isSorted() { return true; }
+                };
+            case "CompactLinkedMap":
+                return new CompactLinkedMap<>();
+            case "CompactCIHashMap":
+                return new CompactCIHashMap<>();
+            case "CompactCILinkedMap":
+                return new CompactCILinkedMap<>();
+            case "ConcurrentCompactMap":
+                return new ConcurrentCompactMap<>();
+            case "SynchronizedCompactMap":
+                return Collections.synchronizedMap(new CompactMap<>());
+            case "CaseInsensitiveMap":
+                return new CaseInsensitiveMap<>();
+            case "CaseInsensitiveMapOnCIHashMap":
+                return new CaseInsensitiveMap<>(Collections.emptyMap(), new CaseInsensitiveHashMap<>());
+            case "CaseInsensitiveHashMap":
+                return new CaseInsensitiveHashMap<>();
+            case "HashMap":
+                return new HashMap<>();
+            case "LinkedHashMap":
+                return new LinkedHashMap<>();
+            case "ConcurrentHashMap":
+                return new ConcurrentHashMap<>();
+            default:
+                throw new IllegalArgumentException("Unknown Map type: " + type);
+        }
+    }
+}
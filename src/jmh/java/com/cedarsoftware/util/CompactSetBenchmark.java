@@ -0,0 +1,135 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for CompactSet (and its Linked / case-insensitive variants) against CaseInsensitiveSet and the
+ * JDK HashSet / LinkedHashSet, across the Object[] (1 thru compactSize()) and Set (size {@literal >} compactSize())
+ * storage tiers.<pre>
+ *
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="CompactSetBenchmark"
+ * </pre>
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompactSetBenchmark
+{
+    @Param({"CompactSet", "CompactSetSorted", "CompactLinkedSet", "CompactCIHashSet", "CompactCILinkedSet", "ConcurrentCompactSet", "CaseInsensitiveSet", "HashSet", "LinkedHashSet"})
+    public String type;
+
+    @Param({"0", "1", "2", "10", "40", "80", "81", "160"})
+    public int size;
+
+    private String[] items;
+    private String[] probes;
+    private Set<String> set;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        items = CompactMapBenchmark.keys(size, "item");
+        probes = new String[size];
+        boolean ci = CompactMapBenchmark.isCaseInsensitive(type);
+        for (int i = 0; i < size; i++)
+        {
+            probes[i] = ci ? items[i].toUpperCase() : new String(items[i]);
+        }
+        set = fill(newSet(type), items);
+    }
+
+    @Benchmark
+    public void contains(Blackhole bh)
+    {
+        final Set<String> s = set;
+        for (String probe : probes)
+        {
+            bh.consume(s.contains(probe));
+        }
+    }
+
+    @Benchmark
+    public Set<String> add()
+    {
+        return fill(newSet(type), items);
+    }
+
+    @Benchmark
+    public Set<String> addRemove()
+    {
+        Set<String> s = fill(newSet(type), items);
+        for (String probe : probes)
+        {
+            s.remove(probe);
+        }
+        return s;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh)
+    {
+        for (String item : set)
+        {
+            bh.consume(item);
+        }
+    }
+
+    static Set<String> fill(Set<String> set, String[] items)
+    {
+        Collections.addAll(set, items);
+        return set;
+    }
+
+    static Set<String> newSet(String type)
+    {
+        switch (type)
+        {
+            case "CompactSet":
+                return new CompactSet<>();
+            case "CompactSetSorted":
+                return new CompactSet<String>()
+                {
+                    protected boolean isSorted() { return true; }
+                };
+            case "CompactLinkedSet":
+                return new CompactLinkedSet<>();
+            case "CompactCIHashSet":
+                return new CompactCIHashSet<>();
+            case "CompactCILinkedSet":
+                return new CompactCILinkedSet<>();
+            case "ConcurrentCompactSet":
+                return new ConcurrentCompactSet<>();
+            case "CaseInsensitiveSet":
+                return new CaseInsensitiveSet<>();
+            case "HashSet":
+                return new HashSet<>();
+            case "LinkedHashSet":
+                return new LinkedHashSet<>();
+            default:
+                throw new IllegalArgumentException("Unknown Set type: " + type);
+        }
+    }
+}
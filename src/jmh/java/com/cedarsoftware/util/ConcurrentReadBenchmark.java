@@ -0,0 +1,71 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of get() on a single Map shared by 4 threads, comparing ConcurrentCompactMap's lock-free reads with
+ * a Collections.synchronizedMap() wrapped CompactMap and ConcurrentHashMap.<pre>
+ *
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="ConcurrentReadBenchmark"
+ * </pre>
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentReadBenchmark
+{
+    @Param({"ConcurrentCompactMap", "SynchronizedCompactMap", "ConcurrentHashMap"})
+    public String type;
+
+    @Param({"10", "40", "160"})
+    public int size;
+
+    private String[] probes;
+    private Map<String, Object> map;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        String[] keys = CompactMapBenchmark.keys(size, "key");
+        probes = new String[size];
+        for (int i = 0; i < size; i++)
+        {
+            probes[i] = new String(keys[i]);
+        }
+        map = CompactMapBenchmark.fill(CompactMapBenchmark.newMap(type), keys);
+    }
+
+    @Benchmark
+    public void get(Blackhole bh)
+    {
+        final Map<String, Object> m = map;
+        for (String probe : probes)
+        {
+            bh.consume(m.get(probe));
+        }
+    }
+}
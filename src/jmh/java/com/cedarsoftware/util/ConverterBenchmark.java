@@ -0,0 +1,152 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Converter.convert() against the Function returned from Converter.converterFor() for the same type pair, and
+ * Converter.convertAll() / toDoubleArray(), over a column of values (the ETL case).  registered() runs the
+ * converterFor() Function as a conversion registered with a Converter instance.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark
+{
+    @Param({"String-Long", "Integer-Long", "Double-BigDecimal", "Long-String", "String-long", "Decimal-long", "Decimal-Short", "String-double", "Date-String", "LocalDateTime-String", "ZonedDateTime-String"})
+    public String pair;
+
+    private Object[] values;
+    private Class<?> toType;
+    private Function<Object, Object> converter;
+    private Function<Object, Object> registered;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        values = new Object[64];
+        for (int i = 0; i < values.length; i++)
+        {
+            long n = i * 7919L - 100000;
+            switch (pair)
+            {
+                case "String-Long":
+                    values[i] = Long.toString(n);
+                    toType = Long.class;
+                    break;
+                case "Integer-Long":
+                    values[i] = (int) n;
+                    toType = Long.class;
+                    break;
+                case "String-long":
+                    values[i] = " " + n + " ";
+                    toType = long.class;
+                    break;
+                case "Decimal-long":
+                    values[i] = n / 100 + "." + Math.abs(n % 100);
+                    toType = long.class;
+                    break;
+                case "Decimal-Short":
+                    values[i] = n / 1000 + "." + Math.abs(n % 10);
+                    toType = Short.class;
+                    break;
+                case "String-double":
+                    values[i] = Double.toString(n / 64.0);
+                    toType = double.class;
+                    break;
+                case "Date-String":
+                    values[i] = new Date(n * 60000000L);
+                    toType = String.class;
+                    break;
+                case "LocalDateTime-String":
+                    values[i] = LocalDateTime.ofEpochSecond(n * 60000, 0, ZoneOffset.UTC);
+                    toType = String.class;
+                    break;
+                case "ZonedDateTime-String":
+                    values[i] = ZonedDateTime.ofInstant(Instant.ofEpochSecond(n * 60000), ZoneId.of("America/New_York"));
+                    toType = String.class;
+                    break;
+                case "Double-BigDecimal":
+                    values[i] = n / 8.0;
+                    toType = BigDecimal.class;
+                    break;
+                default:
+                    values[i] = n;
+                    toType = String.class;
+                    break;
+            }
+        }
+        converter = (Function<Object, Object>) Converter.converterFor((Class<Object>) values[0].getClass(), toType);
+        Converter instance = new Converter();
+        instance.addConversion(Object.class, (Class<Object>) toType, converter);
+        registered = (Function<Object, Object>) instance.getConversion((Class<Object>) values[0].getClass(), toType);
+    }
+
+    @Benchmark
+    public void convert(Blackhole bh)
+    {
+        for (Object value : values)
+        {
+            bh.consume(Converter.convert(value, toType));
+        }
+    }
+
+    @Benchmark
+    public Object[] convertAll()
+    {
+        return Converter.convertAll(values, toType);
+    }
+
+    @Benchmark
+    public double[] toDoubleArray()
+    {   // every column here holds numbers
+        return Converter.toDoubleArray(values);
+    }
+
+    @Benchmark
+    public void converterFor(Blackhole bh)
+    {
+        for (Object value : values)
+        {
+            bh.consume(converter.apply(value));
+        }
+    }
+
+    @Benchmark
+    public void registered(Blackhole bh)
+    {   // the same conversion, registered with a Converter instance
+        for (Object value : values)
+        {
+            bh.consume(registered.apply(value));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the field-by-field object graph engines (DeepEquals.deepEquals(), deepHashCode(), and
+ * Traverser) over a graph of plain objects (no equals() / hashCode() methods), so their time is spent reading
+ * fields.  The *Array benchmarks compare an array of 10 * size objects, sequentially and with PARALLEL_COMPARE.
+ * deepEqualsCollidingSet compares HashSets of size objects that all have the same deepHashCode().  The
+ * deepHashCodeShared* benchmarks hash a new array holding the graph, without and with IMMUTABLE_TYPES.<pre>
+ *
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="DeepEqualsBenchmark"
+ * </pre>
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeepEqualsBenchmark
+{
+    @Param({"1000"})
+    public int size;
+
+    private Node graph;
+    private Node copy;
+    private Node[] array;
+    private Node[] arrayCopy;
+    private Set<Node> colliding;
+    private Set<Node> collidingCopy;
+    private final Map<String, Object> parallel = new HashMap<>();
+    private final Map<String, Object> options = new HashMap<>();
+    private final Map<String, Object> immutable = new HashMap<>();
+
+    static class Node
+    {
+        private int id;
+        private long stamp;
+        private double weight;
+        private boolean flag;
+        private String name;
+        private Node next;
+        private Node[] children;
+    }
+
+    /**
+     * @return a chain of size Nodes, each also holding an array of 2 leaf Nodes.
+     */
+    static Node graph(int size)
+    {
+        Node head = null;
+        for (int i = size - 1; i >= 0; i--)
+        {
+            Node node = node(i);
+            node.next = head;
+            node.children = new Node[]{node(i * 2), node(i * 2 + 1)};
+            head = node;
+        }
+        return head;
+    }
+
+    /**
+     * @return array of size Nodes, each holding an array of 2 leaf Nodes.
+     */
+    static Node[] array(int size)
+    {
+        Node[] nodes = new Node[size];
+        for (int i = 0; i < size; i++)
+        {
+            nodes[i] = node(i);
+            nodes[i].children = new Node[]{node(i * 2), node(i * 2 + 1)};
+        }
+        return nodes;
+    }
+
+    /**
+     * @return Set of size Nodes that all have the same deepHashCode() (id + stamp is the same for each).
+     */
+    static Set<Node> colliding(int size)
+    {
+        Set<Node> nodes = new HashSet<>();
+        for (int i = 0; i < size; i++)
+        {
+            Node node = new Node();
+            node.id = i;
+            node.stamp = size - i;
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static Node node(int i)
+    {
+        Node node = new Node();
+        node.id = i;
+        node.stamp = i * 1000003L;
+        node.weight = i / 7.0;
+        node.flag = i % 2 == 0;
+        node.name = "node" + i;
+        return node;
+    }
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        graph = graph(size);
+        copy = graph(size);
+        array = array(size * 10);
+        arrayCopy = array(size * 10);
+        colliding = colliding(size);
+        collidingCopy = colliding(size);
+        parallel.put(DeepEquals.PARALLEL_COMPARE, true);
+        immutable.put(DeepEquals.IMMUTABLE_TYPES, new HashSet<>(Collections.singletonList(Node.class)));
+    }
+
+    @Benchmark
+    public boolean deepEquals()
+    {
+        return DeepEquals.deepEquals(graph, copy);
+    }
+
+    @Benchmark
+    public boolean deepEqualsWithDifferences()
+    {   // the same compare, keeping the path of each pair for reporting differences
+        return DeepEquals.deepEquals(graph, copy, options, difference -> false);
+    }
+
+    @Benchmark
+    public boolean deepEqualsArray()
+    {
+        return DeepEquals.deepEquals(array, arrayCopy);
+    }
+
+    @Benchmark
+    public boolean deepEqualsArrayParallel()
+    {
+        return DeepEquals.deepEquals(array, arrayCopy, parallel);
+    }
+
+    @Benchmark
+    public boolean deepEqualsCollidingSet()
+    {
+        return DeepEquals.deepEquals(colliding, collidingCopy);
+    }
+
+    @Benchmark
+    public int deepHashCode()
+    {
+        return DeepEquals.deepHashCode(graph);
+    }
+
+    @Benchmark
+    public int deepHashCodeShared()
+    {   // a new graph holding the (unchanged) graph, hashed in full each time
+        return DeepEquals.deepHashCode(new Object[]{graph, size});
+    }
+
+    @Benchmark
+    public int deepHashCodeSharedMemoized()
+    {   // the same, with the Nodes declared immutable: the graph's deep hashCode is looked up
+        return DeepEquals.deepHashCode(new Object[]{graph, size}, immutable);
+    }
+
+    @Benchmark
+    public int traverse()
+    {
+        final int[] count = new int[1];
+        Traverser.traverse(graph, o -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,104 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of lookups in the immutable Map returned from CompactMap.freeze() / copyOf() (minimal perfect hash)
+ * against the mutable CompactMap tiers and HashMap, plus the cost of freezing.<pre>
+ *
+ *     mvn -Pjmh test-compile exec:exec -Djmh.args="FrozenMapBenchmark"
+ * </pre>
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrozenMapBenchmark
+{
+    @Param({"FrozenCompactMap", "FrozenCompactCIHashMap", "CompactMap", "CompactMapHashIndexed", "CompactCIHashMap", "HashMap"})
+    public String type;
+
+    @Param({"2", "10", "40", "80"})
+    public int size;
+
+    private String[] probes;
+    private String[] misses;
+    private Map<String, Object> source;
+    private Map<String, Object> map;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        String[] keys = CompactMapBenchmark.keys(size, "key");
+        misses = CompactMapBenchmark.keys(size, "miss");
+        boolean ci = CompactMapBenchmark.isCaseInsensitive(type);
+        probes = new String[size];
+        for (int i = 0; i < size; i++)
+        {
+            probes[i] = ci ? keys[i].toUpperCase() : new String(keys[i]);
+        }
+        map = build(type, keys);
+        source = CompactMapBenchmark.fill(CompactMapBenchmark.newMap(type.replace("Frozen", "")), keys);
+    }
+
+    @Benchmark
+    public void get(Blackhole bh)
+    {
+        final Map<String, Object> m = map;
+        for (String probe : probes)
+        {
+            bh.consume(m.get(probe));
+        }
+    }
+
+    @Benchmark
+    public void getMiss(Blackhole bh)
+    {
+        final Map<String, Object> m = map;
+        for (String miss : misses)
+        {
+            bh.consume(m.get(miss));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> copyOf()
+    {
+        return CompactMap.copyOf(source);
+    }
+
+    /**
+     * @return Map of the passed in type holding the keys - types starting with "Frozen" are a CompactMap.copyOf()
+     * of the type that follows.
+     */
+    static Map<String, Object> build(String type, String[] keys)
+    {
+        if (type.startsWith("Frozen"))
+        {
+            return CompactMap.copyOf(CompactMapBenchmark.fill(CompactMapBenchmark.newMap(type.substring(6)), keys));
+        }
+        return CompactMapBenchmark.fill(CompactMapBenchmark.newMap(type), keys);
+    }
+}
@@ -0,0 +1,106 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StringUtilities.hashCodeIgnoreCase() and equalsIgnoreCase() against the char at a time Character.toLowerCase()
+ * loop they replaced and String.equalsIgnoreCase(), over typical HTTP header and column name keys.  The "unicode"
+ * keys contain non-ASCII chars (fallback path).
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IgnoreCaseBenchmark
+{
+    @Param({"headers", "columns", "unicode"})
+    public String keys;
+
+    private String[] strings;
+    private String[] otherCase;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        switch (keys)
+        {
+            case "headers":
+                strings = new String[]{"Content-Type", "Accept", "User-Agent", "Accept-Encoding", "X-Forwarded-For", "Host", "Cache-Control", "Authorization"};
+                break;
+            case "columns":
+                strings = new String[]{"CUSTOMER_ID", "ORDER_DATE", "SHIP_TO_ADDRESS_LINE_1", "TOTAL_AMOUNT", "ID", "CREATED_TIMESTAMP", "STATUS", "REGION_CODE"};
+                break;
+            default:
+                strings = new String[]{"Straße", "Größe", "Ñandú", "Überweisung", "Café", "Ärger", "Ωmega", "Zürich"};
+                break;
+        }
+        otherCase = new String[strings.length];
+        for (int i = 0; i < strings.length; i++)
+        {
+            otherCase[i] = strings[i].toLowerCase();
+        }
+    }
+
+    @Benchmark
+    public void hashCodeIgnoreCase(Blackhole bh)
+    {
+        for (String s : strings)
+        {
+            bh.consume(StringUtilities.hashCodeIgnoreCase(s));
+        }
+    }
+
+    @Benchmark
+    public void hashCodeIgnoreCaseCharAtATime(Blackhole bh)
+    {
+        for (String s : strings)
+        {
+            int hash = 0;
+            int len = s.length();
+            for (int i = 0; i < len; i++)
+            {
+                hash = 31 * hash + Character.toLowerCase(s.charAt(i));
+            }
+            bh.consume(hash);
+        }
+    }
+
+    @Benchmark
+    public void equalsIgnoreCase(Blackhole bh)
+    {
+        for (int i = 0; i < strings.length; i++)
+        {
+            bh.consume(StringUtilities.equalsIgnoreCase(strings[i], otherCase[i]));
+        }
+    }
+
+    @Benchmark
+    public void equalsIgnoreCaseJdk(Blackhole bh)
+    {
+        for (int i = 0; i < strings.length; i++)
+        {
+            bh.consume(strings[i].equalsIgnoreCase(otherCase[i]));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.cedarsoftware.util;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prints the retained heap (in bytes, the full reachable object graph excluding the keys and values themselves)
+ * of each Map and Set type used in CompactMapBenchmark / CompactSetBenchmark, at each of the benchmarked sizes.
+ * Retained heap is measured with JOL, so the numbers reflect the running JVM's object layout (compressed oops, etc.)<pre>
+ *
+ *     mvn -Pjmh test-compile exec:exec -Djmh.main=com.cedarsoftware.util.MapFootprint
+ * </pre>
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class MapFootprint
+{
+    private static final int[] SIZES = {0, 1, 2, 10, 40, 80, 81, 160};
+    private static final String[] MAP_TYPES = {"CompactMap", "CompactMapHashIndexed", "CompactMapSorted", "CompactLinkedMap", "CompactCIHashMap", "CompactCILinkedMap", "FrozenCompactMap", "ConcurrentCompactMap", "CaseInsensitiveMap", "CaseInsensitiveMapOnCIHashMap", "CaseInsensitiveHashMap", "HashMap", "LinkedHashMap", "ConcurrentHashMap"};
+    private static final String[] SET_TYPES = {"CompactSet", "CompactSetSorted", "CompactLinkedSet", "CompactCIHashSet", "CompactCILinkedSet", "ConcurrentCompactSet", "CaseInsensitiveSet", "HashSet", "LinkedHashSet"};
+
+    public static void main(String[] args)
+    {
+        printHeader("Map");
+        for (String type : MAP_TYPES)
+        {
+            StringBuilder row = new StringBuilder(String.format("%-30s", type));
+            for (int size : SIZES)
+            {
+                String[] keys = CompactMapBenchmark.keys(size, "key");
+                Map<String, Object> map = FrozenMapBenchmark.build(type, keys);
+                row.append(String.format("%9d", retained(map, keys, map.values().toArray())));
+            }
+            System.out.println(row);
+        }
+
+        System.out.println();
+        printHeader("Set");
+        for (String type : SET_TYPES)
+        {
+            StringBuilder row = new StringBuilder(String.format("%-30s", type));
+            for (int size : SIZES)
+            {
+                String[] items = CompactMapBenchmark.keys(size, "item");
+                Set<String> set = CompactSetBenchmark.fill(CompactSetBenchmark.newSet(type), items);
+                row.append(String.format("%9d", retained(set, items, new Object[0])));
+            }
+            System.out.println(row);
+        }
+
+        System.out.println();
+        printHeader("Primitive keys");
+        for (String type : new String[]{"CompactLongMap", "CompactMap<Long>", "HashMap<Long>", "CompactIntMap", "CompactMap<Int,Int>", "HashMap<Int,Int>", "CompactLongSet", "CompactSet<Long>", "HashSet<Long>"})
+        {
+            StringBuilder row = new StringBuilder(String.format("%-30s", type));
+            for (int size : SIZES)
+            {
+                row.append(String.format("%9d", retainedPrimitive(type, size)));
+            }
+            System.out.println(row);
+        }
+    }
+
+    /**
+     * @return bytes reachable from a container of size primitive keys (boxed where the container boxes them), minus
+     * the one shared value Object of the long-keyed Maps.
+     */
+    private static long retainedPrimitive(String type, int size)
+    {
+        Object value = new Object();
+        Map<Long, Object> longMap = null;
+        Map<Integer, Integer> intMap = null;
+        Set<Long> longSet = null;
+        switch (type)
+        {
+            case "CompactLongMap": longMap = new CompactLongMap<>(); break;
+            case "CompactMap<Long>": longMap = new CompactMap<>(); break;
+            case "HashMap<Long>": longMap = new HashMap<>(); break;
+            case "CompactIntMap": intMap = new CompactIntMap(); break;
+            case "CompactMap<Int,Int>": intMap = new CompactMap<>(); break;
+            case "HashMap<Int,Int>": intMap = new HashMap<>(); break;
+            case "CompactLongSet": longSet = new CompactLongSet(); break;
+            case "CompactSet<Long>": longSet = new CompactSet<>(); break;
+            default: longSet = new HashSet<>(); break;
+        }
+        for (int i = 0; i < size; i++)
+        {
+            long key = 1000L + i;    // outside the Long / Integer caches, as most real keys are
+            if (longMap != null)
+            {
+                longMap.put(key, value);
+            }
+            else if (intMap != null)
+            {
+                intMap.put((int) key, (int) key * 7);
+            }
+            else
+            {
+                longSet.add(key);
+            }
+        }
+        Object container = longMap != null ? longMap : intMap != null ? intMap : longSet;
+        return retained(container, new Object[0], size > 0 && longMap != null ? new Object[]{value} : new Object[0]);
+    }
+
+    private static void printHeader(String title)
+    {
+        StringBuilder header = new StringBuilder(String.format("%-30s", title + " (bytes)"));
+        for (int size : SIZES)
+        {
+            header.append(String.format("%9s", "n=" + size));
+        }
+        System.out.println(header);
+    }
+
+    /**
+     * @return bytes reachable from container, minus the bytes of the keys and values it holds.
+     */
+    private static long retained(Object container, Object[] keys, Object[] values)
+    {
+        Object[] payload = new Object[keys.length + values.length];
+        System.arraycopy(keys, 0, payload, 0, keys.length);
+        System.arraycopy(values, 0, payload, keys.length, values.length);
+        GraphLayout layout = GraphLayout.parseInstance(container);
+        if (payload.length > 0)
+        {
+            layout = layout.subtract(GraphLayout.parseInstance(payload));
+        }
+        return layout.totalSize();
+    }
+}
@@ -0,0 +1,428 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+
+import static com.cedarsoftware.util.StringUtilities.equalsIgnoreCase;
+import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
+
+/**
+ * Hash table whose String keys are case-insensitive, storing the original String keys directly (no wrapper object
+ * per key).  Non-String keys (including null) work as they would in a HashMap.  Entries iterate in insertion order,
+ * like a LinkedHashMap, at no extra cost per entry.<p></p>
+ *
+ * It can be used on its own, or as the Map backing a CaseInsensitiveMap, which then stores the Strings as they are
+ * instead of wrapping each in a CaseInsensitiveString:
+ * <pre>
+ *     Map&lt;String, Object&gt; map = new CaseInsensitiveMap&lt;&gt;(source, new CaseInsensitiveHashMap&lt;&gt;());
+ * </pre>
+ * Storage is a "compact" hash table: the entries live in insertion order in parallel arrays (key, value, and the
+ * key's cached hash code - hashCodeIgnoreCase() for Strings), and a separate int[] open addressing index (linear
+ * probing, load factor {@literal <}= 0.5) maps hash codes to entry positions.  That is one Object reference, one
+ * value reference, and one int per entry plus the index, instead of a HashMap.Node (or LinkedHashMap.Entry) plus a
+ * CaseInsensitiveString per entry.  remove() marks the entry's position as removed, and positions are compacted when
+ * the arrays grow.<p></p>
+ *
+ * Like HashMap, this class is not thread-safe, and its iterators are fail-fast.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CaseInsensitiveHashMap<K, V> extends AbstractMap<K, V>
+{
+    private static final Object REMOVED = new Object();
+    private static final Object[] EMPTY = new Object[0];
+    private static final int[] EMPTY_INTS = new int[0];
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int[] index;        // entry position + 1 for each slot, 0 = empty slot
+    private int count;          // entry positions in use, including removed ones
+    private int size;
+    private int modCount;
+
+    public CaseInsensitiveHashMap()
+    {   // Allocated on the first put()
+        keys = EMPTY;
+        values = EMPTY;
+        hashes = EMPTY_INTS;
+        index = EMPTY_INTS;
+    }
+
+    public CaseInsensitiveHashMap(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("Initial capacity must be >= 0, value: " + initialCapacity);
+        }
+        allocate(Math.max(initialCapacity, 4));
+    }
+
+    public CaseInsensitiveHashMap(Map<? extends K, ? extends V> m)
+    {
+        this(m.size());
+        putAll(m);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];    // power of 2 >= 2 * capacity
+    }
+
+    private static int hash(Object key)
+    {
+        if (key instanceof String)
+        {
+            return hashCodeIgnoreCase((String) key);
+        }
+        return key == null ? 0 : key.hashCode();
+    }
+
+    private int slot(int hash)
+    {
+        return (hash * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(index.length) + 1);
+    }
+
+    private static boolean matches(Object stored, Object key)
+    {
+        if (stored == key)
+        {
+            return true;
+        }
+        if (stored instanceof String)
+        {
+            return key instanceof String && equalsIgnoreCase((String) stored, (String) key);
+        }
+        return stored != null && stored != REMOVED && stored.equals(key);
+    }
+
+    /**
+     * @return position of the entry for the passed in key, or -1 if there is none.
+     */
+    private int find(Object key)
+    {
+        if (size == 0)
+        {
+            return -1;
+        }
+        final int h = hash(key);
+        final int[] index = this.index;
+        final int mask = index.length - 1;
+        for (int s = slot(h); index[s] != 0; s = (s + 1) & mask)
+        {
+            int e = index[s] - 1;
+            if (hashes[e] == h && matches(keys[e], key))
+            {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return find(key) >= 0;
+    }
+
+    public boolean containsValue(Object value)
+    {
+        for (int e = 0; e < count; e++)
+        {
+            if (keys[e] != REMOVED && Objects.equals(value, values[e]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public V get(Object key)
+    {
+        int e = find(key);
+        return e < 0 ? null : (V) values[e];
+    }
+
+    public V put(K key, V value)
+    {
+        if (keys.length == 0)
+        {
+            allocate(4);
+        }
+        final int h = hash(key);
+        int mask = index.length - 1;
+        int s = slot(h);
+        for (; index[s] != 0; s = (s + 1) & mask)
+        {
+            int e = index[s] - 1;
+            if (hashes[e] == h && matches(keys[e], key))
+            {   // Update (the original key is kept, as HashMap does)
+                V save = (V) values[e];
+                values[e] = value;
+                return save;
+            }
+        }
+
+        if (count == keys.length)
+        {   // Out of entry positions - grow (or just compact, when many are removed) and find the new free slot
+            resize(size >= keys.length / 2 ? keys.length * 2 : keys.length);
+            mask = index.length - 1;
+            s = slot(h);
+            while (index[s] != 0)
+            {
+                s = (s + 1) & mask;
+            }
+        }
+        keys[count] = key;
+        values[count] = value;
+        hashes[count] = h;
+        index[s] = ++count;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    public V remove(Object key)
+    {
+        int e = find(key);
+        return e < 0 ? null : removeAt(e);
+    }
+
+    private V removeAt(int e)
+    {
+        V save = (V) values[e];
+        keys[e] = REMOVED;      // The index keeps pointing here, so probe sequences stay intact
+        values[e] = null;
+        size--;
+        modCount++;
+        if (size == 0)
+        {   // Nothing left - reuse the positions from the start
+            clear();
+        }
+        return save;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        Arrays.fill(index, 0);
+        count = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Move the live entries (in order) into new arrays of the passed in capacity, dropping removed positions, and
+     * rebuild the index.
+     */
+    private void resize(int capacity)
+    {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        int oldCount = count;
+        allocate(capacity);
+        int mask = index.length - 1;
+        int j = 0;
+        for (int e = 0; e < oldCount; e++)
+        {
+            if (oldKeys[e] != REMOVED)
+            {
+                keys[j] = oldKeys[e];
+                values[j] = oldValues[e];
+                int h = hashes[j] = oldHashes[e];
+                int s = slot(h);
+                while (index[s] != 0)
+                {
+                    s = (s + 1) & mask;
+                }
+                index[s] = ++j;
+            }
+        }
+        count = j;
+    }
+
+    /**
+     * Same as CaseInsensitiveMap.hashCode(): String keys contribute hashCodeIgnoreCase(), so Maps that are equal
+     * ignoring the case of their String keys have the same hash code.
+     */
+    public int hashCode()
+    {
+        int h = 0;
+        for (int e = 0; e < count; e++)
+        {
+            if (keys[e] != REMOVED)
+            {
+                h += hashes[e] ^ Objects.hashCode(values[e]);
+            }
+        }
+        return h;
+    }
+
+    public Set<K> keySet()
+    {
+        return new AbstractSet<K>()
+        {
+            public Iterator<K> iterator()
+            {
+                final Iterator<Entry<K, V>> iter = new EntryIterator();
+                return new Iterator<K>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public K next() { return iter.next().getKey(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return size; }
+            public void clear() { CaseInsensitiveHashMap.this.clear(); }
+            public boolean contains(Object o) { return containsKey(o); }
+
+            public boolean remove(Object o)
+            {
+                int e = find(o);
+                if (e < 0)
+                {
+                    return false;
+                }
+                removeAt(e);
+                return true;
+            }
+        };
+    }
+
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Entry<K, V>>()
+        {
+            public Iterator<Entry<K, V>> iterator() { return new EntryIterator(); }
+            public int size() { return size; }
+            public void clear() { CaseInsensitiveHashMap.this.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                int e = find(entry.getKey());
+                return e >= 0 && Objects.equals(values[e], entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!contains(o))
+                {
+                    return false;
+                }
+                removeAt(find(((Entry<?, ?>) o).getKey()));
+                return true;
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>>
+    {
+        private int next = skipRemoved(0);
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        private int skipRemoved(int e)
+        {
+            while (e < count && keys[e] == REMOVED)
+            {
+                e++;
+            }
+            return e;
+        }
+
+        public boolean hasNext()
+        {
+            return next < count;
+        }
+
+        public Entry<K, V> next()
+        {
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= count)
+            {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = skipRemoved(next + 1);
+            return new IndexEntry(last);
+        }
+
+        public void remove()
+        {
+            if (last < 0)
+            {
+                throw new IllegalStateException("remove() called on an Iterator before calling next()");
+            }
+            if (modCount != expectedModCount)
+            {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Map.Entry handed out by the iterator.  setValue() writes through to the map.
+     */
+    private final class IndexEntry extends AbstractMap.SimpleEntry<K, V>
+    {
+        private final int position;
+
+        IndexEntry(int position)
+        {
+            super((K) keys[position], (V) values[position]);
+            this.position = position;
+        }
+
+        public V setValue(V value)
+        {
+            V save = super.setValue(value);
+            if (position < count && keys[position] == getKey())
+            {
+                values[position] = value;
+            }
+            else
+            {   // Entries moved (resize) since this Entry was handed out
+                put(getKey(), value);
+            }
+            return save;
+        }
+    }
+}
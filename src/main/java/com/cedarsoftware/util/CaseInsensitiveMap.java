@@ -1,10 +1,13 @@
 package com.cedarsoftware.util;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import static com.cedarsoftware.util.StringUtilities.equalsIgnoreCase;
 import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
 
 /**
@@ -26,6 +29,24 @@ import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
  * .getKey() on the entry is case insensitive when compared, but the
  * returned key is a String.
  *
+ * get(), containsKey(), and remove() with a String key do not allocate: the key is set into a reusable lookup key
+ * of the calling thread for the duration of the lookup.  The lookup key is never stored in the wrapped Map, and
+ * nothing is written to the CaseInsensitiveMap, so concurrent readers of one Map do not contend.  A thread's lookup
+ * key is weakly held: threads do not keep it (or this class) alive, and after a garbage collection it is recreated.
+ *
+ * When many CaseInsensitiveMaps share a small vocabulary of keys (HTTP header names, column names, ...), call
+ * CaseInsensitiveString.setInternPoolCapacity() so that they share one CaseInsensitiveString (and its hash) per key
+ * String instead of each holding their own.
+ *
+ * When the Map supplied to back the CaseInsensitiveMap is a CaseInsensitiveHashMap, which is case-insensitive itself,
+ * String keys are stored as they are, with no CaseInsensitiveString per key:
+ * new CaseInsensitiveMap&lt;&gt;(source, new CaseInsensitiveHashMap&lt;&gt;())
+ *
+ * When the Map backing the CaseInsensitiveMap is sorted (TreeMap, ConcurrentSkipListMap), String keys are ordered
+ * case-insensitively (String.compareToIgnoreCase()) and prefixMap(), subMap(), ceilingKey(), and floorKey() answer
+ * from that order in O(log n) plus the entries visited, instead of a scan of keySet():
+ * new CaseInsensitiveMap&lt;&gt;(source, new TreeMap&lt;&gt;()).prefixMap("content-")
+ *
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
  *         Copyright (c) Cedar Software LLC
@@ -45,10 +66,14 @@ import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
 public class CaseInsensitiveMap<K, V> implements Map<K, V>
 {
     private final Map<K, V> map;
+    private final boolean wrapKeys;     // false when map is case-insensitive itself (CaseInsensitiveHashMap)
+    // Per thread, weakly held so that neither idle threads nor this class's ClassLoader are pinned by it
+    private static final ThreadLocal<WeakReference<LookupKey>> lookupKeys = new ThreadLocal<>();
 
     public CaseInsensitiveMap()
     {
         map = new LinkedHashMap<>();
+        wrapKeys = true;
     }
 
     /**
@@ -59,6 +84,7 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
     public CaseInsensitiveMap(int initialCapacity)
     {
         map = new LinkedHashMap<>(initialCapacity);
+        wrapKeys = true;
     }
 
     /**
@@ -69,6 +95,7 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
     public CaseInsensitiveMap(int initialCapacity, float loadFactor)
     {
         map = new LinkedHashMap<>(initialCapacity, loadFactor);
+        wrapKeys = true;
     }
 
     /**
@@ -77,40 +104,48 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
      * the actual Map instance that will back the CaseInsensitiveMap.;
      * @param source existing Map to supply the entries.
      * @param mapInstance empty new Map to use.  This lets you decide what Map to use to back the CaseInsensitiveMap.
+     * A CaseInsensitiveHashMap holds the String keys as they are, without wrapping them.
      */
     public CaseInsensitiveMap(Map<K, V> source, Map<K, V> mapInstance)
     {
         map = copy(source, mapInstance);
+        wrapKeys = !(map instanceof CaseInsensitiveHashMap);
     }
 
     /**
      * Wrap the passed in Map with a CaseInsensitiveMap, allowing other Map types like
-     * TreeMap, ConcurrentHashMap, etc. to be case insensitive.
+     * TreeMap, ConcurrentHashMap, etc. to be case insensitive.  When m is itself a CaseInsensitiveMap, the
+     * new Map is backed by the same type of Map as m, and m's keys are copied as they are (see copy()).
      * @param m Map to wrap.
      */
     public CaseInsensitiveMap(Map<K, V> m)
     {
-        if (m instanceof TreeMap)
+        Map<K, V> like = m instanceof CaseInsensitiveMap ? ((CaseInsensitiveMap<K, V>) m).map : m;
+        if (like instanceof CaseInsensitiveHashMap)
+        {
+            map = copy(m, new CaseInsensitiveHashMap<K, V>(m.size()));
+        }
+        else if (like instanceof TreeMap)
         {
             map = copy(m, new TreeMap<K, V>());
         }
-        else if (m instanceof LinkedHashMap)
+        else if (like instanceof LinkedHashMap)
         {
             map = copy(m, new LinkedHashMap<K, V>(m.size()));
         }
-        else if (m instanceof ConcurrentSkipListMap)
+        else if (like instanceof ConcurrentSkipListMap)
         {
             map = copy(m, new ConcurrentSkipListMap<K, V>());
         }
-        else if (m instanceof ConcurrentMap)
+        else if (like instanceof ConcurrentMap)
         {
             map = copy(m, new ConcurrentHashMap<K, V>(m.size()));
         }
-        else if (m instanceof WeakHashMap)
+        else if (like instanceof WeakHashMap)
         {
             map = copy(m, new WeakHashMap<K, V>(m.size()));
         }
-        else if (m instanceof HashMap)
+        else if (like instanceof HashMap)
         {
             map = copy(m, new HashMap<K, V>(m.size()));
         }
@@ -118,10 +153,38 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         {
             map = copy(m, new LinkedHashMap<K, V>(m.size()));
         }
+        wrapKeys = !(map instanceof CaseInsensitiveHashMap);
     }
 
+    /**
+     * View over part of another CaseInsensitiveMap's wrapped (sorted) Map, see prefixMap() and subMap().
+     */
+    private CaseInsensitiveMap(NavigableMap<K, V> view, boolean wrapKeys)
+    {
+        map = view;
+        this.wrapKeys = wrapKeys;
+    }
+
+    /**
+     * Copy the entries of source into dest, wrapping String keys in CaseInsensitiveStrings (unless dest is a
+     * CaseInsensitiveHashMap).  When source is a CaseInsensitiveMap, its keys are already in the form dest needs
+     * (same wrapping), so its backing Map is handed to dest.putAll() as a whole: no unwrapping and re-wrapping,
+     * no re-hashing of the Strings, and the Map implementation can size itself (or, TreeMap to TreeMap, build
+     * itself) in one step.
+     */
     protected Map<K, V> copy(Map<K, V> source, Map<K, V> dest)
     {
+        if (source instanceof CaseInsensitiveMap)
+        {
+            CaseInsensitiveMap<K, V> ciSource = (CaseInsensitiveMap<K, V>) source;
+            if (ciSource.wrapKeys != (dest instanceof CaseInsensitiveHashMap))
+            {
+                dest.putAll(ciSource.map);
+                return dest;
+            }
+            source = ciSource.map;      // Convert keys below, without a CaseInsensitiveEntry per entry
+        }
+
         for (Entry<K, V> entry : source.entrySet())
         {
             // Get get from Entry, leaving it in it's original state (in case the key is a CaseInsensitiveString)
@@ -136,11 +199,15 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             }
 
             // Wrap any String keys with a CaseInsensitiveString.  Keys that were already CaseInsensitiveStrings will
-            // remain as such.
+            // remain as such.  A CaseInsensitiveHashMap holds the Strings themselves.
             K altKey;
-            if (key instanceof String)
+            if (dest instanceof CaseInsensitiveHashMap)
+            {
+                altKey = (K) (key instanceof CaseInsensitiveString ? key.toString() : key);
+            }
+            else if (key instanceof String)
             {
-                altKey = (K) new CaseInsensitiveString((String)key);
+                altKey = (K) CaseInsensitiveString.of((String)key);
             }
             else
             {
@@ -159,29 +226,43 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
 
     public V get(Object key)
     {
-        if (key instanceof String)
+        if (key instanceof String && wrapKeys)
         {
-            String keyString = (String) key;
-            return map.get(new CaseInsensitiveString(keyString));
+            Object lookupKey = lookupKey((String) key);
+            try
+            {
+                return map.get(lookupKey);
+            }
+            finally
+            {
+                release(lookupKey);
+            }
         }
         return map.get(key);
     }
 
     public boolean containsKey(Object key)
     {
-        if (key instanceof String)
+        if (key instanceof String && wrapKeys)
         {
-            String keyString = (String) key;
-            return map.containsKey(new CaseInsensitiveString(keyString));
+            Object lookupKey = lookupKey((String) key);
+            try
+            {
+                return map.containsKey(lookupKey);
+            }
+            finally
+            {
+                release(lookupKey);
+            }
         }
         return map.containsKey(key);
     }
 
     public V put(K key, V value)
     {
-        if (key instanceof String)
+        if (key instanceof String && wrapKeys)
         {
-            final CaseInsensitiveString newKey = new CaseInsensitiveString((String) key);
+            final CaseInsensitiveString newKey = CaseInsensitiveString.of((String) key);
             return map.put((K) newKey, value);
         }
         return map.put(key, value);
@@ -189,9 +270,9 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
 
     public Object putObject(Object key, Object value)
     {   // not calling put() to save a little speed.
-        if (key instanceof String)
+        if (key instanceof String && wrapKeys)
         {   
-            final CaseInsensitiveString newKey = new CaseInsensitiveString((String) key);
+            final CaseInsensitiveString newKey = CaseInsensitiveString.of((String) key);
             return map.put((K) newKey, (V)value);
         }
         return map.put((K)key, (V)value);
@@ -204,9 +285,15 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             return;
         }
 
+        if (m instanceof CaseInsensitiveMap && ((CaseInsensitiveMap<?, ?>) m).wrapKeys == wrapKeys)
+        {   // Keys are already in the form the wrapped Map holds - no unwrapping / re-wrapping (see copy())
+            map.putAll(((CaseInsensitiveMap<? extends K, ? extends V>) m).map);
+            return;
+        }
+
         for (Entry<? extends K, ? extends V> entry : m.entrySet())
         {
-            if (isCaseInsenstiveEntry(entry))
+            if (isCaseInsenstiveEntry(entry) && wrapKeys)
             {
                 CaseInsensitiveEntry ciEntry = (CaseInsensitiveEntry) entry;
                 put(ciEntry.getOriginalKey(), entry.getValue());
@@ -220,10 +307,17 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
 
     public V remove(Object key)
     {
-        if (key instanceof String)
+        if (key instanceof String && wrapKeys)
         {
-            String keyString = (String) key;
-            return map.remove(new CaseInsensitiveString(keyString));
+            Object lookupKey = lookupKey((String) key);
+            try
+            {
+                return map.remove(lookupKey);
+            }
+            finally
+            {
+                release(lookupKey);
+            }
         }
         return map.remove(key);
     }
@@ -274,7 +368,7 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         for (Entry<K, V> entry : map.entrySet())
         {
             Object key = entry.getKey();
-            int hKey = key == null ? 0 : key.hashCode();
+            int hKey = key instanceof String ? hashCodeIgnoreCase((String) key) : key == null ? 0 : key.hashCode();
             Object value = entry.getValue();
             int hValue = value == null ? 0 : value.hashCode();
             h += hKey ^ hValue;
@@ -317,6 +411,178 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
         return map;
     }
 
+    /**
+     * Returns a view of the entries whose String keys start with the passed in prefix, ignoring case.  The view is
+     * backed by this Map (changes write through both ways), and keys put into it must start with the prefix.
+     * Requires a sorted Map (TreeMap, ConcurrentSkipListMap) backing this CaseInsensitiveMap.
+     * @param prefix String the keys start with.  "" returns all String keys.
+     * @return CaseInsensitiveMap view of the matching entries, in case-insensitive key order.
+     * @throws UnsupportedOperationException if the wrapped Map is not a NavigableMap.
+     */
+    public CaseInsensitiveMap<K, V> prefixMap(String prefix)
+    {
+        NavigableMap<K, V> sorted = getNavigableMap("prefixMap");
+        K from = (K) new CaseInsensitiveString(prefix);
+        String end = prefixEnd(prefix);
+        NavigableMap<K, V> view = end == null ? sorted.tailMap(from, true) :
+                sorted.subMap(from, true, (K) new CaseInsensitiveString(end), false);
+        return new CaseInsensitiveMap<>(view, wrapKeys);
+    }
+
+    /**
+     * Returns a view of the entries whose keys are between fromKey and toKey, String keys compared ignoring case.
+     * The view is backed by this Map (changes write through both ways).  Requires a sorted Map (TreeMap,
+     * ConcurrentSkipListMap) backing this CaseInsensitiveMap.
+     * @throws UnsupportedOperationException if the wrapped Map is not a NavigableMap.
+     * @see NavigableMap#subMap(Object, boolean, Object, boolean)
+     */
+    public CaseInsensitiveMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive)
+    {
+        NavigableMap<K, V> view = getNavigableMap("subMap").subMap(wrapBound(fromKey), fromInclusive, wrapBound(toKey), toInclusive);
+        return new CaseInsensitiveMap<>(view, wrapKeys);
+    }
+
+    /**
+     * Same as subMap(fromKey, true, toKey, false).
+     */
+    public CaseInsensitiveMap<K, V> subMap(K fromKey, K toKey)
+    {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @return the least key greater than or equal to the passed in key (String keys compared ignoring case), as it
+     * was put into the Map, or null if there is no such key.  Requires a sorted Map backing this CaseInsensitiveMap.
+     * @throws UnsupportedOperationException if the wrapped Map is not a NavigableMap.
+     */
+    public K ceilingKey(K key)
+    {
+        NavigableMap<K, V> sorted = getNavigableMap("ceilingKey");
+        if (key instanceof String && wrapKeys)
+        {
+            Object lookupKey = lookupKey((String) key);
+            try
+            {
+                return unwrap(sorted.ceilingKey((K) lookupKey));
+            }
+            finally
+            {
+                release(lookupKey);
+            }
+        }
+        return unwrap(sorted.ceilingKey(key));
+    }
+
+    /**
+     * @return the greatest key less than or equal to the passed in key (String keys compared ignoring case), as it
+     * was put into the Map, or null if there is no such key.  Requires a sorted Map backing this CaseInsensitiveMap.
+     * @throws UnsupportedOperationException if the wrapped Map is not a NavigableMap.
+     */
+    public K floorKey(K key)
+    {
+        NavigableMap<K, V> sorted = getNavigableMap("floorKey");
+        if (key instanceof String && wrapKeys)
+        {
+            Object lookupKey = lookupKey((String) key);
+            try
+            {
+                return unwrap(sorted.floorKey((K) lookupKey));
+            }
+            finally
+            {
+                release(lookupKey);
+            }
+        }
+        return unwrap(sorted.floorKey(key));
+    }
+
+    private NavigableMap<K, V> getNavigableMap(String operation)
+    {
+        if (map instanceof NavigableMap)
+        {
+            return (NavigableMap<K, V>) map;
+        }
+        throw new UnsupportedOperationException("Unsupported operation [" + operation + "] on a CaseInsensitiveMap that is not backed by a sorted Map.  Use new CaseInsensitiveMap<>(source, new TreeMap<>()).");
+    }
+
+    /**
+     * @return the pooled CaseInsensitiveString for the passed in String if there is one (see
+     * CaseInsensitiveString.setInternPoolCapacity()), otherwise this thread's LookupKey (or a new one, when it is in
+     * use by a lookup further up the stack, or was garbage collected) set to the passed in String.  Call release()
+     * with it when the lookup is done.
+     */
+    private static Object lookupKey(String key)
+    {
+        CaseInsensitiveString pooled = CaseInsensitiveString.pooled(key);
+        if (pooled != null)
+        {
+            return pooled;
+        }
+        WeakReference<LookupKey> ref = lookupKeys.get();
+        LookupKey lookupKey = ref == null ? null : ref.get();
+        if (lookupKey == null)
+        {
+            lookupKey = new LookupKey();
+            lookupKeys.set(new WeakReference<>(lookupKey));
+        }
+        else if (lookupKey.original != null)
+        {   // Nested lookup (a key's equals() looking up a CaseInsensitiveMap)
+            lookupKey = new LookupKey();
+        }
+        lookupKey.set(key);
+        return lookupKey;
+    }
+
+    /**
+     * Drop the reference to the String set by lookupKey(), so the LookupKey does not hold onto it, and make it free
+     * for the next lookup on this thread.
+     */
+    private static void release(Object lookupKey)
+    {
+        if (lookupKey instanceof LookupKey)
+        {
+            ((LookupKey) lookupKey).set(null);
+        }
+    }
+
+    private K wrapBound(K key)
+    {   // Held by the view, so a CaseInsensitiveString rather than the (reusable) LookupKey
+        return key instanceof String && wrapKeys ? (K) new CaseInsensitiveString((String) key) : key;
+    }
+
+    private static <K> K unwrap(Object key)
+    {
+        return (K) (key instanceof CaseInsensitiveString ? key.toString() : key);
+    }
+
+    /**
+     * @return the shortest String that sorts (String.compareToIgnoreCase()) after every String starting with prefix
+     * (ignoring case), or null when nothing does.  Strings compare char by char on the folded value
+     * toLowerCase(toUpperCase(c)), so this is the prefix with its last char replaced by the next char up that is
+     * its own folded value (carrying to the char before when there is none).
+     */
+    static String prefixEnd(String prefix)
+    {
+        char[] chars = prefix.toCharArray();
+        for (int i = chars.length - 1; i >= 0; i--)
+        {
+            for (int c = fold(chars[i]) + 1; c <= Character.MAX_VALUE; c++)
+            {
+                if (fold((char) c) == c)
+                {
+                    chars[i] = (char) c;
+                    return new String(chars, 0, i + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static char fold(char c)
+    {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
     /**
      * Returns a Set view of the keys contained in this map.
      * The set is backed by the map, so changes to the map are
@@ -400,7 +666,11 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
                 // with map.keySet() will return the hashCode of .toLowerCase() of those strings).
                 for (Object key : map.keySet())
                 {
-                    if (key != null)
+                    if (key instanceof String)
+                    {   // Held as is by a CaseInsensitiveHashMap
+                        h += hashCodeIgnoreCase((String) key);
+                    }
+                    else if (key != null)
                     {
                         h += key.hashCode();
                     }
@@ -576,9 +846,17 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
      * Class used to wrap String keys.  This class ignores the
      * case of Strings when they are compared.  Based on known usage,
      * null checks, proper instance, etc. are dropped.
+     *
+     * An optional, bounded, concurrent intern pool (see setInternPoolCapacity()) lets Maps with the same keys share
+     * one instance per key String.  Beyond the memory saved, a key looked up (or put) with a pooled String finds the
+     * stored key by identity, skipping hashCodeIgnoreCase() and equalsIgnoreCase().
      */
     public static final class CaseInsensitiveString implements Comparable
     {
+        private static volatile ConcurrentHashMap<String, CaseInsensitiveString> internPool;
+        private static volatile int internPoolCapacity;
+        private static final LongAdder internPoolHits = new LongAdder();
+        private static final LongAdder internPoolMisses = new LongAdder();
         private final String original;
         private final int hash;
 
@@ -588,6 +866,104 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             hash = hashCodeIgnoreCase(string);  // no new String created unlike .toLowerCase()
         }
 
+        /**
+         * @return the pooled CaseInsensitiveString for the passed in String when the intern pool is enabled and
+         * holds (or has room for) it, otherwise a new CaseInsensitiveString.
+         */
+        public static CaseInsensitiveString of(String string)
+        {
+            ConcurrentHashMap<String, CaseInsensitiveString> pool = internPool;
+            if (pool == null)
+            {
+                return new CaseInsensitiveString(string);
+            }
+            CaseInsensitiveString ciString = pool.get(string);
+            if (ciString != null)
+            {
+                internPoolHits.increment();
+                return ciString;
+            }
+            internPoolMisses.increment();
+            ciString = new CaseInsensitiveString(string);
+            if (pool.size() < internPoolCapacity)
+            {   // Full pool admits no more (no eviction - it is meant for a small, repeating vocabulary)
+                CaseInsensitiveString existing = pool.putIfAbsent(string, ciString);
+                if (existing != null)
+                {
+                    return existing;
+                }
+            }
+            return ciString;
+        }
+
+        /**
+         * Enable the intern pool used by of() (and so by CaseInsensitiveMap's put() and copy()), holding at most
+         * capacity entries, or disable it with 0 (the default).  The pool is keyed by the exact String, so "Accept"
+         * and "ACCEPT" are pooled separately (each Map still returns its keys in their original case).  Calling this
+         * empties the pool and resets its statistics.
+         */
+        public static void setInternPoolCapacity(int capacity)
+        {
+            if (capacity < 0)
+            {
+                throw new IllegalArgumentException("Intern pool capacity must be >= 0, value: " + capacity);
+            }
+            internPoolCapacity = capacity;
+            internPool = capacity == 0 ? null : new ConcurrentHashMap<>(Math.min(capacity, 1024));
+            internPoolHits.reset();
+            internPoolMisses.reset();
+        }
+
+        public static int getInternPoolCapacity()
+        {
+            return internPoolCapacity;
+        }
+
+        /**
+         * @return number of CaseInsensitiveStrings currently in the intern pool.
+         */
+        public static int getInternPoolSize()
+        {
+            ConcurrentHashMap<String, CaseInsensitiveString> pool = internPool;
+            return pool == null ? 0 : pool.size();
+        }
+
+        /**
+         * @return number of of() calls answered from the intern pool.
+         */
+        public static long getInternPoolHits()
+        {
+            return internPoolHits.sum();
+        }
+
+        /**
+         * @return number of of() calls (with the pool enabled) that had to create a new CaseInsensitiveString.
+         */
+        public static long getInternPoolMisses()
+        {
+            return internPoolMisses.sum();
+        }
+
+        /**
+         * @return hits / (hits + misses) of the intern pool, or 0 when there have been no of() calls to it.
+         */
+        public static double getInternPoolHitRate()
+        {
+            long hits = internPoolHits.sum();
+            long total = hits + internPoolMisses.sum();
+            return total == 0 ? 0.0d : (double) hits / total;
+        }
+
+        /**
+         * @return the pooled CaseInsensitiveString for the passed in String, or null if the intern pool is disabled
+         * or does not hold it.
+         */
+        static CaseInsensitiveString pooled(String string)
+        {
+            ConcurrentHashMap<String, CaseInsensitiveString> pool = internPool;
+            return pool == null ? null : pool.get(string);
+        }
+
         public String toString()
         {
             return original;
@@ -607,22 +983,35 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             else if (other instanceof CaseInsensitiveString)
             {
                 return hash == ((CaseInsensitiveString)other).hash &&
-                        original.equalsIgnoreCase(((CaseInsensitiveString)other).original);
+                        equalsIgnoreCase(original, ((CaseInsensitiveString)other).original);
             }
             else if (other instanceof String)
             {
-                return original.equalsIgnoreCase((String)other);
+                return equalsIgnoreCase(original, (String)other);
+            }
+            else if (other instanceof LookupKey)
+            {
+                return hash == ((LookupKey)other).hash &&
+                        equalsIgnoreCase(original, ((LookupKey)other).original);
             }
             return false;
         }
 
         public int compareTo(Object o)
         {
-            if (o instanceof CaseInsensitiveString)
+            if (o == this)
+            {
+                return 0;
+            }
+            else if (o instanceof CaseInsensitiveString)
             {
                 CaseInsensitiveString other = (CaseInsensitiveString) o;
                 return original.compareToIgnoreCase(other.original);
             }
+            else if (o instanceof LookupKey)
+            {
+                return original.compareToIgnoreCase(((LookupKey) o).original);
+            }
             else if (o instanceof String)
             {
                 String other = (String)o;
@@ -634,4 +1023,63 @@ public class CaseInsensitiveMap<K, V> implements Map<K, V>
             }
         }
     }
+
+    /**
+     * Mutable key used only to look up String keys (see lookupKey()), equal to, and ordered with, the
+     * CaseInsensitiveStrings and Strings that match it ignoring case.  It is never stored in a Map.
+     */
+    private static final class LookupKey implements Comparable
+    {
+        private String original;
+        private int hash;
+
+        private void set(String string)
+        {
+            original = string;
+            hash = string == null ? 0 : hashCodeIgnoreCase(string);
+        }
+
+        public String toString()
+        {
+            return original;
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object other)
+        {
+            if (other == this)
+            {
+                return true;
+            }
+            else if (other instanceof CaseInsensitiveString)
+            {
+                return other.equals(this);
+            }
+            else if (other instanceof String)
+            {
+                return equalsIgnoreCase(original, (String)other);
+            }
+            return false;
+        }
+
+        public int compareTo(Object o)
+        {
+            if (o instanceof CaseInsensitiveString)
+            {
+                return -((CaseInsensitiveString) o).compareTo(this);
+            }
+            else if (o instanceof String)
+            {
+                return original.compareToIgnoreCase((String) o);
+            }
+            else
+            {   // Strings are less than non-Strings (come before)
+                return -1;
+            }
+        }
+    }
 }
@@ -12,6 +12,10 @@ import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
  * If the CaseInsensitiveSet is iterated, when Strings are encountered, the original
  * Strings are returned (retains case).
  *
+ * When the Set is backed by a sorted Map (for example, copied from a SortedSet, or
+ * new CaseInsensitiveSet&lt;&gt;(source, new CaseInsensitiveMap&lt;&gt;(Collections.emptyMap(), new TreeMap&lt;&gt;()))),
+ * prefixSet(), subSet(), ceiling(), and floor() answer from its case-insensitive order (see CaseInsensitiveMap).
+ *
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
  *         Copyright (c) Cedar Software LLC
@@ -36,6 +40,13 @@ public class CaseInsensitiveSet<E> implements Set<E>
 
     public CaseInsensitiveSet(Collection<? extends E> collection)
     {
+        if (isBackedByCaseInsensitiveMap(collection))
+        {   // Copy the other Set's CaseInsensitiveMap as a whole: its keys are reused as they are, and the
+            // new Set is backed by the same type of Map.
+            map = new CaseInsensitiveMap<>(((CaseInsensitiveSet<E>) collection).map);
+            return;
+        }
+
         if (collection instanceof ConcurrentSkipListSet)
         {
             map = new CaseInsensitiveMap<>(new ConcurrentSkipListMap());
@@ -155,13 +166,25 @@ public class CaseInsensitiveSet<E> implements Set<E>
     public boolean addAll(Collection<? extends E> c)
     {
         int size = map.size();
-        for (E elem : c)
+        if (map instanceof CaseInsensitiveMap && isBackedByCaseInsensitiveMap(c))
+        {   // Bulk copy, reusing the other Set's keys (see CaseInsensitiveMap.putAll())
+            map.putAll(((CaseInsensitiveSet<E>) c).map);
+        }
+        else
         {
-            map.put(elem, elem);
+            for (E elem : c)
+            {
+                map.put(elem, elem);
+            }
         }
         return map.size() != size;
     }
 
+    private static boolean isBackedByCaseInsensitiveMap(Collection<?> c)
+    {
+        return c instanceof CaseInsensitiveSet && ((CaseInsensitiveSet<?>) c).map instanceof CaseInsensitiveMap;
+    }
+
     public boolean retainAll(Collection<?> c)
     {
         Map other = new CaseInsensitiveMap();
@@ -228,6 +251,62 @@ public class CaseInsensitiveSet<E> implements Set<E>
         return this;
     }
 
+    /**
+     * @return a view (changes write through both ways) of the Strings in this Set starting with prefix, ignoring case.
+     * @throws UnsupportedOperationException if the Set is not backed by a sorted CaseInsensitiveMap.
+     * @see CaseInsensitiveMap#prefixMap(String)
+     */
+    public CaseInsensitiveSet<E> prefixSet(String prefix)
+    {
+        return new CaseInsensitiveSet<>(Collections.<E>emptySet(), getCaseInsensitiveMap("prefixSet").prefixMap(prefix));
+    }
+
+    /**
+     * @return a view (changes write through both ways) of the items between fromItem and toItem, Strings compared
+     * ignoring case.
+     * @throws UnsupportedOperationException if the Set is not backed by a sorted CaseInsensitiveMap.
+     * @see CaseInsensitiveMap#subMap(Object, boolean, Object, boolean)
+     */
+    public CaseInsensitiveSet<E> subSet(E fromItem, boolean fromInclusive, E toItem, boolean toInclusive)
+    {
+        return new CaseInsensitiveSet<>(Collections.<E>emptySet(), getCaseInsensitiveMap("subSet").subMap(fromItem, fromInclusive, toItem, toInclusive));
+    }
+
+    /**
+     * Same as subSet(fromItem, true, toItem, false).
+     */
+    public CaseInsensitiveSet<E> subSet(E fromItem, E toItem)
+    {
+        return subSet(fromItem, true, toItem, false);
+    }
+
+    /**
+     * @return the least item greater than or equal to the passed in item (Strings compared ignoring case), or null.
+     * @throws UnsupportedOperationException if the Set is not backed by a sorted CaseInsensitiveMap.
+     */
+    public E ceiling(E item)
+    {
+        return getCaseInsensitiveMap("ceiling").ceilingKey(item);
+    }
+
+    /**
+     * @return the greatest item less than or equal to the passed in item (Strings compared ignoring case), or null.
+     * @throws UnsupportedOperationException if the Set is not backed by a sorted CaseInsensitiveMap.
+     */
+    public E floor(E item)
+    {
+        return getCaseInsensitiveMap("floor").floorKey(item);
+    }
+
+    private CaseInsensitiveMap<E, Object> getCaseInsensitiveMap(String operation)
+    {
+        if (map instanceof CaseInsensitiveMap)
+        {
+            return (CaseInsensitiveMap<E, Object>) map;
+        }
+        throw new UnsupportedOperationException("Unsupported operation [" + operation + "] on a CaseInsensitiveSet that is not backed by a CaseInsensitiveMap.");
+    }
+
     public String toString()
     {
         return map.keySet().toString();
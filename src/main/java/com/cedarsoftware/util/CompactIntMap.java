@@ -0,0 +1,651 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+
+/**
+ * A Map of primitive int keys to primitive int values, following CompactMap's approach: a single member variable
+ * (of type Object) that changes as the Map grows, with the entries held in an int[] instead of as Integer instances.
+ * get(int), put(int, int), containsKey(int), and remove(int) never box, and each entry costs 8 bytes.<p></p>
+ *
+ * **Empty**
+ * The member variable points to a sentinel value.<p></p>
+ *
+ * **One thru compactSize() entries**
+ * The member variable points to an int[] holding the keys (even positions) and values (odd positions), in insertion
+ * order.  [0] = key, [1] = value, [2] = next key, [3] = next value, and so on.  Lookups are a linear scan of the keys.
+ * (A single entry is an int[2], which is already as small as a dedicated entry object would be.)<p></p>
+ *
+ * **size() greater than compactSize()**
+ * The entries are moved into an open addressing hash table (linear probing, load factor {@literal <}= 0.5) of
+ * interleaved key, value pairs plus a long[] bit set of occupied slots.  When remove() takes size() back down to
+ * compactSize(), the entries are moved back into the int[].<pre>
+ *
+ *     Methods you may want to override:
+ *
+ *     // When size() {@literal >} than this amount, the hash table is used to store the entries.
+ *     protected int compactSize() { return 80; }
+ *
+ *     // Value returned from get(int), put(int, int), and remove(int) when there is no entry for the key.
+ *     protected int getNoEntryValue() { return 0; }
+ * </pre>
+ * The Map{@literal <}Integer, Integer{@literal >} methods are supported (boxing), so it can be passed anywhere a Map
+ * is expected.  Through them, a missing key is reported as null as usual.  Null keys and null values are not
+ * supported.  Like CompactMap, iteration works on a copy of the entries, with Iterator.remove() and
+ * Map.Entry.setValue() writing through to this Map.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CompactIntMap implements Map<Integer, Integer>
+{
+    private static final String EMPTY_MAP = "_︿_ψ_☼";
+    private Object val = EMPTY_MAP;
+
+    public CompactIntMap()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public CompactIntMap(Map<Integer, Integer> other)
+    {
+        this();
+        putAll(other);
+    }
+
+    public int size()
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            return ((int[]) val).length / 2;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).size;
+        }
+        // empty
+        return 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return val == EMPTY_MAP;
+    }
+
+    public boolean containsKey(int key)
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            return indexOf((int[]) val, key) >= 0;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).indexOf(key) >= 0;
+        }
+        // empty
+        return false;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return key instanceof Integer && containsKey(((Integer) key).intValue());
+    }
+
+    public boolean containsValue(int value)
+    {
+        int[] entries = getCopy();
+        for (int i = 1; i < entries.length; i += 2)
+        {
+            if (entries[i] == value)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean containsValue(Object value)
+    {
+        return value instanceof Integer && containsValue(((Integer) value).intValue());
+    }
+
+    /**
+     * @return the value for the passed in key, or getNoEntryValue() if there is no entry for it.
+     */
+    public int get(int key)
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            int[] entries = (int[]) val;
+            int i = indexOf(entries, key);
+            return i < 0 ? getNoEntryValue() : entries[i + 1];
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            int i = table.indexOf(key);
+            return i < 0 ? getNoEntryValue() : table.entries[i + 1];
+        }
+        // empty
+        return getNoEntryValue();
+    }
+
+    public Integer get(Object key)
+    {
+        if (!containsKey(key))
+        {
+            return null;
+        }
+        return get(((Integer) key).intValue());
+    }
+
+    /**
+     * @return the previous value for the passed in key, or getNoEntryValue() if there was no entry for it.
+     */
+    public int put(int key, int value)
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            int[] entries = (int[]) val;
+            int i = indexOf(entries, key);
+            if (i >= 0)
+            {   // Update
+                int save = entries[i + 1];
+                entries[i + 1] = value;
+                return save;
+            }
+
+            int len = entries.length;
+            if (len / 2 < compactSize())
+            {   // Grow array
+                int[] expand = Arrays.copyOf(entries, len + 2);
+                expand[len] = key;
+                expand[len + 1] = value;
+                val = expand;
+            }
+            else
+            {   // Switch to hash table
+                Table table = new Table(tableCapacity(len / 2 + 1));
+                for (i = 0; i < len; i += 2)
+                {
+                    table.put(entries[i], entries[i + 1]);
+                }
+                table.put(key, value);
+                val = table;
+            }
+            return getNoEntryValue();
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            int i = table.indexOf(key);
+            if (i >= 0)
+            {   // Update
+                int save = table.entries[i + 1];
+                table.entries[i + 1] = value;
+                return save;
+            }
+            table.put(key, value);
+            return getNoEntryValue();
+        }
+
+        // empty
+        val = new int[]{key, value};
+        return getNoEntryValue();
+    }
+
+    public Integer put(Integer key, Integer value)
+    {
+        Integer save = get(key);
+        put(key.intValue(), value.intValue());
+        return save;
+    }
+
+    /**
+     * @return the removed value for the passed in key, or getNoEntryValue() if there was no entry for it.
+     */
+    public int remove(int key)
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            int[] entries = (int[]) val;
+            int i = indexOf(entries, key);
+            if (i < 0)
+            {
+                return getNoEntryValue();
+            }
+            int save = entries[i + 1];
+            if (entries.length == 2)
+            {   // Down to 0 entries
+                val = EMPTY_MAP;
+            }
+            else
+            {   // Shrink array
+                int[] shrink = new int[entries.length - 2];
+                System.arraycopy(entries, 0, shrink, 0, i);
+                System.arraycopy(entries, i + 2, shrink, i, shrink.length - i);
+                val = shrink;
+            }
+            return save;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            int i = table.indexOf(key);
+            if (i < 0)
+            {
+                return getNoEntryValue();
+            }
+            int save = table.entries[i + 1];
+            table.removeAt(i);
+            if (table.size <= compactSize())
+            {   // Down to compactSize, need to switch to int[]
+                val = table.toArray();
+            }
+            return save;
+        }
+        // empty
+        return getNoEntryValue();
+    }
+
+    public Integer remove(Object key)
+    {
+        if (!containsKey(key))
+        {
+            return null;
+        }
+        return remove(((Integer) key).intValue());
+    }
+
+    public void putAll(Map<? extends Integer, ? extends Integer> m)
+    {
+        for (Entry<? extends Integer, ? extends Integer> entry : m.entrySet())
+        {
+            put(entry.getKey().intValue(), entry.getValue().intValue());
+        }
+    }
+
+    public void clear()
+    {
+        val = EMPTY_MAP;
+    }
+
+    /**
+     * @return the keys of this Map as a new int[] (iteration order), without boxing.
+     */
+    public int[] keys()
+    {
+        int[] entries = getCopy();
+        int[] keys = new int[entries.length / 2];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = entries[i * 2];
+        }
+        return keys;
+    }
+
+    public int hashCode()
+    {
+        int[] entries = getCopy();
+        int h = 0;
+        for (int i = 0; i < entries.length; i += 2)
+        {
+            h += entries[i] ^ entries[i + 1];    // Integer.hashCode(key) ^ Integer.hashCode(value)
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof Map))
+        {
+            return false;
+        }
+        Map<?, ?> other = (Map<?, ?>) obj;
+        if (size() != other.size())
+        {
+            return false;
+        }
+        int[] entries = getCopy();
+        for (int i = 0; i < entries.length; i += 2)
+        {
+            Object value = other.get(entries[i]);
+            if (!(value instanceof Integer) || (Integer) value != entries[i + 1])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString()
+    {
+        int[] entries = getCopy();
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (int i = 0; i < entries.length; i += 2)
+        {
+            if (i > 0)
+            {
+                sb.append(',').append(' ');
+            }
+            sb.append(entries[i]).append('=').append(entries[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+    public Set<Integer> keySet()
+    {
+        return new AbstractSet<Integer>()
+        {
+            public Iterator<Integer> iterator()
+            {
+                final Iterator<Entry<Integer, Integer>> iter = entrySet().iterator();
+                return new Iterator<Integer>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public Integer next() { return iter.next().getKey(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return CompactIntMap.this.size(); }
+            public void clear() { CompactIntMap.this.clear(); }
+            public boolean contains(Object o) { return containsKey(o); }
+            public boolean remove(Object o) { return CompactIntMap.this.remove(o) != null; }
+        };
+    }
+
+    public Collection<Integer> values()
+    {
+        return new AbstractCollection<Integer>()
+        {
+            public Iterator<Integer> iterator()
+            {
+                final Iterator<Entry<Integer, Integer>> iter = entrySet().iterator();
+                return new Iterator<Integer>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public Integer next() { return iter.next().getValue(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return CompactIntMap.this.size(); }
+            public void clear() { CompactIntMap.this.clear(); }
+            public boolean contains(Object o) { return containsValue(o); }
+        };
+    }
+
+    public Set<Entry<Integer, Integer>> entrySet()
+    {
+        return new AbstractSet<Entry<Integer, Integer>>()
+        {
+            public Iterator<Entry<Integer, Integer>> iterator()
+            {
+                final int[] entries = getCopy();
+                return new Iterator<Entry<Integer, Integer>>()
+                {
+                    int next = 0;
+                    boolean canRemove = false;
+
+                    public boolean hasNext() { return next < entries.length; }
+
+                    public Entry<Integer, Integer> next()
+                    {
+                        if (next >= entries.length)
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        canRemove = true;
+                        int i = next;
+                        next += 2;
+                        return new IntMapEntry(entries[i], entries[i + 1]);
+                    }
+
+                    public void remove()
+                    {
+                        if (!canRemove)
+                        {   // remove() called on iterator prematurely
+                            throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                        }
+                        CompactIntMap.this.remove(entries[next - 2]);
+                        canRemove = false;
+                    }
+                };
+            }
+
+            public int size() { return CompactIntMap.this.size(); }
+            public void clear() { CompactIntMap.this.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                Integer value = get(entry.getKey());
+                return value != null && value.equals(entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!contains(o))
+                {
+                    return false;
+                }
+                CompactIntMap.this.remove(((Entry<?, ?>) o).getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return copy of the entries as key, value pairs.
+     */
+    private int[] getCopy()
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            return ((int[]) val).clone();
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).toArray();
+        }
+        // empty
+        return new int[0];
+    }
+
+    private static int indexOf(int[] entries, int key)
+    {
+        for (int i = 0; i < entries.length; i += 2)
+        {
+            if (entries[i] == key)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return power of 2 table capacity keeping the load factor at or below 0.5 for the passed in size.
+     */
+    private static int tableCapacity(int size)
+    {
+        return Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+    }
+
+    protected CompactMap.LogicalValueType getLogicalValueType()
+    {
+        if (val instanceof int[])
+        {   // 1 to compactSize
+            return CompactMap.LogicalValueType.ARRAY;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return CompactMap.LogicalValueType.MAP;
+        }
+        // empty
+        return CompactMap.LogicalValueType.EMPTY;
+    }
+
+    /**
+     * Open addressing (linear probing) hash table used when size() {@literal >} compactSize().  Slot s holds its key
+     * at entries[2s] and value at entries[2s + 1], and is occupied when bit s of used[] is set.  Removal shifts the
+     * following entries of the probe run back, so no tombstones are needed.  Methods work with entries[] indexes
+     * (2 * slot).
+     */
+    private static final class Table
+    {
+        private int[] entries;
+        private long[] used;
+        private int size;
+
+        private Table(int capacity)
+        {
+            entries = new int[capacity * 2];
+            used = new long[(capacity + 63) >>> 6];
+        }
+
+        private boolean isUsed(int slot)
+        {
+            return (used[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private int slot(int key)
+        {
+            return (key * 0x9E3779B9) >>> (1 + Integer.numberOfLeadingZeros(entries.length / 2));
+        }
+
+        private int indexOf(int key)
+        {
+            int mask = entries.length / 2 - 1;
+            for (int s = slot(key); isUsed(s); s = (s + 1) & mask)
+            {
+                if (entries[s * 2] == key)
+                {
+                    return s * 2;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Add an entry for a key that is not in the table.
+         */
+        private void put(int key, int value)
+        {
+            int mask = entries.length / 2 - 1;
+            int s = slot(key);
+            while (isUsed(s))
+            {
+                s = (s + 1) & mask;
+            }
+            entries[s * 2] = key;
+            entries[s * 2 + 1] = value;
+            used[s >>> 6] |= 1L << s;
+            if (++size * 2 > entries.length / 2)
+            {
+                rehash(entries.length);
+            }
+        }
+
+        private void removeAt(int index)
+        {
+            int mask = entries.length / 2 - 1;
+            int hole = index / 2;
+            used[hole >>> 6] &= ~(1L << hole);
+            size--;
+            for (int s = (hole + 1) & mask; isUsed(s); s = (s + 1) & mask)
+            {
+                int ideal = slot(entries[s * 2]);
+                if (((s - ideal) & mask) >= ((s - hole) & mask))
+                {   // Entry at s may move back into the hole without moving in front of its ideal slot
+                    entries[hole * 2] = entries[s * 2];
+                    entries[hole * 2 + 1] = entries[s * 2 + 1];
+                    used[hole >>> 6] |= 1L << hole;
+                    used[s >>> 6] &= ~(1L << s);
+                    hole = s;
+                }
+            }
+        }
+
+        private void rehash(int capacity)
+        {
+            int[] pairs = toArray();
+            entries = new int[capacity * 2];
+            used = new long[(capacity + 63) >>> 6];
+            size = 0;
+            for (int i = 0; i < pairs.length; i += 2)
+            {
+                put(pairs[i], pairs[i + 1]);
+            }
+        }
+
+        /**
+         * @return the entries as a packed int[] of key, value pairs.
+         */
+        private int[] toArray()
+        {
+            int[] pairs = new int[size * 2];
+            int j = 0;
+            for (int s = 0; s < entries.length / 2; s++)
+            {
+                if (isUsed(s))
+                {
+                    pairs[j++] = entries[s * 2];
+                    pairs[j++] = entries[s * 2 + 1];
+                }
+            }
+            return pairs;
+        }
+    }
+
+    /**
+     * Map.Entry handed out by the iterators.  setValue() writes through to the outer CompactIntMap instance.
+     */
+    private class IntMapEntry extends AbstractMap.SimpleEntry<Integer, Integer>
+    {
+        IntMapEntry(int key, int value)
+        {
+            super(key, value);
+        }
+
+        public Integer setValue(Integer value)
+        {
+            Integer save = super.setValue(value);
+            put(getKey().intValue(), value.intValue());
+            return save;
+        }
+    }
+
+    protected int compactSize() { return 80; }
+
+    /**
+     * @return value returned from get(int), put(int, int), and remove(int) when there is no entry for the key.
+     * Defaults to 0.  Use containsKey(int) to tell a missing entry from one holding this value.
+     */
+    protected int getNoEntryValue() { return 0; }
+}
@@ -0,0 +1,741 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+
+/**
+ * A Map with primitive long keys, following CompactMap's approach: a single member variable (of type Object) that
+ * changes as the Map grows, but with the keys held in long[] instead of as Long instances.  This avoids boxing on
+ * get(long), put(long, V), containsKey(long), and remove(long), and stores each entry in 12 bytes (an 8 byte long
+ * plus a value reference) instead of a Long (16 bytes) plus two references.<p></p>
+ *
+ * **Empty**
+ * The member variable points to a sentinel value.<p></p>
+ *
+ * **One entry**
+ * The member variable points to a small internal object holding the long key and the value.<p></p>
+ *
+ * **Two thru compactSize() entries**
+ * The member variable points to an Object[] holding the values, in insertion order, followed by one extra element:
+ * a long[] of the keys, parallel to the values.  Lookups are a linear scan of the long[] (primitive compares, no
+ * equals() calls).<p></p>
+ *
+ * **size() greater than compactSize()**
+ * The entries are moved into an open addressing hash table of long[] keys and Object[] values (linear probing,
+ * load factor {@literal <}= 0.5), so lookups stay O(1) with no boxing.  When remove() takes size() back down to
+ * compactSize(), the entries are moved back into the Object[].<pre>
+ *
+ *     Methods you may want to override:
+ *
+ *     // When size() {@literal >} than this amount, the hash table is used to store the entries.
+ *     protected int compactSize() { return 80; }
+ * </pre>
+ * The Map{@literal <}Long, V{@literal >} methods are supported (boxing the keys), so it can be passed anywhere a Map is
+ * expected.  Null keys are not supported, null values are.  Like CompactMap, iteration works on a copy of the entries,
+ * with Iterator.remove() and Map.Entry.setValue() writing through to this Map.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CompactLongMap<V> implements Map<Long, V>
+{
+    private static final String EMPTY_MAP = "_︿_ψ_☼";
+    private static final Object NULL_VALUE = new Object();    // null values in the hash table (null = empty slot)
+    private Object val = EMPTY_MAP;
+
+    public CompactLongMap()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public CompactLongMap(Map<Long, ? extends V> other)
+    {
+        this();
+        putAll(other);
+    }
+
+    public int size()
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            return ((Object[]) val).length - 1;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).size;
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return 0;
+        }
+        // size == 1
+        return 1;
+    }
+
+    public boolean isEmpty()
+    {
+        return val == EMPTY_MAP;
+    }
+
+    public boolean containsKey(long key)
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) val;
+            return indexOf((long[]) entries[entries.length - 1], key) >= 0;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).indexOf(key) >= 0;
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return false;
+        }
+        // size == 1
+        return ((Single) val).key == key;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return key instanceof Long && containsKey(((Long) key).longValue());
+    }
+
+    public boolean containsValue(Object value)
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) val;
+            for (int i = 0; i < entries.length - 1; i++)
+            {
+                if (Objects.equals(value, entries[i]))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Object target = value == null ? NULL_VALUE : value;
+            for (Object aValue : ((Table) val).values)
+            {
+                if (aValue != null && aValue.equals(target))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return false;
+        }
+        // size == 1
+        return Objects.equals(value, ((Single) val).value);
+    }
+
+    public V get(long key)
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) val;
+            int i = indexOf((long[]) entries[entries.length - 1], key);
+            return i < 0 ? null : (V) entries[i];
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            int i = table.indexOf(key);
+            return i < 0 ? null : (V) unmask(table.values[i]);
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return null;
+        }
+        // size == 1
+        Single single = (Single) val;
+        return single.key == key ? (V) single.value : null;
+    }
+
+    public V get(Object key)
+    {
+        return key instanceof Long ? get(((Long) key).longValue()) : null;
+    }
+
+    public V put(long key, V value)
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) val;
+            int len = entries.length - 1;
+            long[] keys = (long[]) entries[len];
+            int i = indexOf(keys, key);
+            if (i >= 0)
+            {   // Update
+                V save = (V) entries[i];
+                entries[i] = value;
+                return save;
+            }
+
+            if (len < compactSize())
+            {   // Grow array
+                Object[] expand = new Object[len + 2];
+                System.arraycopy(entries, 0, expand, 0, len);
+                expand[len] = value;
+                keys = Arrays.copyOf(keys, len + 1);
+                keys[len] = key;
+                expand[len + 1] = keys;
+                val = expand;
+            }
+            else
+            {   // Switch to hash table
+                Table table = new Table(tableCapacity(len + 1));
+                for (i = 0; i < len; i++)
+                {
+                    table.put(keys[i], entries[i]);
+                }
+                table.put(key, value);
+                val = table;
+            }
+            return null;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return (V) ((Table) val).put(key, value);
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            val = new Single(key, value);
+            return null;
+        }
+
+        // size == 1
+        Single single = (Single) val;
+        if (single.key == key)
+        {   // Update
+            V save = (V) single.value;
+            single.value = value;
+            return save;
+        }
+        // Switch to Object[]
+        val = new Object[]{single.value, value, new long[]{single.key, key}};
+        return null;
+    }
+
+    public V put(Long key, V value)
+    {
+        return put(key.longValue(), value);
+    }
+
+    public V remove(long key)
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) val;
+            int len = entries.length - 1;
+            long[] keys = (long[]) entries[len];
+            int i = indexOf(keys, key);
+            if (i < 0)
+            {
+                return null;
+            }
+            V save = (V) entries[i];
+            if (len == 2)
+            {   // Down to 1 entry, switch to Single
+                int other = 1 - i;
+                val = new Single(keys[other], entries[other]);
+            }
+            else
+            {   // Shrink array
+                Object[] shrink = new Object[len];
+                System.arraycopy(entries, 0, shrink, 0, i);
+                System.arraycopy(entries, i + 1, shrink, i, len - i - 1);
+                long[] shrinkKeys = new long[len - 1];
+                System.arraycopy(keys, 0, shrinkKeys, 0, i);
+                System.arraycopy(keys, i + 1, shrinkKeys, i, len - i - 1);
+                shrink[len - 1] = shrinkKeys;
+                val = shrink;
+            }
+            return save;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            int i = table.indexOf(key);
+            if (i < 0)
+            {
+                return null;
+            }
+            V save = (V) unmask(table.values[i]);
+            table.removeAt(i);
+            if (table.size <= compactSize())
+            {   // Down to compactSize, need to switch to Object[]
+                int size = table.size;
+                Object[] entries = new Object[size + 1];
+                long[] keys = new long[size];
+                int j = 0;
+                for (i = 0; i < table.values.length; i++)
+                {
+                    if (table.values[i] != null)
+                    {
+                        keys[j] = table.keys[i];
+                        entries[j++] = unmask(table.values[i]);
+                    }
+                }
+                entries[size] = keys;
+                val = entries;
+            }
+            return save;
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return null;
+        }
+
+        // size == 1
+        Single single = (Single) val;
+        if (single.key == key)
+        {
+            val = EMPTY_MAP;
+            return (V) single.value;
+        }
+        return null;
+    }
+
+    public V remove(Object key)
+    {
+        return key instanceof Long ? remove(((Long) key).longValue()) : null;
+    }
+
+    public void putAll(Map<? extends Long, ? extends V> m)
+    {
+        for (Entry<? extends Long, ? extends V> entry : m.entrySet())
+        {
+            put(entry.getKey().longValue(), entry.getValue());
+        }
+    }
+
+    public void clear()
+    {
+        val = EMPTY_MAP;
+    }
+
+    /**
+     * @return the keys of this Map as a new long[] (iteration order), without boxing.
+     */
+    public long[] keys()
+    {
+        return (long[]) getCopy()[size()];
+    }
+
+    public int hashCode()
+    {
+        Object[] copy = getCopy();
+        long[] keys = (long[]) copy[copy.length - 1];
+        int h = 0;
+        for (int i = 0; i < keys.length; i++)
+        {
+            h += Long.hashCode(keys[i]) ^ Objects.hashCode(copy[i]);
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof Map))
+        {
+            return false;
+        }
+        Map<?, ?> other = (Map<?, ?>) obj;
+        if (size() != other.size())
+        {
+            return false;
+        }
+        Object[] copy = getCopy();
+        long[] keys = (long[]) copy[copy.length - 1];
+        for (int i = 0; i < keys.length; i++)
+        {
+            Long key = keys[i];
+            Object value = copy[i];
+            if (value == null)
+            {
+                if (other.get(key) != null || !other.containsKey(key))
+                {
+                    return false;
+                }
+            }
+            else if (!value.equals(other.get(key)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString()
+    {
+        Object[] copy = getCopy();
+        long[] keys = (long[]) copy[copy.length - 1];
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(',').append(' ');
+            }
+            sb.append(keys[i]).append('=');
+            sb.append(copy[i] == this ? "(this Map)" : copy[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+    public Set<Long> keySet()
+    {
+        return new AbstractSet<Long>()
+        {
+            public Iterator<Long> iterator()
+            {
+                final Iterator<Entry<Long, V>> iter = entrySet().iterator();
+                return new Iterator<Long>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public Long next() { return iter.next().getKey(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return CompactLongMap.this.size(); }
+            public void clear() { CompactLongMap.this.clear(); }
+            public boolean contains(Object o) { return containsKey(o); }
+
+            public boolean remove(Object o)
+            {
+                if (!containsKey(o))
+                {
+                    return false;
+                }
+                CompactLongMap.this.remove(o);
+                return true;
+            }
+        };
+    }
+
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            public Iterator<V> iterator()
+            {
+                final Iterator<Entry<Long, V>> iter = entrySet().iterator();
+                return new Iterator<V>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public V next() { return iter.next().getValue(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return CompactLongMap.this.size(); }
+            public void clear() { CompactLongMap.this.clear(); }
+            public boolean contains(Object o) { return containsValue(o); }
+        };
+    }
+
+    public Set<Entry<Long, V>> entrySet()
+    {
+        return new AbstractSet<Entry<Long, V>>()
+        {
+            public Iterator<Entry<Long, V>> iterator()
+            {
+                final Object[] copy = getCopy();
+                final long[] keys = (long[]) copy[copy.length - 1];
+                return new Iterator<Entry<Long, V>>()
+                {
+                    int next = 0;
+                    boolean canRemove = false;
+
+                    public boolean hasNext() { return next < keys.length; }
+
+                    public Entry<Long, V> next()
+                    {
+                        if (next >= keys.length)
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        canRemove = true;
+                        int i = next++;
+                        return new LongMapEntry(keys[i], (V) copy[i]);
+                    }
+
+                    public void remove()
+                    {
+                        if (!canRemove)
+                        {   // remove() called on iterator prematurely
+                            throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                        }
+                        CompactLongMap.this.remove(keys[next - 1]);
+                        canRemove = false;
+                    }
+                };
+            }
+
+            public int size() { return CompactLongMap.this.size(); }
+            public void clear() { CompactLongMap.this.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                return containsKey(entry.getKey()) && Objects.equals(get(entry.getKey()), entry.getValue());
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!contains(o))
+                {
+                    return false;
+                }
+                CompactLongMap.this.remove(((Entry<?, ?>) o).getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return copy of the entries in the Object[] tier layout: values followed by a long[] of the keys.
+     */
+    private Object[] getCopy()
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            Object[] copy = ((Object[]) val).clone();
+            copy[copy.length - 1] = ((long[]) copy[copy.length - 1]).clone();
+            return copy;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            Object[] copy = new Object[table.size + 1];
+            long[] keys = new long[table.size];
+            int j = 0;
+            for (int i = 0; i < table.values.length; i++)
+            {
+                if (table.values[i] != null)
+                {
+                    keys[j] = table.keys[i];
+                    copy[j++] = unmask(table.values[i]);
+                }
+            }
+            copy[table.size] = keys;
+            return copy;
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return new Object[]{new long[0]};
+        }
+        // size == 1
+        Single single = (Single) val;
+        return new Object[]{single.value, new long[]{single.key}};
+    }
+
+    private static int indexOf(long[] keys, long key)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] == key)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object unmask(Object value)
+    {
+        return value == NULL_VALUE ? null : value;
+    }
+
+    /**
+     * @return power of 2 table capacity keeping the load factor at or below 0.5 for the passed in size.
+     */
+    private static int tableCapacity(int size)
+    {
+        return Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+    }
+
+    protected CompactMap.LogicalValueType getLogicalValueType()
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            return CompactMap.LogicalValueType.ARRAY;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return CompactMap.LogicalValueType.MAP;
+        }
+        else if (val == EMPTY_MAP)
+        {   // empty
+            return CompactMap.LogicalValueType.EMPTY;
+        }
+        // size == 1
+        return CompactMap.LogicalValueType.ENTRY;
+    }
+
+    /**
+     * Holds the key and value when there is only one entry.
+     */
+    private static final class Single
+    {
+        private final long key;
+        private Object value;
+
+        private Single(long key, Object value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Open addressing (linear probing) hash table used when size() {@literal >} compactSize().  A null in values[]
+     * marks an empty slot (null values are stored as NULL_VALUE).  Removal shifts the following entries of the probe
+     * run back, so no tombstones are needed.
+     */
+    private static final class Table
+    {
+        private long[] keys;
+        private Object[] values;
+        private int size;
+
+        private Table(int capacity)
+        {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        private int slot(long key)
+        {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> (33 + Integer.numberOfLeadingZeros(keys.length)));
+        }
+
+        private int indexOf(long key)
+        {
+            int mask = keys.length - 1;
+            for (int i = slot(key); values[i] != null; i = (i + 1) & mask)
+            {
+                if (keys[i] == key)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Object put(long key, Object value)
+        {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            while (values[i] != null)
+            {
+                if (keys[i] == key)
+                {
+                    Object save = unmask(values[i]);
+                    values[i] = value == null ? NULL_VALUE : value;
+                    return save;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value == null ? NULL_VALUE : value;
+            if (++size * 2 > keys.length)
+            {
+                rehash(keys.length * 2);
+            }
+            return null;
+        }
+
+        private void removeAt(int hole)
+        {
+            int mask = keys.length - 1;
+            values[hole] = null;
+            size--;
+            for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask)
+            {
+                int ideal = slot(keys[i]);
+                if (((i - ideal) & mask) >= ((i - hole) & mask))
+                {   // Entry at i may move back into the hole without moving in front of its ideal slot
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    values[i] = null;
+                    hole = i;
+                }
+            }
+        }
+
+        private void rehash(int capacity)
+        {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldValues.length; j++)
+            {
+                if (oldValues[j] != null)
+                {
+                    int i = slot(oldKeys[j]);
+                    while (values[i] != null)
+                    {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Map.Entry handed out by the iterators.  setValue() writes through to the outer CompactLongMap instance.
+     */
+    private class LongMapEntry extends AbstractMap.SimpleEntry<Long, V>
+    {
+        LongMapEntry(long key, V value)
+        {
+            super(key, value);
+        }
+
+        public V setValue(V value)
+        {
+            V save = super.setValue(value);
+            put(getKey().longValue(), value);
+            return save;
+        }
+    }
+
+    protected int compactSize() { return 80; }
+}
@@ -0,0 +1,403 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+
+/**
+ * A Set of primitive longs, following CompactSet's approach: a single member variable (of type Object) that changes
+ * as the Set grows, with the items held in a long[] instead of as Long instances.  contains(long), add(long), and
+ * remove(long) never box, and each item costs 8 bytes.<p></p>
+ *
+ * **Empty**
+ * The member variable points to a sentinel value.<p></p>
+ *
+ * **One thru compactSize() items**
+ * The member variable points to a long[] holding the items in insertion order.  Lookups are a linear scan.<p></p>
+ *
+ * **size() greater than compactSize()**
+ * The items are moved into an open addressing hash table (linear probing, load factor {@literal <}= 0.5) of longs
+ * plus a long[] bit set of occupied slots.  When remove() takes size() back down to compactSize(), the items are
+ * moved back into the long[].<pre>
+ *
+ *     Methods you may want to override:
+ *
+ *     // When size() {@literal >} than this amount, the hash table is used to store the items.
+ *     protected int compactSize() { return 80; }
+ * </pre>
+ * The Set{@literal <}Long{@literal >} methods are supported (boxing), so it can be passed anywhere a Set is expected.
+ * Null is not supported.  Like CompactSet, iteration works on a copy of the items, with Iterator.remove() writing
+ * through to this Set.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class CompactLongSet extends AbstractSet<Long>
+{
+    private static final String EMPTY_SET = "_︿_ψ_☼";
+    private Object val = EMPTY_SET;
+
+    public CompactLongSet()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public CompactLongSet(Collection<Long> other)
+    {
+        this();
+        addAll(other);
+    }
+
+    public int size()
+    {
+        if (val instanceof long[])
+        {   // 1 to compactSize
+            return ((long[]) val).length;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).size;
+        }
+        // empty
+        return 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return val == EMPTY_SET;
+    }
+
+    public boolean contains(long item)
+    {
+        if (val instanceof long[])
+        {   // 1 to compactSize
+            return indexOf((long[]) val, item) >= 0;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).indexOf(item) >= 0;
+        }
+        // empty
+        return false;
+    }
+
+    public boolean contains(Object item)
+    {
+        return item instanceof Long && contains(((Long) item).longValue());
+    }
+
+    public boolean add(long item)
+    {
+        if (val instanceof long[])
+        {   // 1 to compactSize
+            long[] items = (long[]) val;
+            if (indexOf(items, item) >= 0)
+            {
+                return false;
+            }
+
+            int len = items.length;
+            if (len < compactSize())
+            {   // Grow array
+                long[] expand = Arrays.copyOf(items, len + 1);
+                expand[len] = item;
+                val = expand;
+            }
+            else
+            {   // Switch to hash table
+                Table table = new Table(tableCapacity(len + 1));
+                for (long anItem : items)
+                {
+                    table.add(anItem);
+                }
+                table.add(item);
+                val = table;
+            }
+            return true;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            if (table.indexOf(item) >= 0)
+            {
+                return false;
+            }
+            table.add(item);
+            return true;
+        }
+
+        // empty
+        val = new long[]{item};
+        return true;
+    }
+
+    public boolean add(Long item)
+    {
+        return add(item.longValue());
+    }
+
+    public boolean remove(long item)
+    {
+        if (val instanceof long[])
+        {   // 1 to compactSize
+            long[] items = (long[]) val;
+            int i = indexOf(items, item);
+            if (i < 0)
+            {
+                return false;
+            }
+            if (items.length == 1)
+            {   // Down to 0 items
+                val = EMPTY_SET;
+            }
+            else
+            {   // Shrink array
+                long[] shrink = new long[items.length - 1];
+                System.arraycopy(items, 0, shrink, 0, i);
+                System.arraycopy(items, i + 1, shrink, i, shrink.length - i);
+                val = shrink;
+            }
+            return true;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            Table table = (Table) val;
+            int i = table.indexOf(item);
+            if (i < 0)
+            {
+                return false;
+            }
+            table.removeAt(i);
+            if (table.size <= compactSize())
+            {   // Down to compactSize, need to switch to long[]
+                val = table.toArray();
+            }
+            return true;
+        }
+        // empty
+        return false;
+    }
+
+    public boolean remove(Object item)
+    {
+        return item instanceof Long && remove(((Long) item).longValue());
+    }
+
+    public void clear()
+    {
+        val = EMPTY_SET;
+    }
+
+    /**
+     * @return the items of this Set as a new long[] (iteration order), without boxing.
+     */
+    public long[] toLongArray()
+    {
+        if (val instanceof long[])
+        {   // 1 to compactSize
+            return ((long[]) val).clone();
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return ((Table) val).toArray();
+        }
+        // empty
+        return new long[0];
+    }
+
+    public Iterator<Long> iterator()
+    {
+        final long[] items = toLongArray();
+        return new Iterator<Long>()
+        {
+            int next = 0;
+            boolean canRemove = false;
+
+            public boolean hasNext() { return next < items.length; }
+
+            public Long next()
+            {
+                if (next >= items.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return items[next++];
+            }
+
+            public void remove()
+            {
+                if (!canRemove)
+                {   // remove() called on iterator prematurely
+                    throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                }
+                CompactLongSet.this.remove(items[next - 1]);
+                canRemove = false;
+            }
+        };
+    }
+
+    public int hashCode()
+    {
+        int h = 0;
+        for (long item : toLongArray())
+        {
+            h += Long.hashCode(item);
+        }
+        return h;
+    }
+
+    private static int indexOf(long[] items, long item)
+    {
+        for (int i = 0; i < items.length; i++)
+        {
+            if (items[i] == item)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return power of 2 table capacity keeping the load factor at or below 0.5 for the passed in size.
+     */
+    private static int tableCapacity(int size)
+    {
+        return Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+    }
+
+    protected CompactMap.LogicalValueType getLogicalValueType()
+    {
+        if (val instanceof long[])
+        {   // 1 to compactSize
+            return CompactMap.LogicalValueType.ARRAY;
+        }
+        else if (val instanceof Table)
+        {   // > compactSize
+            return CompactMap.LogicalValueType.MAP;
+        }
+        // empty
+        return CompactMap.LogicalValueType.EMPTY;
+    }
+
+    /**
+     * Open addressing (linear probing) hash table used when size() {@literal >} compactSize().  Slot s is occupied
+     * when bit s of used[] is set (every long value is a legal item, so none can mark an empty slot).  Removal shifts
+     * the following items of the probe run back, so no tombstones are needed.
+     */
+    private static final class Table
+    {
+        private long[] items;
+        private long[] used;
+        private int size;
+
+        private Table(int capacity)
+        {
+            items = new long[capacity];
+            used = new long[(capacity + 63) >>> 6];
+        }
+
+        private boolean isUsed(int slot)
+        {
+            return (used[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private int slot(long item)
+        {
+            return (int) ((item * 0x9E3779B97F4A7C15L) >>> (33 + Integer.numberOfLeadingZeros(items.length)));
+        }
+
+        private int indexOf(long item)
+        {
+            int mask = items.length - 1;
+            for (int s = slot(item); isUsed(s); s = (s + 1) & mask)
+            {
+                if (items[s] == item)
+                {
+                    return s;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Add an item that is not in the table.
+         */
+        private void add(long item)
+        {
+            int mask = items.length - 1;
+            int s = slot(item);
+            while (isUsed(s))
+            {
+                s = (s + 1) & mask;
+            }
+            items[s] = item;
+            used[s >>> 6] |= 1L << s;
+            if (++size * 2 > items.length)
+            {
+                rehash(items.length * 2);
+            }
+        }
+
+        private void removeAt(int hole)
+        {
+            int mask = items.length - 1;
+            used[hole >>> 6] &= ~(1L << hole);
+            size--;
+            for (int s = (hole + 1) & mask; isUsed(s); s = (s + 1) & mask)
+            {
+                int ideal = slot(items[s]);
+                if (((s - ideal) & mask) >= ((s - hole) & mask))
+                {   // Item at s may move back into the hole without moving in front of its ideal slot
+                    items[hole] = items[s];
+                    used[hole >>> 6] |= 1L << hole;
+                    used[s >>> 6] &= ~(1L << s);
+                    hole = s;
+                }
+            }
+        }
+
+        private void rehash(int capacity)
+        {
+            long[] all = toArray();
+            items = new long[capacity];
+            used = new long[(capacity + 63) >>> 6];
+            size = 0;
+            for (long item : all)
+            {
+                add(item);
+            }
+        }
+
+        private long[] toArray()
+        {
+            long[] all = new long[size];
+            int j = 0;
+            for (int s = 0; s < items.length; s++)
+            {
+                if (isUsed(s))
+                {
+                    all[j++] = items[s];
+                }
+            }
+            return all;
+        }
+    }
+
+    protected int compactSize() { return 80; }
+}
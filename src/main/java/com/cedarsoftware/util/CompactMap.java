@@ -2,6 +2,7 @@ package com.cedarsoftware.util;
 
 import java.util.*;
 
+import static com.cedarsoftware.util.StringUtilities.equalsIgnoreCase;
 import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
 
 /**
@@ -31,6 +32,18 @@ import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
  *     // When size() {@literal >} than this amount, the Map returned from getNewMap() is used to store elements.
  *     protected int compactSize() { return 80; }
  *
+ *     // When remove() takes size() down to this amount, the Map is dropped and the entries go back into an Object[].
+ *     protected int demoteSize() { return compactSize(); }
+ *
+ *     // If you want O(1) lookups (instead of a linear scan) while size() is 2 thru compactSize(), return true.
+ *     protected boolean isHashIndexed() { return false; }
+ *
+ *     // If you want the linear scan to reject keys by comparing cached hash codes (instead of equals()), return true.
+ *     protected boolean isKeyHashCached() { return false; }
+ *
+ *     // If you want the entries kept in key order (binary search lookups, sorted iteration), return true.
+ *     protected boolean isSorted() { return false; }
+ *
  * </pre>
  * **Empty**
  * This class only has one (1) member variable of type `Object`.  If there are no entries in it, then the value of that
@@ -51,9 +64,30 @@ import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
  * addition, it is dynamically shrunk until the size becomes 1, and then it switches to a single Map Entry or a single
  * value.<p></p>
  *
+ * If `isHashIndexed()` returns true, one additional element is stored at the end of the Object[]: a small open
+ * addressing hash table (byte[] or char[]) holding the position + 1 of each key within the Object[] (0 = empty slot),
+ * along with an int[] of the key hash codes, parallel to the keys.  The keys and values are still stored densely, in
+ * insertion order, as described above, so get(), containsKey(), put(), and remove() no longer need to linearly scan
+ * the keys, and put() and remove() rebuild the table from the cached hash codes, only hashing the key being added.<p></p>
+ *
+ * If `isKeyHashCached()` returns true (and `isHashIndexed()` does not), the additional element at the end of the
+ * Object[] is an int[] holding the hash code of each key (`hashCodeIgnoreCase()` for Strings when case-insensitive),
+ * parallel to the keys.  The linear scan then only calls equals() / equalsIgnoreCase() on keys whose hash code matches,
+ * rejecting all others with an int comparison.  `CompactCIHashMap` and `CompactCILinkedMap` turn this on.<p></p>
+ *
+ * If `isSorted()` returns true, the keys in the Object[] are kept in ascending order (`String.CASE_INSENSITIVE_ORDER`
+ * for String keys when `isCaseInsensitive()` is true, natural ordering otherwise), get(), containsKey(), put(), and
+ * remove() use a binary search, and iteration returns the entries in key order without copying them into a TreeMap.
+ * Keys must be non-null and mutually Comparable.  Sorting takes precedence over `isHashIndexed()`.  By default,
+ * `getNewMap()` returns a TreeMap when sorted, so that order is retained once size() {@literal >} compactSize().<p></p>
+ *
  * **size() greater than compactSize()**
  * In this case, the single member variable points to a `Map` instance (supplied by `getNewMap()` API that user supplied.)
- * This allows `CompactMap` to work with nearly all `Map` types.<p></p>
+ * This allows `CompactMap` to work with nearly all `Map` types.  When entries are removed (via remove(), or any of the
+ * keySet(), values(), or entrySet() removal APIs, including their iterators) and size() drops to `demoteSize()`, the
+ * `Map` is discarded and the entries are moved back into the compact storage above.  Returning a `demoteSize()` below
+ * `compactSize()` adds hysteresis, so that a `Map` whose size hovers around `compactSize()` is not repeatedly converted
+ * back and forth.<p></p>
  *
  * This Map supports null for the key and values, as long as the Map returned by getNewMap() supports null keys-values.
  *
@@ -84,6 +118,14 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             throw new IllegalStateException("compactSize() must be >= 2");
         }
+        if (demoteSize() < 0 || demoteSize() > compactSize())
+        {
+            throw new IllegalStateException("demoteSize() must be >= 0 and <= compactSize()");
+        }
+        if (compactSize() > Character.MAX_VALUE && isHashIndexed() && !isSorted())
+        {
+            throw new IllegalStateException("compactSize() must be <= " + (int) Character.MAX_VALUE + " when isHashIndexed() is true");
+        }
     }
 
     public CompactMap(Map<K, V> other)
@@ -124,7 +166,7 @@ public class CompactMap<K, V> implements Map<K, V>
             {
                 if (isCaseInsensitive())
                 {
-                    return ((String)aKey).equalsIgnoreCase((String) key);
+                    return equalsIgnoreCase((String) aKey, (String) key);
                 }
                 else
                 {
@@ -137,19 +179,251 @@ public class CompactMap<K, V> implements Map<K, V>
         return Objects.equals(key, aKey);
     }
 
-    public boolean containsKey(Object key)
+    /**
+     * @return index within the passed in Object[] of the key that matches the passed in key, or -1 if not present.
+     */
+    private int findKey(Object[] entries, Object key)
     {
-        if (val instanceof Object[])
-        {   // 2 to compactSize
-            Object[] entries = (Object[]) val;
-            for (int i=0; i < entries.length; i += 2)
+        return findKey(entries, key, (entries.length & 1) == 1 ? computeKeyHashCode(key) : 0);
+    }
+
+    /**
+     * @param hash computeKeyHashCode(key), only used when the Object[] has a hash index or cached key hashes.
+     * @return index within the passed in Object[] of the key that matches the passed in key, or -1 if not present.
+     */
+    private int findKey(Object[] entries, Object key, int hash)
+    {
+        if ((entries.length & 1) == 1)
+        {   // last element is the hash index or the cached key hashes
+            Object index = entries[entries.length - 1];
+            if (index instanceof int[])
+            {   // cached key hashes - only compare keys whose hash matches
+                int[] hashes = (int[]) index;
+                for (int pos = 0; pos < hashes.length; pos++)
+                {
+                    if (hashes[pos] == hash && compareKeys(key, entries[pos << 1]))
+                    {
+                        return pos << 1;
+                    }
+                }
+                return -1;
+            }
+
+            HashIndex hashIndex = (HashIndex) index;
+            int[] hashes = hashIndex.hashes;
+            Object table = hashIndex.table;
+            int mask = indexLength(table) - 1;
+            int slot = spread(hash) & mask;
+            int pos;
+            while ((pos = getIndexSlot(table, slot)) != 0)
             {
-                if (compareKeys(key, entries[i]))
+                int i = (pos - 1) << 1;
+                if (hashes[pos - 1] == hash && compareKeys(key, entries[i]))
                 {
-                    return true;
+                    return i;
                 }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+        else if (isSorted())
+        {
+            int i = binarySearch(entries, key);
+            return i < 0 ? -1 : i;
+        }
+
+        for (int i=0; i < entries.length; i += 2)
+        {
+            if (compareKeys(key, entries[i]))
+            {
+                return i;
             }
-            return false;
+        }
+        return -1;
+    }
+
+    /**
+     * Binary search the keys of a sorted Object[].
+     * @return index within the Object[] of the matching key, or -(insertion index + 1) when not found.
+     */
+    private int binarySearch(Object[] entries, Object key)
+    {
+        int low = 0;
+        int high = (entries.length >> 1) - 1;
+
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKeysForSort(entries[mid << 1], key);
+            if (cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid << 1;
+            }
+        }
+        return -((low << 1) + 1);
+    }
+
+    private int compareKeysForSort(Object key, Object aKey)
+    {
+        if (isCaseInsensitive() && key instanceof String && aKey instanceof String)
+        {
+            return String.CASE_INSENSITIVE_ORDER.compare((String) key, (String) aKey);
+        }
+        return ((Comparable<Object>) key).compareTo(aKey);
+    }
+
+    /**
+     * Insertion sort the key-value pairs of the Object[] by key.  Linear when they are already in order, which is
+     * the case when entries come from a SortedMap.
+     */
+    private void sortEntries(Object[] entries)
+    {
+        int len = entries.length & ~1;
+        for (int i = 2; i < len; i += 2)
+        {
+            Object key = entries[i];
+            Object value = entries[i + 1];
+            int j = i - 2;
+            while (j >= 0 && compareKeysForSort(entries[j], key) > 0)
+            {
+                entries[j + 2] = entries[j];
+                entries[j + 3] = entries[j + 1];
+                j -= 2;
+            }
+            entries[j + 2] = key;
+            entries[j + 3] = value;
+        }
+    }
+
+    /**
+     * Allocate the Object[] used to hold 2 thru compactSize() entries, leaving room at the end for the hash index
+     * or cached key hashes when isHashIndexed() or isKeyHashCached() is true.  Call buildIndex() once the keys and
+     * values have been placed.
+     */
+    private Object[] newEntries(int size)
+    {
+        boolean lookup = !isSorted() && (isHashIndexed() || isKeyHashCached());
+        return new Object[lookup ? (size << 1) + 1 : size << 1];
+    }
+
+    /**
+     * @return the cached key hashes stored at the end of the Object[], or null if it does not have them.
+     */
+    private static int[] getKeyHashes(Object[] entries)
+    {
+        if ((entries.length & 1) == 0)
+        {
+            return null;
+        }
+        Object index = entries[entries.length - 1];
+        return index instanceof HashIndex ? ((HashIndex) index).hashes : (int[]) index;
+    }
+
+    /**
+     * Build the lookup structure stored in the last element of the Object[], if it has one, hashing every key.
+     * Only used when the keys come from somewhere without cached hashes (CompactMapEntry or Map).
+     */
+    private void buildIndex(Object[] entries)
+    {
+        if ((entries.length & 1) == 0)
+        {   // no hash index or cached key hashes
+            return;
+        }
+        int size = entries.length >> 1;
+        int[] hashes = new int[size];
+        for (int pos = 0; pos < size; pos++)
+        {
+            hashes[pos] = computeKeyHashCode(entries[pos << 1]);
+        }
+        buildIndex(entries, hashes);
+    }
+
+    /**
+     * Store the lookup structure in the last element of the Object[] from the passed in key hashes (parallel to the
+     * keys), without calling computeKeyHashCode().  For a hash indexed Object[], this is a HashIndex: the hashes plus
+     * an open addressing table with at least 2x as many slots as there are entries, each slot holding the entry
+     * position + 1 (0 = empty).  Otherwise, it is the int[] of cached key hashes itself.
+     */
+    private void buildIndex(Object[] entries, int[] hashes)
+    {
+        if (!isHashIndexed())
+        {
+            entries[entries.length - 1] = hashes;
+            return;
+        }
+
+        int size = hashes.length;
+        int tableSize = Integer.highestOneBit((size << 1) - 1) << 1;
+        int mask = tableSize - 1;
+        Object table = size < 255 ? new byte[tableSize] : new char[tableSize];
+
+        for (int pos = 0; pos < size; pos++)
+        {
+            int slot = spread(hashes[pos]) & mask;
+            while (getIndexSlot(table, slot) != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+            if (table instanceof byte[])
+            {
+                ((byte[]) table)[slot] = (byte) (pos + 1);
+            }
+            else
+            {
+                ((char[]) table)[slot] = (char) (pos + 1);
+            }
+        }
+        entries[entries.length - 1] = new HashIndex(hashes, table);
+    }
+
+    /**
+     * Last element of a hash indexed Object[].  The key hashes are kept so that put() and remove() can rebuild the
+     * table when the Object[] is resized without re-hashing every key.
+     */
+    private static final class HashIndex
+    {
+        private final int[] hashes;
+        private final Object table;     // byte[] or char[]
+
+        private HashIndex(int[] hashes, Object table)
+        {
+            this.hashes = hashes;
+            this.table = table;
+        }
+    }
+
+    private static int getIndexSlot(Object index, int slot)
+    {
+        if (index instanceof byte[])
+        {
+            return ((byte[]) index)[slot] & 0xff;
+        }
+        return ((char[]) index)[slot];
+    }
+
+    private static int indexLength(Object index)
+    {
+        return index instanceof byte[] ? ((byte[]) index).length : ((char[]) index).length;
+    }
+
+    private static int spread(int h)
+    {
+        return h ^ (h >>> 16);
+    }
+
+    public boolean containsKey(Object key)
+    {
+        if (val instanceof Object[])
+        {   // 2 to compactSize
+            return findKey((Object[]) val, key) >= 0;
         }
         else if (val instanceof Map)
         {   // > compactSize
@@ -170,7 +444,7 @@ public class CompactMap<K, V> implements Map<K, V>
         if (val instanceof Object[])
         {   // 2 to Compactsize
             Object[] entries = (Object[]) val;
-            for (int i=0; i < entries.length; i += 2)
+            for (int i=0; i < entries.length - 1; i += 2)
             {
                 Object aValue = entries[i + 1];
                 if (Objects.equals(value, aValue))
@@ -199,15 +473,8 @@ public class CompactMap<K, V> implements Map<K, V>
         if (val instanceof Object[])
         {   // 2 to compactSize
             Object[] entries = (Object[]) val;
-            for (int i=0; i < entries.length; i += 2)
-            {
-                Object aKey = entries[i];
-                if (compareKeys(key, aKey))
-                {
-                    return (V) entries[i + 1];
-                }
-            }
-            return null;
+            int i = findKey(entries, key);
+            return i < 0 ? null : (V) entries[i + 1];
         }
         else if (val instanceof Map)
         {   // > compactSize
@@ -228,32 +495,43 @@ public class CompactMap<K, V> implements Map<K, V>
         if (val instanceof Object[])
         {   // 2 to compactSize
             Object[] entries = (Object[]) val;
-            for (int i=0; i < entries.length; i += 2)
-            {
-                Object aKey = entries[i];
-                Object aValue = entries[i + 1];
-                if (compareKeys(key, aKey))
-                {   // Overwrite case
-                    entries[i + 1] = value;
-                    return (V) aValue;
-                }
+            int hash = (entries.length & 1) == 1 ? computeKeyHashCode(key) : 0;
+            int idx = findKey(entries, key, hash);
+            if (idx >= 0)
+            {   // Overwrite case
+                Object aValue = entries[idx + 1];
+                entries[idx + 1] = value;
+                return (V) aValue;
             }
 
             // Not present in Object[]
-            if (size() < compactSize())
+            int size = size();
+            if (size < compactSize())
             {   // Grow array
-                Object[] expand = new Object[entries.length + 2];
-                System.arraycopy(entries, 0, expand, 0, entries.length);
-                // Place new entry at end
-                expand[expand.length - 2] = key;
-                expand[expand.length - 1] = value;
+                Object[] expand = newEntries(size + 1);
+                // Place new entry at end (or at its ordered position when sorted)
+                int insert = isSorted() ? -binarySearch(entries, key) - 1 : size << 1;
+                System.arraycopy(entries, 0, expand, 0, insert);
+                expand[insert] = key;
+                expand[insert + 1] = value;
+                System.arraycopy(entries, insert, expand, insert + 2, (size << 1) - insert);
+                int[] hashes = getKeyHashes(entries);
+                if (hashes != null)
+                {   // Carry over the cached key hashes, only the new key is hashed (never sorted, so it is at the end)
+                    int[] expandHashes = Arrays.copyOf(hashes, size + 1);
+                    expandHashes[size] = hash;
+                    buildIndex(expand, expandHashes);
+                }
+                else
+                {
+                    buildIndex(expand);
+                }
                 val = expand;
             }
             else
             {   // Switch to Map - copy entries
                 Map<K, V> map = getNewMap();
-                entries = (Object[]) val;
-                for (int i=0; i < entries.length; i += 2)
+                for (int i=0; i < entries.length - 1; i += 2)
                 {
                     Object aKey = entries[i];
                     Object aValue = entries[i + 1];
@@ -299,11 +577,16 @@ public class CompactMap<K, V> implements Map<K, V>
         }
         else
         {   // CompactMapEntry to []
-            Object[] entries = new Object[4];
+            Object[] entries = newEntries(2);
             entries[0] = getLogicalSingleKey();
             entries[1] = getLogicalSingleValue();
             entries[2] = key;
             entries[3] = value;
+            if (isSorted())
+            {
+                sortEntries(entries);
+            }
+            buildIndex(entries);
             val = entries;
             return null;
         }
@@ -336,21 +619,33 @@ public class CompactMap<K, V> implements Map<K, V>
             else
             {
                 Object[] entries = (Object[]) val;
-                for (int i = 0; i < entries.length; i += 2)
+                int i = findKey(entries, key);
+                if (i < 0)
                 {
-                    Object aKey = entries[i];
-                    if (compareKeys(key, aKey))
-                    {   // Found, must shrink
-                        Object prior = entries[i + 1];
-                        Object[] shrink = new Object[entries.length - 2];
-                        System.arraycopy(entries, 0, shrink, 0, i);
-                        System.arraycopy(entries, i + 2, shrink, i, shrink.length - i);
-                        val = shrink;
-                        return (V) prior;
-                    }
+                    return null;    // not found
                 }
 
-                return null;    // not found
+                // Found, must shrink
+                Object prior = entries[i + 1];
+                int size = size();
+                Object[] shrink = newEntries(size - 1);
+                System.arraycopy(entries, 0, shrink, 0, i);
+                System.arraycopy(entries, i + 2, shrink, i, ((size - 1) << 1) - i);
+                int[] hashes = getKeyHashes(entries);
+                if (hashes != null)
+                {   // Carry over the cached key hashes, minus the removed key's
+                    int pos = i >> 1;
+                    int[] shrinkHashes = new int[size - 1];
+                    System.arraycopy(hashes, 0, shrinkHashes, 0, pos);
+                    System.arraycopy(hashes, pos + 1, shrinkHashes, pos, size - 1 - pos);
+                    buildIndex(shrink, shrinkHashes);
+                }
+                else
+                {
+                    buildIndex(shrink);
+                }
+                val = shrink;
+                return (V) prior;
             }
         }
         else if (val instanceof Map)
@@ -361,10 +656,16 @@ public class CompactMap<K, V> implements Map<K, V>
                 return null;
             }
             V save = map.remove(key);
+            int size = map.size();
 
-            if (map.size() == compactSize())
-            {   // Down to compactSize, need to switch to Object[]
-                Object[] entries = new Object[compactSize() * 2];
+            if (size < 2 && size <= demoteSize())
+            {   // Down to (at most) one entry, let put() choose between single value and CompactMapEntry
+                val = EMPTY_MAP;
+                putAll(map);
+            }
+            else if (size <= demoteSize())
+            {   // Down to the low-water mark, need to switch to Object[]
+                Object[] entries = newEntries(size);
                 Iterator<Entry<K, V>> i = map.entrySet().iterator();
                 int idx = 0;
                 while (i.hasNext())
@@ -374,6 +675,11 @@ public class CompactMap<K, V> implements Map<K, V>
                     entries[idx + 1] = entry.getValue();
                     idx += 2;
                 }
+                if (isSorted())
+                {
+                    sortEntries(entries);
+                }
+                buildIndex(entries);
                 val = entries;
             }
             return save;
@@ -419,11 +725,12 @@ public class CompactMap<K, V> implements Map<K, V>
         {
             int h = 0;
             Object[] entries = (Object[]) val;
-            for (int i=0; i < entries.length; i += 2)
+            int[] hashes = getKeyHashes(entries);
+            for (int i=0; i < entries.length - 1; i += 2)
             {
                 Object aKey = entries[i];
                 Object aValue = entries[i + 1];
-                h += computeKeyHashCode(aKey) ^ computeValueHashCode(aValue);
+                h += (hashes == null ? computeKeyHashCode(aKey) : hashes[i >> 1]) ^ computeValueHashCode(aValue);
             }
             return h;
         }
@@ -563,7 +870,10 @@ public class CompactMap<K, V> implements Map<K, V>
                 Map<K, V> other = new CompactMap<K, V>()
                 {   // Match outer
                     protected boolean isCaseInsensitive() { return CompactMap.this.isCaseInsensitive(); }
+                    protected boolean isHashIndexed() { return CompactMap.this.isHashIndexed(); }
+                    protected boolean isKeyHashCached() { return CompactMap.this.isKeyHashCached(); }
                     protected int compactSize() { return CompactMap.this.compactSize(); }
+                    protected int demoteSize() { return CompactMap.this.demoteSize(); }
                     protected Map<K, V> getNewMap() { return CompactMap.this.getNewMap(); }
                 };
                 for (Object o : c)
@@ -694,7 +1004,10 @@ public class CompactMap<K, V> implements Map<K, V>
                 Map<K, V> other = new CompactMap<K, V>()
                 {   // Match outer
                     protected boolean isCaseInsensitive() { return CompactMap.this.isCaseInsensitive(); }
+                    protected boolean isHashIndexed() { return CompactMap.this.isHashIndexed(); }
+                    protected boolean isKeyHashCached() { return CompactMap.this.isKeyHashCached(); }
                     protected int compactSize() { return CompactMap.this.compactSize(); }
+                    protected int demoteSize() { return CompactMap.this.demoteSize(); }
                     protected Map<K, V> getNewMap() { return CompactMap.this.getNewMap(); }
                 };
                 for (Object o : c)
@@ -735,11 +1048,13 @@ public class CompactMap<K, V> implements Map<K, V>
 
     private Map<K, V> getCopy()
     {
-        Map<K, V> copy = getNewMap();   // Use their Map (TreeMap, HashMap, LinkedHashMap, etc.)
+        // Use their Map (TreeMap, HashMap, LinkedHashMap, etc.).  When sorted, the entries are already in order,
+        // so retain that order without paying to re-sort them into a TreeMap.
+        Map<K, V> copy = isSorted() ? new LinkedHashMap<K, V>(size() + 1, 1.0f) : getNewMap();
         if (val instanceof Object[])
         {   // 2 to compactSize - copy Object[] into Map
             Object[] entries = (Object[]) CompactMap.this.val;
-            int len = entries.length;
+            int len = entries.length - 1;
             for (int i=0; i < len; i += 2)
             {
                 copy.put((K)entries[i], (V)entries[i + 1]);
@@ -769,6 +1084,36 @@ public class CompactMap<K, V> implements Map<K, V>
         remove(currentEntry.getKey());
     }
 
+    /**
+     * @return an immutable copy of this Map (same iteration order, and case-insensitive when isCaseInsensitive()
+     * returns true).  The copy stores the entries in a single Object[] along with a minimal perfect hash of the
+     * keys, making get() and containsKey() O(1) and allocation-free at about 2 bytes per entry over the
+     * Object[] itself.  Use it for Maps that are built once and then only read.
+     */
+    public Map<K, V> freeze()
+    {
+        return FrozenCompactMap.of(this, isCaseInsensitive());
+    }
+
+    /**
+     * @param map Map to copy.
+     * @return an immutable, perfect hash indexed copy of the passed in Map (see freeze()).  The copy is
+     * case-insensitive when the passed in Map is a CaseInsensitiveMap, or a CompactMap whose isCaseInsensitive()
+     * returns true.
+     */
+    public static <K, V> Map<K, V> copyOf(Map<? extends K, ? extends V> map)
+    {
+        if (map instanceof FrozenCompactMap)
+        {   // Already immutable
+            return (Map<K, V>) map;
+        }
+        if (map instanceof CompactMap)
+        {
+            return ((CompactMap<K, V>) map).freeze();
+        }
+        return FrozenCompactMap.of(map, map instanceof CaseInsensitiveMap);
+    }
+
     public Map minus(Object removeMe)
     {
         throw new UnsupportedOperationException("Unsupported operation [minus] or [-] between Maps.  Use removeAll() or retainAll() instead.");
@@ -911,9 +1256,48 @@ public class CompactMap<K, V> implements Map<K, V>
     protected K getSingleValueKey() { return (K) "key"; };
 
     /**
-     * @return new empty Map instance to use when size() becomes {@literal >} compactSize().
+     * @return new empty Map instance to use when size() becomes {@literal >} compactSize().  HashMap by default, or
+     * a TreeMap (case-insensitively ordered when isCaseInsensitive() is true) when isSorted() is true.
      */
-    protected Map<K, V> getNewMap() { return new HashMap<>(compactSize() + 1); }
+    protected Map<K, V> getNewMap()
+    {
+        if (isSorted())
+        {
+            return isCaseInsensitive() ? new TreeMap<K, V>((Comparator) String.CASE_INSENSITIVE_ORDER) : new TreeMap<K, V>();
+        }
+        return new HashMap<>(compactSize() + 1);
+    }
     protected boolean isCaseInsensitive() { return false; }
     protected int compactSize() { return 80; }
+
+    /**
+     * @return size at (or below) which remove() moves the entries out of the Map returned by getNewMap() and back
+     * into compact storage.  Defaults to compactSize().  Return a smaller value (0 thru compactSize()) to keep the
+     * Map until more entries have been removed, avoiding repeated Map / Object[] conversions when size() hovers
+     * around compactSize().
+     */
+    protected int demoteSize() { return compactSize(); }
+
+    /**
+     * @return true to have the Object[] (2 thru compactSize() entries) carry a small open addressing hash index,
+     * making get(), containsKey(), put(), and remove() O(1) instead of a linear scan of the keys.  Costs a byte[] of
+     * 2x-4x size() slots (char[] if size() {@literal >}= 255) plus an int[] of cached key hashes per Map.  Useful with
+     * a large compactSize().
+     */
+    protected boolean isHashIndexed() { return false; }
+
+    /**
+     * @return true to store the hash code of each key (hashCodeIgnoreCase() for Strings when isCaseInsensitive() is
+     * true) in an int[] parallel to the keys of the Object[] (2 thru compactSize() entries).  Lookups then compare
+     * hash codes first, only calling equals() / equalsIgnoreCase() when they match.  Costs one int per entry.
+     * Not used when isHashIndexed() or isSorted() is true.
+     */
+    protected boolean isKeyHashCached() { return false; }
+
+    /**
+     * @return true to keep the Object[] (2 thru compactSize() entries) ordered by key, making get(), containsKey(),
+     * put(), and remove() binary searches, and iteration return entries in key order (like a SortedMap).  Keys must
+     * be non-null and mutually Comparable.  Takes precedence over isHashIndexed().
+     */
+    protected boolean isSorted() { return false; }
 }
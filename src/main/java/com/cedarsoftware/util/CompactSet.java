@@ -24,8 +24,17 @@ import java.util.*;
  *
  *     // When size() {@literal >} than this amount, the Set returned from getNewSet() is used to store elements.
  *     protected int compactSize() { return 80; }
+ *
+ *     // When remove() takes size() down to this amount, the Set is dropped and the items go back into an Object[].
+ *     protected int demoteSize() { return compactSize(); }
+ *
+ *     // If you want the items kept in order (binary search lookups, sorted iteration), return true.
+ *     protected boolean isSorted() { return false; }
  * </pre>
- * This Set supports holding a null element.
+ * This Set supports holding a null element (except when sorted).  When sorted, the Object[] is kept in ascending
+ * order (`String.CASE_INSENSITIVE_ORDER` for Strings when case-insensitive, natural ordering otherwise), contains(),
+ * add(), and remove() use a binary search, and iteration returns the items in order without copying them into a
+ * TreeSet.
  *
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
@@ -55,6 +64,10 @@ public class CompactSet<E> extends AbstractSet<E>
         {
             throw new IllegalStateException("compactSize() must be >= 2");
         }
+        if (demoteSize() < 0 || demoteSize() > compactSize())
+        {
+            throw new IllegalStateException("demoteSize() must be >= 0 and <= compactSize()");
+        }
     }
 
     public CompactSet(Collection<E> other)
@@ -90,7 +103,7 @@ public class CompactSet<E> extends AbstractSet<E>
             {
                 if (isCaseInsensitive())
                 {
-                    return ((String)anItem).equalsIgnoreCase((String) item);
+                    return StringUtilities.equalsIgnoreCase((String) anItem, (String) item);
                 }
                 else
                 {
@@ -103,19 +116,68 @@ public class CompactSet<E> extends AbstractSet<E>
         return Objects.equals(item, anItem);
     }
 
+    private int compareItemsForSort(Object item, Object anItem)
+    {
+        if (isCaseInsensitive() && item instanceof String && anItem instanceof String)
+        {
+            return String.CASE_INSENSITIVE_ORDER.compare((String) item, (String) anItem);
+        }
+        return ((Comparable<Object>) item).compareTo(anItem);
+    }
+
+    /**
+     * @return index of the matching item in the sorted Object[], or -(insertion point + 1) if not found.
+     */
+    private int binarySearch(Object[] entries, Object item)
+    {
+        int low = 0;
+        int high = entries.length - 1;
+
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = compareItemsForSort(entries[mid], item);
+            if (cmp < 0)
+            {
+                low = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return index of the matching item within the Object[], or -1 if not present.
+     */
+    private int indexOf(Object[] entries, Object item)
+    {
+        if (isSorted())
+        {
+            int i = binarySearch(entries, item);
+            return i < 0 ? -1 : i;
+        }
+        for (int i=0; i < entries.length; i++)
+        {
+            if (compareItems(item, entries[i]))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public boolean contains(Object item)
     {
         if (val instanceof Object[])
         {   // 1 to compactSize
-            Object[] entries = (Object[]) val;
-            for (int i=0; i < entries.length; i++)
-            {
-                if (compareItems(item, entries[i]))
-                {
-                    return true;
-                }
-            }
-            return false;
+            return indexOf((Object[]) val, item) >= 0;
         }
         else if (val instanceof Set)
         {   // > compactSize
@@ -155,7 +217,9 @@ public class CompactSet<E> extends AbstractSet<E>
 
     private Set<E> getCopy()
     {
-        Set<E> copy = getNewSet();   // Use their Set (TreeSet, HashSet, LinkedHashSet, etc.)
+        // Use their Set (TreeSet, HashSet, LinkedHashSet, etc.).  When sorted, the items are already in order,
+        // so retain that order without paying to re-sort them into a TreeSet.
+        Set<E> copy = isSorted() ? new LinkedHashSet<E>(size() + 1, 1.0f) : getNewSet();
         if (val instanceof Object[])
         {   // 1 to compactSize - copy Object[] into Set
             Object[] entries = (Object[]) CompactSet.this.val;
@@ -178,18 +242,29 @@ public class CompactSet<E> extends AbstractSet<E>
     {
         if (val instanceof Object[])
         {   // 1 to compactSize
-            if (contains(item))
+            Object[] entries = (Object[]) val;
+            int insert = entries.length;
+            if (isSorted())
+            {
+                insert = binarySearch(entries, item);
+                if (insert >= 0)
+                {
+                    return false;
+                }
+                insert = -insert - 1;
+            }
+            else if (contains(item))
             {
                 return false;
             }
 
-            Object[] entries = (Object[]) val;
             if (size() < compactSize())
             {   // Grow array
                 Object[] expand = new Object[entries.length + 1];
-                System.arraycopy(entries, 0, expand, 0, entries.length);
-                // Place new entry at end
-                expand[expand.length - 1] = item;
+                // Place new entry at end (or at its ordered position when sorted)
+                System.arraycopy(entries, 0, expand, 0, insert);
+                expand[insert] = item;
+                System.arraycopy(entries, insert, expand, insert + 1, entries.length - insert);
                 val = expand;
             }
             else
@@ -222,26 +297,24 @@ public class CompactSet<E> extends AbstractSet<E>
         {
             Object[] local = (Object[]) val;
             int len = local.length;
+            int i = indexOf(local, item);
+            if (i < 0)
+            {
+                return false;    // not found
+            }
 
-            for (int i=0; i < len; i++)
+            if (len == 1)
             {
-                if (compareItems(local[i], item))
-                {
-                    if (len == 1)
-                    {
-                        val = EMPTY_SET;
-                    }
-                    else
-                    {
-                        Object[] newElems = new Object[len - 1];
-                        System.arraycopy(local, i + 1, local, i, len - i - 1);
-                        System.arraycopy(local, 0, newElems, 0, len - 1);
-                        val = newElems;
-                    }
-                    return true;
-                }
+                val = EMPTY_SET;
             }
-            return false;    // not found
+            else
+            {
+                Object[] newElems = new Object[len - 1];
+                System.arraycopy(local, i + 1, local, i, len - i - 1);
+                System.arraycopy(local, 0, newElems, 0, len - 1);
+                val = newElems;
+            }
+            return true;
         }
         else if (val instanceof Set)
         {   // > compactSize
@@ -251,16 +324,25 @@ public class CompactSet<E> extends AbstractSet<E>
                 return false;
             }
             boolean removed = set.remove(item);
+            int size = set.size();
 
-            if (set.size() == compactSize())
-            {   // Down to compactSize, need to switch to Object[]
-                Object[] entries = new Object[compactSize()];
+            if (size == 0)
+            {   // Only possible when demoteSize() is 0
+                val = EMPTY_SET;
+            }
+            else if (size <= demoteSize())
+            {   // Down to the low-water mark, need to switch to Object[]
+                Object[] entries = new Object[size];
                 Iterator<E> i = set.iterator();
                 int idx = 0;
                 while (i.hasNext())
                 {
                     entries[idx++] = i.next();
                 }
+                if (isSorted())
+                {   // Already in order if getNewSet() returned a SortedSet
+                    Arrays.sort(entries, this::compareItemsForSort);
+                }
                 val = entries;
             }
             return removed;
@@ -276,9 +358,65 @@ public class CompactSet<E> extends AbstractSet<E>
     }
 
     /**
-     * @return new empty Set instance to use when size() becomes {@literal >} compactSize().
+     * @return an immutable copy of this Set (same iteration order, and case-insensitive when isCaseInsensitive()
+     * returns true).  The copy stores the items in a single Object[] along with a minimal perfect hash of the
+     * items, making contains() O(1) and allocation-free.  Use it for Sets that are built once and then only read.
+     */
+    public Set<E> freeze()
+    {
+        return FrozenCompactSet.of(this, isCaseInsensitive());
+    }
+
+    /**
+     * @param items Collection to copy (duplicates are dropped).
+     * @return an immutable, perfect hash indexed copy of the passed in items (see freeze()).  The copy is
+     * case-insensitive when the passed in Collection is a CaseInsensitiveSet, or a CompactSet whose
+     * isCaseInsensitive() returns true.
      */
-    protected Set<E> getNewSet() { return new HashSet<>(compactSize() + 1); }
+    public static <E> Set<E> copyOf(Collection<? extends E> items)
+    {
+        if (items instanceof FrozenCompactSet)
+        {   // Already immutable
+            return (Set<E>) items;
+        }
+        if (items instanceof CompactSet)
+        {
+            return ((CompactSet<E>) items).freeze();
+        }
+        if (items instanceof CaseInsensitiveSet)
+        {
+            return FrozenCompactSet.of(items, true);
+        }
+        return FrozenCompactSet.of(items instanceof Set ? items : new LinkedHashSet<>(items), false);
+    }
+
+    /**
+     * @return new empty Set instance to use when size() becomes {@literal >} compactSize().  HashSet by default, or
+     * a TreeSet (case-insensitively ordered when isCaseInsensitive() is true) when isSorted() is true.
+     */
+    protected Set<E> getNewSet()
+    {
+        if (isSorted())
+        {
+            return isCaseInsensitive() ? new TreeSet<E>((Comparator) String.CASE_INSENSITIVE_ORDER) : new TreeSet<E>();
+        }
+        return new HashSet<>(compactSize() + 1);
+    }
     protected boolean isCaseInsensitive() { return false; }
     protected int compactSize() { return 80; }
+
+    /**
+     * @return size at (or below) which remove() moves the items out of the Set returned by getNewSet() and back
+     * into the Object[].  Defaults to compactSize().  Return a smaller value (0 thru compactSize()) to keep the Set
+     * until more items have been removed, avoiding repeated Set / Object[] conversions when size() hovers around
+     * compactSize().
+     */
+    protected int demoteSize() { return compactSize(); }
+
+    /**
+     * @return true to keep the Object[] (1 thru compactSize() items) in order, making contains(), add(), and
+     * remove() binary searches, and iteration return items in order (like a SortedSet).  Items must be non-null and
+     * mutually Comparable.
+     */
+    protected boolean isSorted() { return false; }
 }
@@ -0,0 +1,698 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe counterpart to CompactMap.  Like CompactMap, it uses only one (1) member variable (of type Object),
+ * changing it as the Map grows: empty sentinel, to a single Map.Entry, to an Object[] (2 thru compactSize() entries),
+ * and finally to the ConcurrentMap returned from getNewMap() (ConcurrentHashMap by default).<p></p>
+ *
+ * The member variable is volatile, and the Map.Entry and Object[] it points to are never modified after they are
+ * published.  A write (while size() {@literal <}= compactSize()) takes a lock, copies the current Object[] with the
+ * change applied (copy-on-write), and publishes the copy.  The keys are in the even positions of the Object[], the
+ * values are in the odd positions, and the last element is an int[] of the keys' hash codes, so that lookups only
+ * call equals() on keys whose hash code matches.  Readers never lock - get(), containsKey(), size(), and
+ * iteration read the member variable once and work on that immutable snapshot.  This makes it well suited to small
+ * Maps that are read far more often than they are written, where a Collections.synchronizedMap(new CompactMap())
+ * would make every reader contend for the same lock.<p></p>
+ *
+ * Once size() {@literal >} compactSize(), the entries are moved into the ConcurrentMap from getNewMap(), and all
+ * operations (reads and writes) go straight to it without taking a lock.  Because those writes do not lock, the
+ * entries are not moved back into an Object[] when they are removed (clear() does return the Map to empty).<pre>
+ *
+ *     Methods you may want to override:
+ *
+ *     // ConcurrentMap you would like it to use when size() {@literal >} compactSize().  ConcurrentHashMap is default
+ *     protected ConcurrentMap{@literal <}K, V{@literal >} getNewMap();
+ *
+ *     // When size() {@literal >} than this amount, the Map returned from getNewMap() is used to store elements.
+ *     protected int compactSize() { return 80; }
+ * </pre>
+ * Iterators are weakly consistent: while size() {@literal <}= compactSize(), they walk the snapshot that was current
+ * when the iterator was created, otherwise they are the iterators of the ConcurrentMap.  Iterator.remove() and
+ * Map.Entry.setValue() write through to this Map.<p></p>
+ *
+ * As with ConcurrentHashMap, null keys and null values are not supported.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class ConcurrentCompactMap<K, V> implements ConcurrentMap<K, V>
+{
+    private static final String EMPTY_MAP = "_︿_ψ_☼";
+    private volatile Object val = EMPTY_MAP;
+
+    public ConcurrentCompactMap()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public ConcurrentCompactMap(Map<K, V> other)
+    {
+        this();
+        putAll(other);
+    }
+
+    public int size()
+    {
+        Object v = val;
+        if (v instanceof Object[])
+        {   // 2 to compactSize
+            return ((Object[]) v).length / 2;
+        }
+        else if (v instanceof Map)
+        {   // > compactSize
+            return ((Map<K, V>) v).size();
+        }
+        else if (v == EMPTY_MAP)
+        {   // empty
+            return 0;
+        }
+        // size == 1
+        return 1;
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    public boolean containsValue(Object value)
+    {
+        Objects.requireNonNull(value);
+        Object v = val;
+        if (v instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) v;
+            for (int i = 1; i < entries.length - 1; i += 2)
+            {
+                if (value.equals(entries[i]))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        else if (v instanceof Map)
+        {   // > compactSize
+            return ((Map<K, V>) v).containsValue(value);
+        }
+        else if (v == EMPTY_MAP)
+        {   // empty
+            return false;
+        }
+        // size == 1
+        return value.equals(((Entry<K, V>) v).getValue());
+    }
+
+    public V get(Object key)
+    {
+        Objects.requireNonNull(key);
+        Object v = val;
+        if (v instanceof Object[])
+        {   // 2 to compactSize
+            Object[] entries = (Object[]) v;
+            int i = indexOf(entries, key);
+            return i < 0 ? null : (V) entries[i + 1];
+        }
+        else if (v instanceof Map)
+        {   // > compactSize
+            return ((Map<K, V>) v).get(key);
+        }
+        else if (v == EMPTY_MAP)
+        {   // empty
+            return null;
+        }
+        // size == 1
+        Entry<K, V> entry = (Entry<K, V>) v;
+        return key.equals(entry.getKey()) ? entry.getValue() : null;
+    }
+
+    public V put(K key, V value)
+    {
+        return put(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value)
+    {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent)
+    {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        Object v = val;
+        if (v instanceof ConcurrentMap)
+        {   // > compactSize - no lock needed
+            ConcurrentMap<K, V> map = (ConcurrentMap<K, V>) v;
+            return onlyIfAbsent ? map.putIfAbsent(key, value) : map.put(key, value);
+        }
+
+        synchronized (this)
+        {
+            v = val;
+            if (v instanceof Object[])
+            {   // 2 to compactSize
+                Object[] entries = (Object[]) v;
+                int i = indexOf(entries, key);
+                if (i >= 0)
+                {   // Update
+                    V save = (V) entries[i + 1];
+                    if (!onlyIfAbsent)
+                    {
+                        Object[] copy = entries.clone();
+                        copy[i + 1] = value;
+                        val = copy;
+                    }
+                    return save;
+                }
+
+                int len = entries.length - 1;
+                if (len / 2 < compactSize())
+                {   // Grow array
+                    int[] hashes = (int[]) entries[len];
+                    Object[] copy = Arrays.copyOf(entries, len + 3);
+                    copy[len] = key;
+                    copy[len + 1] = value;
+                    hashes = Arrays.copyOf(hashes, hashes.length + 1);
+                    hashes[hashes.length - 1] = key.hashCode();
+                    copy[len + 2] = hashes;
+                    val = copy;
+                }
+                else
+                {   // Switch to Map - copy entries
+                    ConcurrentMap<K, V> map = getNewMap();
+                    for (i = 0; i < len; i += 2)
+                    {
+                        map.put((K) entries[i], (V) entries[i + 1]);
+                    }
+                    map.put(key, value);
+                    val = map;
+                }
+                return null;
+            }
+            else if (v instanceof ConcurrentMap)
+            {   // > compactSize (switched while waiting on the lock)
+                ConcurrentMap<K, V> map = (ConcurrentMap<K, V>) v;
+                return onlyIfAbsent ? map.putIfAbsent(key, value) : map.put(key, value);
+            }
+            else if (v == EMPTY_MAP)
+            {   // empty
+                val = new AbstractMap.SimpleImmutableEntry<>(key, value);
+                return null;
+            }
+
+            // size == 1
+            Entry<K, V> entry = (Entry<K, V>) v;
+            if (key.equals(entry.getKey()))
+            {   // Update
+                if (!onlyIfAbsent)
+                {
+                    val = new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), value);
+                }
+                return entry.getValue();
+            }
+            // Switch to Object[]
+            val = new Object[]{entry.getKey(), entry.getValue(), key, value, new int[]{entry.getKey().hashCode(), key.hashCode()}};
+            return null;
+        }
+    }
+
+    public V remove(Object key)
+    {
+        return remove(key, null, true);
+    }
+
+    public boolean remove(Object key, Object value)
+    {
+        Objects.requireNonNull(value);
+        return remove(key, value, false) != null;
+    }
+
+    /**
+     * Remove the entry for the passed in key, if it is mapped to the passed in value (or to any value when
+     * anyValue is true).
+     * @return the removed value, or null if nothing was removed.
+     */
+    private V remove(Object key, Object value, boolean anyValue)
+    {
+        Objects.requireNonNull(key);
+        Object v = val;
+        if (v instanceof ConcurrentMap)
+        {   // > compactSize - no lock needed
+            ConcurrentMap<K, V> map = (ConcurrentMap<K, V>) v;
+            return removeFromMap(map, key, value, anyValue);
+        }
+
+        synchronized (this)
+        {
+            v = val;
+            if (v instanceof Object[])
+            {   // 2 to compactSize
+                Object[] entries = (Object[]) v;
+                int i = indexOf(entries, key);
+                if (i < 0 || !(anyValue || value.equals(entries[i + 1])))
+                {
+                    return null;
+                }
+                V save = (V) entries[i + 1];
+                int len = entries.length - 1;
+                if (len == 4)
+                {   // Down to 1 entry, switch to Map.Entry
+                    int other = i == 0 ? 2 : 0;
+                    val = new AbstractMap.SimpleImmutableEntry<>(entries[other], entries[other + 1]);
+                }
+                else
+                {   // Shrink array
+                    Object[] copy = new Object[len - 1];
+                    System.arraycopy(entries, 0, copy, 0, i);
+                    System.arraycopy(entries, i + 2, copy, i, len - i - 2);
+                    int[] hashes = (int[]) entries[len];
+                    int[] hashCopy = new int[hashes.length - 1];
+                    System.arraycopy(hashes, 0, hashCopy, 0, i / 2);
+                    System.arraycopy(hashes, i / 2 + 1, hashCopy, i / 2, hashCopy.length - i / 2);
+                    copy[len - 2] = hashCopy;
+                    val = copy;
+                }
+                return save;
+            }
+            else if (v instanceof ConcurrentMap)
+            {   // > compactSize (switched while waiting on the lock)
+                return removeFromMap((ConcurrentMap<K, V>) v, key, value, anyValue);
+            }
+            else if (v == EMPTY_MAP)
+            {   // empty
+                return null;
+            }
+
+            // size == 1
+            Entry<K, V> entry = (Entry<K, V>) v;
+            if (key.equals(entry.getKey()) && (anyValue || value.equals(entry.getValue())))
+            {
+                val = EMPTY_MAP;
+                return entry.getValue();
+            }
+            return null;
+        }
+    }
+
+    private V removeFromMap(ConcurrentMap<K, V> map, Object key, Object value, boolean anyValue)
+    {
+        if (anyValue)
+        {
+            return map.remove(key);
+        }
+        return map.remove(key, value) ? (V) value : null;
+    }
+
+    public boolean replace(K key, V oldValue, V newValue)
+    {
+        Objects.requireNonNull(oldValue);
+        return replace(key, oldValue, newValue, false) != null;
+    }
+
+    public V replace(K key, V value)
+    {
+        return replace(key, null, value, true);
+    }
+
+    /**
+     * Replace the value of an existing entry, if it is mapped to oldValue (or to any value when anyValue is true).
+     * @return the replaced value, or null if nothing was replaced.
+     */
+    private V replace(K key, V oldValue, V newValue, boolean anyValue)
+    {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(newValue);
+        Object v = val;
+        if (v instanceof ConcurrentMap)
+        {   // > compactSize - no lock needed
+            return replaceInMap((ConcurrentMap<K, V>) v, key, oldValue, newValue, anyValue);
+        }
+
+        synchronized (this)
+        {
+            v = val;
+            if (v instanceof Object[])
+            {   // 2 to compactSize
+                Object[] entries = (Object[]) v;
+                int i = indexOf(entries, key);
+                if (i < 0 || !(anyValue || oldValue.equals(entries[i + 1])))
+                {
+                    return null;
+                }
+                V save = (V) entries[i + 1];
+                Object[] copy = entries.clone();
+                copy[i + 1] = newValue;
+                val = copy;
+                return save;
+            }
+            else if (v instanceof ConcurrentMap)
+            {   // > compactSize (switched while waiting on the lock)
+                return replaceInMap((ConcurrentMap<K, V>) v, key, oldValue, newValue, anyValue);
+            }
+            else if (v == EMPTY_MAP)
+            {   // empty
+                return null;
+            }
+
+            // size == 1
+            Entry<K, V> entry = (Entry<K, V>) v;
+            if (key.equals(entry.getKey()) && (anyValue || oldValue.equals(entry.getValue())))
+            {
+                val = new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), newValue);
+                return entry.getValue();
+            }
+            return null;
+        }
+    }
+
+    private V replaceInMap(ConcurrentMap<K, V> map, K key, V oldValue, V newValue, boolean anyValue)
+    {
+        if (anyValue)
+        {
+            return map.replace(key, newValue);
+        }
+        return map.replace(key, oldValue, newValue) ? oldValue : null;
+    }
+
+    public void putAll(Map<? extends K, ? extends V> m)
+    {
+        for (Entry<? extends K, ? extends V> entry : m.entrySet())
+        {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (this)
+        {
+            val = EMPTY_MAP;
+        }
+    }
+
+    public int hashCode()
+    {
+        int h = 0;
+        for (Entry<K, V> entry : entrySet())
+        {
+            h += entry.getKey().hashCode() ^ entry.getValue().hashCode();
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof Map))
+        {
+            return false;
+        }
+        Map<?, ?> other = (Map<?, ?>) obj;
+        Object v = val;
+        Object[] entries = snapshot(v);
+        if (entries == null)
+        {   // > compactSize
+            return v.equals(other);
+        }
+        if (entries.length / 2 != other.size())
+        {
+            return false;
+        }
+        for (int i = 0; i < entries.length - 1; i += 2)
+        {
+            if (!entries[i + 1].equals(other.get(entries[i])))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString()
+    {
+        Iterator<Entry<K, V>> i = entrySet().iterator();
+        if (!i.hasNext())
+        {
+            return "{}";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (;;)
+        {
+            Entry<K, V> e = i.next();
+            K key = e.getKey();
+            V value = e.getValue();
+            sb.append(key == this ? "(this Map)" : key);
+            sb.append('=');
+            sb.append(value == this ? "(this Map)" : value);
+            if (!i.hasNext())
+            {
+                return sb.append('}').toString();
+            }
+            sb.append(',').append(' ');
+        }
+    }
+
+    public Set<K> keySet()
+    {
+        return new AbstractSet<K>()
+        {
+            public Iterator<K> iterator()
+            {
+                final Iterator<Entry<K, V>> iter = entrySet().iterator();
+                return new Iterator<K>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public K next() { return iter.next().getKey(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return ConcurrentCompactMap.this.size(); }
+            public void clear() { ConcurrentCompactMap.this.clear(); }
+            public boolean contains(Object o) { return ConcurrentCompactMap.this.containsKey(o); }
+            public boolean remove(Object o) { return ConcurrentCompactMap.this.remove(o) != null; }
+        };
+    }
+
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            public Iterator<V> iterator()
+            {
+                final Iterator<Entry<K, V>> iter = entrySet().iterator();
+                return new Iterator<V>()
+                {
+                    public boolean hasNext() { return iter.hasNext(); }
+                    public V next() { return iter.next().getValue(); }
+                    public void remove() { iter.remove(); }
+                };
+            }
+
+            public int size() { return ConcurrentCompactMap.this.size(); }
+            public void clear() { ConcurrentCompactMap.this.clear(); }
+            public boolean contains(Object o) { return ConcurrentCompactMap.this.containsValue(o); }
+        };
+    }
+
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Entry<K, V>>()
+        {
+            public Iterator<Entry<K, V>> iterator()
+            {
+                Object v = val;
+                final Object[] entries = snapshot(v);
+                if (entries == null)
+                {   // > compactSize - ConcurrentMap's iterator is already weakly consistent
+                    return ((Map<K, V>) v).entrySet().iterator();
+                }
+                return new Iterator<Entry<K, V>>()
+                {
+                    int next = 0;
+                    K lastKey = null;
+
+                    public boolean hasNext() { return next < entries.length - 1; }
+
+                    public Entry<K, V> next()
+                    {
+                        if (next >= entries.length - 1)
+                        {
+                            throw new NoSuchElementException();
+                        }
+                        lastKey = (K) entries[next];
+                        Entry<K, V> entry = new WriteThroughEntry(lastKey, (V) entries[next + 1]);
+                        next += 2;
+                        return entry;
+                    }
+
+                    public void remove()
+                    {
+                        if (lastKey == null)
+                        {   // remove() called on iterator prematurely
+                            throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                        }
+                        ConcurrentCompactMap.this.remove(lastKey);
+                        lastKey = null;
+                    }
+                };
+            }
+
+            public int size() { return ConcurrentCompactMap.this.size(); }
+            public void clear() { ConcurrentCompactMap.this.clear(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                if (entry.getKey() == null || entry.getValue() == null)
+                {
+                    return false;
+                }
+                return entry.getValue().equals(get(entry.getKey()));
+            }
+
+            public boolean remove(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                if (entry.getKey() == null || entry.getValue() == null)
+                {
+                    return false;
+                }
+                return ConcurrentCompactMap.this.remove(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    /**
+     * @return the entries held by v (a value of the member variable) as key, value pairs followed by one trailing
+     * element (an immutable snapshot - do not modify), or null when v is the ConcurrentMap used once
+     * size() {@literal >} compactSize().
+     */
+    private Object[] snapshot(Object v)
+    {
+        if (v instanceof Object[])
+        {   // 2 to compactSize
+            return (Object[]) v;
+        }
+        else if (v instanceof Map)
+        {   // > compactSize
+            return null;
+        }
+        else if (v == EMPTY_MAP)
+        {   // empty
+            return new Object[1];
+        }
+        // size == 1
+        Entry<K, V> entry = (Entry<K, V>) v;
+        return new Object[]{entry.getKey(), entry.getValue(), null};
+    }
+
+    /**
+     * @return index of the key within the Object[] (2 thru compactSize() entries), or -1 if not found.
+     */
+    private static int indexOf(Object[] entries, Object key)
+    {
+        int[] hashes = (int[]) entries[entries.length - 1];
+        int hash = key.hashCode();
+        for (int j = 0; j < hashes.length; j++)
+        {
+            if (hashes[j] == hash)
+            {
+                Object aKey = entries[j * 2];
+                if (aKey == key || aKey.equals(key))
+                {
+                    return j * 2;
+                }
+            }
+        }
+        return -1;
+    }
+
+    protected CompactMap.LogicalValueType getLogicalValueType()
+    {
+        Object v = val;
+        if (v instanceof Object[])
+        {   // 2 to compactSize
+            return CompactMap.LogicalValueType.ARRAY;
+        }
+        else if (v instanceof Map)
+        {   // > compactSize
+            return CompactMap.LogicalValueType.MAP;
+        }
+        else if (v == EMPTY_MAP)
+        {   // empty
+            return CompactMap.LogicalValueType.EMPTY;
+        }
+        // size == 1
+        return CompactMap.LogicalValueType.ENTRY;
+    }
+
+    /**
+     * Map.Entry handed out by the iterators while size() {@literal <}= compactSize().  setValue() writes through to
+     * the outer ConcurrentCompactMap instance.
+     */
+    private class WriteThroughEntry extends AbstractMap.SimpleEntry<K, V>
+    {
+        WriteThroughEntry(K key, V value)
+        {
+            super(key, value);
+        }
+
+        public V setValue(V value)
+        {
+            Objects.requireNonNull(value);
+            V save = super.setValue(value);
+            put(getKey(), value);
+            return save;
+        }
+    }
+
+    /**
+     * @return new empty ConcurrentMap instance to use when size() becomes {@literal >} compactSize().
+     * ConcurrentHashMap by default.  It is used without any additional locking, so it must be thread-safe.
+     */
+    protected ConcurrentMap<K, V> getNewMap()
+    {
+        return new ConcurrentHashMap<>(compactSize() + 1);
+    }
+    protected int compactSize() { return 80; }
+}
@@ -0,0 +1,258 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe counterpart to CompactSet.  It uses only one (1) member variable (of type Object), changing it as the
+ * Set grows: empty sentinel, to an Object[] (1 thru compactSize() items), and finally to the thread-safe Set returned
+ * from getNewSet() (a ConcurrentHashMap backed Set by default).<p></p>
+ *
+ * The member variable is volatile, and the Object[] it points to is never modified after it is published.  A write
+ * (while size() {@literal <}= compactSize()) takes a lock, copies the Object[] with the change applied
+ * (copy-on-write), and publishes the copy.  Readers never lock - contains(), size(), and iteration read the member
+ * variable once and work on that immutable snapshot.  Once size() {@literal >} compactSize(), all operations go
+ * straight to the Set from getNewSet() without taking a lock, and the items are not moved back into an Object[]
+ * when they are removed (clear() does return the Set to empty).<pre>
+ *
+ *     Methods you may want to override:
+ *
+ *     // Thread-safe Set you would like it to use when size() {@literal >} compactSize().  ConcurrentHashMap.newKeySet() is default
+ *     protected Set{@literal <}E{@literal >} getNewSet();
+ *
+ *     // When size() {@literal >} than this amount, the Set returned from getNewSet() is used to store elements.
+ *     protected int compactSize() { return 80; }
+ * </pre>
+ * Iterators are weakly consistent, and Iterator.remove() writes through to this Set.  As with ConcurrentHashMap,
+ * null items are not supported.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class ConcurrentCompactSet<E> extends AbstractSet<E>
+{
+    private static final String EMPTY_SET = "_︿_ψ_☼";
+    private volatile Object val = EMPTY_SET;
+
+    public ConcurrentCompactSet()
+    {
+        if (compactSize() < 2)
+        {
+            throw new IllegalStateException("compactSize() must be >= 2");
+        }
+    }
+
+    public ConcurrentCompactSet(Collection<E> other)
+    {
+        this();
+        addAll(other);
+    }
+
+    public int size()
+    {
+        Object v = val;
+        if (v instanceof Object[])
+        {   // 1 to compactSize
+            return ((Object[]) v).length;
+        }
+        else if (v instanceof Set)
+        {   // > compactSize
+            return ((Set<E>) v).size();
+        }
+        // empty
+        return 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public boolean contains(Object item)
+    {
+        Objects.requireNonNull(item);
+        Object v = val;
+        if (v instanceof Object[])
+        {   // 1 to compactSize
+            return indexOf((Object[]) v, item) >= 0;
+        }
+        else if (v instanceof Set)
+        {   // > compactSize
+            return ((Set<E>) v).contains(item);
+        }
+        // empty
+        return false;
+    }
+
+    public Iterator<E> iterator()
+    {
+        Object v = val;
+        if (v instanceof Set)
+        {   // > compactSize - the thread-safe Set's iterator is already weakly consistent
+            return ((Set<E>) v).iterator();
+        }
+
+        final Object[] items = v instanceof Object[] ? (Object[]) v : new Object[0];
+        return new Iterator<E>()
+        {
+            int next = 0;
+            E last = null;
+
+            public boolean hasNext() { return next < items.length; }
+
+            public E next()
+            {
+                if (next >= items.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                last = (E) items[next++];
+                return last;
+            }
+
+            public void remove()
+            {
+                if (last == null)
+                {   // remove() called on iterator prematurely
+                    throw new IllegalStateException("remove() called on an Iterator before calling next()");
+                }
+                ConcurrentCompactSet.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    public boolean add(E item)
+    {
+        Objects.requireNonNull(item);
+        Object v = val;
+        if (v instanceof Set)
+        {   // > compactSize - no lock needed
+            return ((Set<E>) v).add(item);
+        }
+
+        synchronized (this)
+        {
+            v = val;
+            if (v instanceof Object[])
+            {   // 1 to compactSize
+                Object[] items = (Object[]) v;
+                if (indexOf(items, item) >= 0)
+                {
+                    return false;
+                }
+
+                if (items.length < compactSize())
+                {   // Grow array
+                    Object[] copy = Arrays.copyOf(items, items.length + 1);
+                    copy[items.length] = item;
+                    val = copy;
+                }
+                else
+                {   // Switch to Set - copy items
+                    Set<E> set = getNewSet();
+                    for (Object anItem : items)
+                    {
+                        set.add((E) anItem);
+                    }
+                    set.add(item);
+                    val = set;
+                }
+                return true;
+            }
+            else if (v instanceof Set)
+            {   // > compactSize (switched while waiting on the lock)
+                return ((Set<E>) v).add(item);
+            }
+            // empty
+            val = new Object[]{item};
+            return true;
+        }
+    }
+
+    public boolean remove(Object item)
+    {
+        Objects.requireNonNull(item);
+        Object v = val;
+        if (v instanceof Set)
+        {   // > compactSize - no lock needed
+            return ((Set<E>) v).remove(item);
+        }
+
+        synchronized (this)
+        {
+            v = val;
+            if (v instanceof Object[])
+            {   // 1 to compactSize
+                Object[] items = (Object[]) v;
+                int i = indexOf(items, item);
+                if (i < 0)
+                {
+                    return false;
+                }
+                if (items.length == 1)
+                {   // Down to 0 items
+                    val = EMPTY_SET;
+                }
+                else
+                {   // Shrink array
+                    Object[] copy = new Object[items.length - 1];
+                    System.arraycopy(items, 0, copy, 0, i);
+                    System.arraycopy(items, i + 1, copy, i, copy.length - i);
+                    val = copy;
+                }
+                return true;
+            }
+            else if (v instanceof Set)
+            {   // > compactSize (switched while waiting on the lock)
+                return ((Set<E>) v).remove(item);
+            }
+            // empty
+            return false;
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (this)
+        {
+            val = EMPTY_SET;
+        }
+    }
+
+    private static int indexOf(Object[] items, Object item)
+    {
+        for (int i = 0; i < items.length; i++)
+        {
+            Object anItem = items[i];
+            if (anItem == item || anItem.equals(item))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return new empty Set instance to use when size() becomes {@literal >} compactSize().  A ConcurrentHashMap
+     * backed Set by default.  It is used without any additional locking, so it must be thread-safe.
+     */
+    protected Set<E> getNewSet()
+    {
+        return ConcurrentHashMap.newKeySet(compactSize() + 1);
+    }
+    protected int compactSize() { return 80; }
+}
@@ -5,14 +5,25 @@ import java.math.BigInteger;
 import java.sql.Timestamp;
 import java.text.MessageFormat;
 import java.time.*;
+import java.lang.reflect.Array;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 /**
  * Handy conversion utilities.  Convert from primitive to other primitives, plus support for Date, TimeStamp SQL Date,
@@ -26,6 +37,21 @@ import java.util.concurrent.atomic.AtomicLong;
  *
  * `Converter.convert()` converts using `convertTo*()` methods for primitive wrappers, and
  *      `convert2*()` methods for primitives.
+ *
+ * `Converter.converterFor()` returns a `Function` that converts from one given type to another, the same as
+ *      `Converter.convert()` does, for converting many values of the same type pair.
+ *
+ * `Converter.toIntConverter()`, `toLongConverter()`, and `toDoubleConverter()` return a `ToIntFunction`,
+ *      `ToLongFunction`, or `ToDoubleFunction` converting the same as `convert2int()`, `convert2long()`, and
+ *      `convert2double()`, without boxing the result.
+ *
+ * `Converter.convertAll()`, `toIntArray()`, `toLongArray()`, and `toDoubleArray()` convert an array or Collection of
+ *      values (a column) at once, resolving the conversion once instead of per value.
+ *
+ * `new Converter()` creates an instance whose conversions can be extended: `addConversion()` registers a conversion
+ *      for a type pair (overriding the built-in one, if any), and `ConversionProvider`s listed in META-INF/services
+ *      are added to each new instance.  `convertValue()` and `getConversion()` convert with the instance's
+ *      conversions, falling back on the built-in ones.
  *      
  * @author John DeRegnaucourt (jdereg@gmail.com)
  *         <br>
@@ -61,7 +87,25 @@ public final class Converter
     public static final BigInteger BIG_INTEGER_ZERO = BigInteger.ZERO;
     private static final Map<Class<?>, Work> conversion = new HashMap<>();
     private static final Map<Class<?>, Work> conversionToString = new HashMap<>();
+    private static final Map<Class<?>, Map<Class<?>, Work>> conversionPairs = new HashMap<>();
+    private static final Map<Class<?>, Class<?>> primitiveWrappers = new HashMap<>();
+    private static final long NOT_PARSED = Long.MIN_VALUE;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long GREGORIAN_CUTOVER = -12219292800000L;     // 1582-10-15T00:00, where SimpleDateFormat stops using the Julian calendar
+    private static final long YEAR_10000 = 253402300800000L;            // 10000-01-01T00:00
+    private static final DateTimeFormatter ZONED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+    private static final ClassValue<Map<Class<?>, Function<?, ?>>> converters = new ClassValue<Map<Class<?>, Function<?, ?>>>()
+    {
+        protected Map<Class<?>, Function<?, ?>> computeValue(Class<?> fromType)
+        {
+            return new ConcurrentHashMap<>();
+        }
+    };
     
+    private volatile Map<Class<?>, Map<Class<?>, Function<?, ?>>> registered = Collections.emptyMap();   // toType -> fromType -> conversion
+    private final Map<Class<?>, Map<Class<?>, Function<?, ?>>> resolved = new ConcurrentHashMap<>();         // fromType -> toType -> Function
+
     private interface Work<T>
     {
         Object convert(T fromInstance);
@@ -99,6 +143,15 @@ public final class Converter
         conversion.put(AtomicLong.class, Converter::convertToAtomicLong);
         conversion.put(AtomicBoolean.class, Converter::convertToAtomicBoolean);
 
+        primitiveWrappers.put(long.class, Long.class);
+        primitiveWrappers.put(int.class, Integer.class);
+        primitiveWrappers.put(short.class, Short.class);
+        primitiveWrappers.put(byte.class, Byte.class);
+        primitiveWrappers.put(char.class, Character.class);
+        primitiveWrappers.put(boolean.class, Boolean.class);
+        primitiveWrappers.put(double.class, Double.class);
+        primitiveWrappers.put(float.class, Float.class);
+
         conversionToString.put(String.class, fromInstance -> fromInstance);
         conversionToString.put(BigDecimal.class, fromInstance -> {
             BigDecimal bd = convertToBigDecimal(fromInstance);
@@ -123,27 +176,229 @@ public final class Converter
         conversionToString.put(Double.class, toNoExpString);
         conversionToString.put(Float.class, toNoExpString);
 
-        conversionToString.put(Date.class, fromInstance -> SafeSimpleDateFormat.getDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(fromInstance));
+        conversionToString.put(Date.class, fromInstance -> formatDate(((Date) fromInstance).getTime()));
         conversionToString.put(Character.class, fromInstance -> "" + fromInstance);
-        conversionToString.put(LocalDate.class, fromInstance -> {
-            LocalDate localDate = (LocalDate) fromInstance;
-            return String.format("%04d-%02d-%02d", localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth());
-        });
-        conversionToString.put(LocalDateTime.class, fromInstance -> {
-            LocalDateTime localDateTime = (LocalDateTime) fromInstance;
-            return String.format("%04d-%02d-%02dT%02d:%02d:%02d", localDateTime.getYear(), localDateTime.getMonthValue(), localDateTime.getDayOfMonth(), localDateTime.getHour(), localDateTime.getMinute(), localDateTime.getSecond());
-        });
-        conversionToString.put(ZonedDateTime.class, fromInstance -> {
-            ZonedDateTime zonedDateTime = (ZonedDateTime) fromInstance;
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
-            return zonedDateTime.format(formatter);
-        });
+        conversionToString.put(LocalDate.class, fromInstance -> formatLocalDate((LocalDate) fromInstance));
+        conversionToString.put(LocalDateTime.class, fromInstance -> formatLocalDateTime((LocalDateTime) fromInstance));
+        conversionToString.put(ZonedDateTime.class, fromInstance -> formatZonedDateTime((ZonedDateTime) fromInstance));
+
+        // Conversions for a known source type (see converterFor()), each the branch the convertTo*() method takes
+        // for that source type.  Targets are immutable, so values of the target type are returned as they are.  Where
+        // that branch can fail (e.g. Short.valueOf("1.5"), which convertToShort() retries as a BigDecimal), the pair
+        // is the convertTo*() method itself, so a pair returns and throws exactly what convert() does.
+        Work<?> same = fromInstance -> fromInstance;
+        addPairs(String.class, null, same, String.class);
+
+        addPairs(Long.class, long.class, same, Long.class);
+        addPairs(Long.class, long.class, fromInstance -> stringToLong((String) fromInstance), String.class);
+        addPairs(Long.class, long.class, fromInstance -> ((Number) fromInstance).longValue(), Integer.class, Short.class, Byte.class, Double.class, Float.class, BigInteger.class, BigDecimal.class, AtomicInteger.class, AtomicLong.class);
+        addPairs(Long.class, long.class, fromInstance -> (Boolean) fromInstance ? LONG_ONE : LONG_ZERO, Boolean.class);
+
+        addPairs(Integer.class, int.class, same, Integer.class);
+        addPairs(Integer.class, int.class, fromInstance -> stringToInt((String) fromInstance), String.class);
+        addPairs(Integer.class, int.class, fromInstance -> ((Number) fromInstance).intValue(), Long.class, Short.class, Byte.class, Double.class, Float.class, BigInteger.class, BigDecimal.class, AtomicInteger.class, AtomicLong.class);
+        addPairs(Integer.class, int.class, fromInstance -> (Boolean) fromInstance ? INTEGER_ONE : INTEGER_ZERO, Boolean.class);
+
+        addPairs(Short.class, short.class, same, Short.class);
+        addPairs(Short.class, short.class, Converter::convertToShort, String.class);
+        addPairs(Short.class, short.class, fromInstance -> ((Number) fromInstance).shortValue(), Long.class, Integer.class, Byte.class, Double.class, Float.class, BigInteger.class, BigDecimal.class);
+
+        addPairs(Byte.class, byte.class, same, Byte.class);
+        addPairs(Byte.class, byte.class, Converter::convertToByte, String.class);
+        addPairs(Byte.class, byte.class, fromInstance -> ((Number) fromInstance).byteValue(), Long.class, Integer.class, Short.class, Double.class, Float.class, BigInteger.class, BigDecimal.class);
+
+        addPairs(Double.class, double.class, same, Double.class);
+        addPairs(Double.class, double.class, fromInstance -> stringToDouble((String) fromInstance), String.class);
+        addPairs(Double.class, double.class, fromInstance -> ((Number) fromInstance).doubleValue(), Long.class, Integer.class, Short.class, Byte.class, Float.class, BigInteger.class, BigDecimal.class);
+        addPairs(Double.class, double.class, fromInstance -> (Boolean) fromInstance ? DOUBLE_ONE : DOUBLE_ZERO, Boolean.class);
+
+        addPairs(Float.class, float.class, same, Float.class);
+        addPairs(Float.class, float.class, Converter::convertToFloat, String.class);
+        addPairs(Float.class, float.class, fromInstance -> ((Number) fromInstance).floatValue(), Long.class, Integer.class, Short.class, Byte.class, Double.class, BigInteger.class, BigDecimal.class);
+
+        addPairs(Boolean.class, boolean.class, same, Boolean.class);
+        addPairs(Boolean.class, boolean.class, Converter::convertToBoolean, String.class);
+        addPairs(Boolean.class, boolean.class, fromInstance -> ((Number) fromInstance).longValue() != 0, Long.class, Integer.class, Short.class, Byte.class);
+
+        addPairs(BigDecimal.class, null, same, BigDecimal.class);
+        addPairs(BigDecimal.class, null, Converter::convertToBigDecimal, String.class, Double.class, Float.class);
+        addPairs(BigDecimal.class, null, fromInstance -> new BigDecimal((BigInteger) fromInstance), BigInteger.class);
+        addPairs(BigDecimal.class, null, fromInstance -> new BigDecimal((Long) fromInstance), Long.class);
+        addPairs(BigDecimal.class, null, fromInstance -> new BigDecimal(String.valueOf(fromInstance)), Integer.class, Short.class, Byte.class);
+
+        addPairs(BigInteger.class, null, same, BigInteger.class);
+        addPairs(BigInteger.class, null, Converter::convertToBigInteger, String.class);
+        addPairs(BigInteger.class, null, fromInstance -> ((BigDecimal) fromInstance).toBigInteger(), BigDecimal.class);
+        addPairs(BigInteger.class, null, fromInstance -> BigInteger.valueOf(((Number) fromInstance).longValue()), Long.class, Integer.class, Short.class, Byte.class, Double.class, Float.class);
+
+        addPairs(LocalDate.class, null, same, LocalDate.class);
+        addPairs(LocalDateTime.class, null, same, LocalDateTime.class);
+        addPairs(ZonedDateTime.class, null, same, ZonedDateTime.class);
+        for (Map.Entry<Class<?>, Work> entry : conversionToString.entrySet())
+        {
+            addPairs(String.class, null, entry.getValue(), entry.getKey());
+        }
+    }
+
+    private static void addPairs(Class<?> toType, Class<?> toPrimitive, Work<?> work, Class<?>... fromTypes)
+    {
+        for (Class<?> fromType : fromTypes)
+        {
+            conversionPairs.computeIfAbsent(toType, k -> new HashMap<>()).put(fromType, work);
+            if (toPrimitive != null)
+            {
+                conversionPairs.computeIfAbsent(toPrimitive, k -> new HashMap<>()).put(fromType, work);
+            }
+        }
+    }
+
+    /**
+     * Create a Converter with the built-in conversions (those of the static methods), plus the conversions added by
+     * each ConversionProvider found through ServiceLoader (META-INF/services, loaded with the context class loader).
+     * Add more with addConversion().  A Converter is thread-safe; create it once and share it.
+     */
+    public Converter()
+    {
+        for (ConversionProvider provider : ServiceLoader.load(ConversionProvider.class))
+        {
+            provider.addConversions(this);
+        }
     }
 
     /**
-     * Static utility class.
+     * Service provider interface for adding conversions to each new Converter instance.  List implementations (public,
+     * with a no-arg constructor) in META-INF/services/com.cedarsoftware.util.Converter$ConversionProvider.
      */
-    private Converter() { }
+    public interface ConversionProvider
+    {
+        void addConversions(Converter converter);
+    }
+
+    /**
+     * Register a conversion from fromType (and its subclasses and implementations, when nothing more specific is
+     * registered) to toType for this Converter instance.  It takes precedence over the built-in conversion for the
+     * same type pair.  The conversion is never called with null - null converts as convert(null, toType) does for
+     * built-in types, and to null for other types.
+     * <pre>
+     *     Converter converter = new Converter();
+     *     converter.addConversion(String.class, UUID.class, UUID::fromString);
+     *     converter.addConversion(Enum.class, String.class, Enum::name);
+     *     UUID id = converter.convertValue(cell, UUID.class);
+     * </pre>
+     * @return the conversion previously registered for the type pair, or null if there was none.
+     */
+    public <S, T> Function<? super S, ? extends T> addConversion(Class<S> fromType, Class<T> toType, Function<? super S, ? extends T> conversion)
+    {
+        if (fromType == null || toType == null || conversion == null)
+        {
+            throw new IllegalArgumentException("Types and conversion cannot be null in Converter.addConversion(fromType, toType, conversion)");
+        }
+        synchronized (resolved)
+        {   // Copy on write, so lookups never lock
+            Map<Class<?>, Map<Class<?>, Function<?, ?>>> copy = new HashMap<>(registered);
+            Map<Class<?>, Function<?, ?>> byFrom = new HashMap<>(copy.getOrDefault(toType, Collections.emptyMap()));
+            Function<? super S, ? extends T> save = (Function<? super S, ? extends T>) byFrom.put(wrapper(fromType), conversion);
+            copy.put(toType, byFrom);
+            registered = copy;
+            resolved.clear();
+            return save;
+        }
+    }
+
+    /**
+     * Convert the passed in value to toType using this instance's conversions: a registered conversion for the
+     * value's type (or a superclass or interface of it) when there is one, otherwise the same as the static
+     * convert(fromInstance, toType).
+     * @throws IllegalArgumentException if there is no conversion to toType for the value, or the conversion fails.
+     */
+    public <T> T convertValue(Object fromInstance, Class<T> toType)
+    {
+        if (toType == null)
+        {
+            throw new IllegalArgumentException("Type cannot be null in Converter.convertValue(value, type)");
+        }
+        Class<Object> fromType = (Class<Object>) (fromInstance == null ? Void.class : fromInstance.getClass());
+        return getConversion(fromType, toType).apply(fromInstance);
+    }
+
+    /**
+     * Return a Function converting instances of fromType to toType with this instance's conversions, as
+     * convertValue() does.  The Function is resolved once per type pair and cached in a lock-free lookup, so
+     * registered conversions run at the same speed as built-in ones (see converterFor()).
+     * @throws IllegalArgumentException if either type is null, or there is no conversion from fromType to toType.
+     */
+    public <S, T> Function<S, T> getConversion(Class<S> fromType, Class<T> toType)
+    {
+        if (fromType == null || toType == null)
+        {
+            throw new IllegalArgumentException("Types cannot be null in Converter.getConversion(fromType, toType)");
+        }
+        Map<Class<?>, Function<?, ?>> byTo = resolved.get(fromType);
+        if (byTo == null)
+        {
+            byTo = resolved.computeIfAbsent(fromType, k -> new ConcurrentHashMap<>());
+        }
+        Function<?, ?> function = byTo.get(toType);
+        if (function == null)
+        {
+            function = byTo.computeIfAbsent(toType, type -> resolveRegistered(fromType, type));
+        }
+        return (Function<S, T>) function;
+    }
+
+    private Function<?, ?> resolveRegistered(Class<?> fromType, Class<?> toType)
+    {
+        Map<Class<?>, Function<?, ?>> byFrom = registered.get(toType);
+        final Function<Object, Object> custom = byFrom == null ? null : (Function<Object, Object>) findConversion(byFrom, wrapper(fromType));
+        if (custom == null)
+        {
+            if (conversion.containsKey(toType))
+            {
+                return converterFor(fromType, toType);
+            }
+            if (byFrom == null || fromType != Void.class)
+            {   // (convertValue() resolves null as Void, which converts to null for any registered toType)
+                throw new IllegalArgumentException("Unsupported conversion from '" + fromType.getName() + "' to '" + toType.getName() + "'");
+            }
+        }
+
+        Work work = conversion.get(toType);
+        final Object nullValue = work == null ? null : work.convert(null);
+        return fromInstance -> fromInstance == null ? nullValue : custom.apply(fromInstance);
+    }
+
+    /**
+     * @return the conversion registered for type, else for its nearest superclass, else for one of its interfaces
+     * (searched from the class down to its superclasses), or null if there is none.
+     */
+    private static Function<?, ?> findConversion(Map<Class<?>, Function<?, ?>> byFrom, Class<?> type)
+    {
+        for (Class<?> c = type; c != null; c = c.getSuperclass())
+        {
+            Function<?, ?> function = byFrom.get(c);
+            if (function != null)
+            {
+                return function;
+            }
+        }
+        for (Class<?> c = type; c != null; c = c.getSuperclass())
+        {
+            for (Class<?> anInterface : c.getInterfaces())
+            {
+                Function<?, ?> function = findConversion(byFrom, anInterface);
+                if (function != null)
+                {
+                    return function;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Class<?> wrapper(Class<?> type)
+    {
+        return type.isPrimitive() ? primitiveWrappers.get(type) : type;
+    }
 
     /**
      * Turn the passed in value to the class indicated.  This will allow, for
@@ -183,6 +438,315 @@ public final class Converter
         throw new IllegalArgumentException("Unsupported type '" + toType.getName() + "' for conversion");
     }
 
+    /**
+     * Return a Function that converts instances of fromType to toType, with the same results (and exceptions) as
+     * convert(fromInstance, toType).  The conversion is resolved once for the type pair, so converting many values
+     * of the same type pair skips convert()'s lookup and the instanceof checks on each value.  Functions are cached
+     * per type pair, so repeated calls return the same Function.
+     * <pre>
+     *     Function&lt;String, Long&gt; toLong = Converter.converterFor(String.class, Long.class);
+     *     for (String cell : column)
+     *     {
+     *         Long x = toLong.apply(cell);
+     *         ...
+     *     }
+     * </pre>
+     * @param fromType Class of the values that will be passed to the Function (null is also accepted).  Instances
+     * of other types are converted too, through convert(), but without the speed-up.
+     * @param toType Class which indicates the targeted (final) data type, as for convert().
+     * @return Function converting from fromType to toType.
+     * @throws IllegalArgumentException if either type is null, or toType is not supported by convert().
+     */
+    public static <S, T> Function<S, T> converterFor(Class<S> fromType, Class<T> toType)
+    {
+        if (fromType == null || toType == null)
+        {
+            throw new IllegalArgumentException("Types cannot be null in Converter.converterFor(fromType, toType)");
+        }
+        return (Function<S, T>) converters.get(fromType).computeIfAbsent(toType, type -> resolve(fromType, type));
+    }
+
+    private static Function<?, ?> resolve(Class<?> fromType, Class<?> toType)
+    {
+        final Work work = conversion.get(toType);
+        if (work == null)
+        {
+            throw new IllegalArgumentException("Unsupported type '" + toType.getName() + "' for conversion");
+        }
+
+        Map<Class<?>, Work> pairs = conversionPairs.get(toType);
+        final Work pair = pairs == null ? null : pairs.get(fromType);
+        if (pair == null)
+        {   // No conversion specific to the source type - same as convert()
+            return work::convert;
+        }
+
+        final Object nullValue = work.convert(null);
+        return fromInstance -> {
+            if (fromInstance == null)
+            {
+                return nullValue;
+            }
+            if (fromInstance.getClass() == fromType)
+            {
+                return pair.convert(fromInstance);
+            }
+            // Not a fromType instance (a subclass may convert differently, e.g. to a String) - same as convert()
+            return work.convert(fromInstance);
+        };
+    }
+
+    /**
+     * Return a ToIntFunction that converts instances of fromType the same as convert2int() (null returns 0), without
+     * boxing.  String (and any other CharSequence, such as a StringBuilder or CharBuffer) and Number sources convert
+     * without allocating, for the usual forms of numbers (see parseLong()).  Resolve it once and reuse it for many
+     * values.
+     * <pre>
+     *     ToIntFunction&lt;String&gt; toInt = Converter.toIntConverter(String.class);
+     *     int[] ids = new int[cells.length];
+     *     for (int i = 0; i &lt; cells.length; i++)
+     *     {
+     *         ids[i] = toInt.applyAsInt(cells[i]);
+     *     }
+     * </pre>
+     * @param fromType Class of the values that will be passed to the function.  Instances of other types are
+     * converted too, through convert2int().
+     */
+    public static <S> ToIntFunction<S> toIntConverter(Class<S> fromType)
+    {
+        if (fromType != null && CharSequence.class.isAssignableFrom(fromType))
+        {
+            return fromInstance -> fromInstance instanceof CharSequence ? stringToInt((CharSequence) fromInstance) : convert2int(fromInstance);
+        }
+        else if (fromType != null && Number.class.isAssignableFrom(fromType))
+        {
+            return fromInstance -> fromInstance instanceof Number ? ((Number) fromInstance).intValue() : convert2int(fromInstance);
+        }
+        return Converter::convert2int;
+    }
+
+    /**
+     * Return a ToLongFunction that converts instances of fromType the same as convert2long() (null returns 0),
+     * without boxing.  CharSequence and Number sources convert without allocating, for the usual forms of numbers.
+     * @param fromType Class of the values that will be passed to the function.  Instances of other types are
+     * converted too, through convert2long().
+     * @see #toIntConverter(Class)
+     */
+    public static <S> ToLongFunction<S> toLongConverter(Class<S> fromType)
+    {
+        if (fromType != null && CharSequence.class.isAssignableFrom(fromType))
+        {
+            return fromInstance -> fromInstance instanceof CharSequence ? stringToLong((CharSequence) fromInstance) : convert2long(fromInstance);
+        }
+        else if (fromType != null && Number.class.isAssignableFrom(fromType))
+        {
+            return fromInstance -> fromInstance instanceof Number ? ((Number) fromInstance).longValue() : convert2long(fromInstance);
+        }
+        return Converter::convert2long;
+    }
+
+    /**
+     * Return a ToDoubleFunction that converts instances of fromType the same as convert2double() (null returns 0.0),
+     * without boxing.  CharSequence and Number sources convert without allocating, for the usual forms of numbers
+     * (see parseDouble()).
+     * @param fromType Class of the values that will be passed to the function.  Instances of other types are
+     * converted too, through convert2double().
+     * @see #toIntConverter(Class)
+     */
+    public static <S> ToDoubleFunction<S> toDoubleConverter(Class<S> fromType)
+    {
+        if (fromType != null && CharSequence.class.isAssignableFrom(fromType))
+        {
+            return fromInstance -> fromInstance instanceof CharSequence ? stringToDouble((CharSequence) fromInstance) : convert2double(fromInstance);
+        }
+        else if (fromType != null && Number.class.isAssignableFrom(fromType))
+        {
+            return fromInstance -> fromInstance instanceof Number ? ((Number) fromInstance).doubleValue() : convert2double(fromInstance);
+        }
+        return Converter::convert2double;
+    }
+
+    /**
+     * Convert each of the passed in values to toType, the same as convert(value, toType).  The conversion is
+     * resolved once for the array's component type (or, for an Object[], the type of its first non-null value), see
+     * converterFor(), rather than looked up per value.
+     * @param values values to convert (a column).  Values of other types than the first are converted too.
+     * @param toType Class which indicates the targeted data type, as for convert().  For a primitive type, the
+     * result holds its wrappers (long.class returns a Long[], with 0 for null values).
+     * @return new array of toType holding the converted values, in the same order.
+     * @throws IllegalArgumentException if toType is not supported, or a value cannot be converted.
+     */
+    public static <T> T[] convertAll(Object[] values, Class<T> toType)
+    {
+        return convertAll(values, toType, false);
+    }
+
+    /**
+     * Same as convertAll(values, toType), except when parallel is true, the values are converted with
+     * Arrays.parallelSetAll() (the common ForkJoinPool) - worth it for large arrays (tens of thousands of values).
+     */
+    public static <T> T[] convertAll(Object[] values, Class<T> toType, boolean parallel)
+    {
+        final Function<Object, T> converter = converterFor((Class<Object>) elementType(values), toType);
+        Class<?> resultType = toType.isPrimitive() ? primitiveWrappers.get(toType) : toType;
+        final T[] result = (T[]) Array.newInstance(resultType, values.length);
+        if (parallel)
+        {
+            Arrays.parallelSetAll(result, i -> converter.apply(values[i]));
+        }
+        else
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                result[i] = converter.apply(values[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert each of the passed in values to an int, the same as convert2int() (null is 0), into an int[], without
+     * boxing.  The conversion is resolved once (see toIntConverter()) for the array's component type (or, for an
+     * Object[], the type of its first non-null value).
+     */
+    public static int[] toIntArray(Object[] values)
+    {
+        return toIntArray(values, false);
+    }
+
+    /**
+     * Same as toIntArray(values), except when parallel is true, the values are converted with
+     * Arrays.parallelSetAll() (the common ForkJoinPool) - worth it for large arrays (tens of thousands of values).
+     */
+    public static int[] toIntArray(Object[] values, boolean parallel)
+    {
+        final ToIntFunction<Object> converter = toIntConverter((Class<Object>) elementType(values));
+        final int[] result = new int[values.length];
+        if (parallel)
+        {
+            Arrays.parallelSetAll(result, i -> converter.applyAsInt(values[i]));
+        }
+        else
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                result[i] = converter.applyAsInt(values[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert each of the passed in values to an int, the same as convert2int() (null is 0), into an int[] (in
+     * iteration order).  See toIntArray(Object[]).
+     */
+    public static int[] toIntArray(Collection<?> values)
+    {
+        return toIntArray(values.toArray(), false);
+    }
+
+    /**
+     * Convert each of the passed in values to a long, the same as convert2long() (null is 0), into a long[], without
+     * boxing.  The conversion is resolved once (see toLongConverter()) for the array's component type (or, for an
+     * Object[], the type of its first non-null value).
+     */
+    public static long[] toLongArray(Object[] values)
+    {
+        return toLongArray(values, false);
+    }
+
+    /**
+     * Same as toLongArray(values), except when parallel is true, the values are converted with
+     * Arrays.parallelSetAll() (the common ForkJoinPool) - worth it for large arrays (tens of thousands of values).
+     */
+    public static long[] toLongArray(Object[] values, boolean parallel)
+    {
+        final ToLongFunction<Object> converter = toLongConverter((Class<Object>) elementType(values));
+        final long[] result = new long[values.length];
+        if (parallel)
+        {
+            Arrays.parallelSetAll(result, i -> converter.applyAsLong(values[i]));
+        }
+        else
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                result[i] = converter.applyAsLong(values[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert each of the passed in values to a long, the same as convert2long() (null is 0), into a long[] (in
+     * iteration order).  See toLongArray(Object[]).
+     */
+    public static long[] toLongArray(Collection<?> values)
+    {
+        return toLongArray(values.toArray(), false);
+    }
+
+    /**
+     * Convert each of the passed in values to a double, the same as convert2double() (null is 0.0), into a double[],
+     * without boxing.  The conversion is resolved once (see toDoubleConverter()) for the array's component type (or,
+     * for an Object[], the type of its first non-null value).
+     */
+    public static double[] toDoubleArray(Object[] values)
+    {
+        return toDoubleArray(values, false);
+    }
+
+    /**
+     * Same as toDoubleArray(values), except when parallel is true, the values are converted with
+     * Arrays.parallelSetAll() (the common ForkJoinPool) - worth it for large arrays (tens of thousands of values).
+     */
+    public static double[] toDoubleArray(Object[] values, boolean parallel)
+    {
+        final ToDoubleFunction<Object> converter = toDoubleConverter((Class<Object>) elementType(values));
+        final double[] result = new double[values.length];
+        if (parallel)
+        {
+            Arrays.parallelSetAll(result, i -> converter.applyAsDouble(values[i]));
+        }
+        else
+        {
+            for (int i = 0; i < values.length; i++)
+            {
+                result[i] = converter.applyAsDouble(values[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert each of the passed in values to a double, the same as convert2double() (null is 0.0), into a double[]
+     * (in iteration order).  See toDoubleArray(Object[]).
+     */
+    public static double[] toDoubleArray(Collection<?> values)
+    {
+        return toDoubleArray(values.toArray(), false);
+    }
+
+    /**
+     * @return the type to resolve a batch conversion for: the array's component type, or for an Object[], the type
+     * of its first non-null value.
+     */
+    private static Class<?> elementType(Object[] values)
+    {
+        Class<?> type = values.getClass().getComponentType();
+        if (type == Object.class)
+        {
+            for (Object value : values)
+            {
+                if (value != null)
+                {
+                    return value.getClass();
+                }
+            }
+        }
+        return type;
+    }
+
     /**
      * Convert from the passed in instance to a String.  If null is passed in, this method will return "".
      * Possible inputs are any primitive or primitive wrapper, Date (returns ISO-DATE format: 2020-04-10T12:15:47),
@@ -218,7 +782,7 @@ public final class Converter
         }
         else if (fromInstance instanceof Calendar)
         {   // Done this way (as opposed to putting a closure in conversionToString) because Calendar.class is not == to GregorianCalendar.class
-            return SafeSimpleDateFormat.getDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(((Calendar)fromInstance).getTime());
+            return formatDate(((Calendar)fromInstance).getTimeInMillis());
         }
         else if (fromInstance instanceof Enum)
         {
@@ -1037,13 +1601,35 @@ public final class Converter
      */
     public static int convert2int(Object fromInstance)
     {
-        if (fromInstance == null)
+        if (fromInstance instanceof String)
+        {
+            return stringToInt((String) fromInstance);
+        }
+        else if (fromInstance instanceof Number)
+        {
+            return ((Number) fromInstance).intValue();
+        }
+        else if (fromInstance == null)
         {
             return 0;
         }
         return convertToInteger(fromInstance);
     }
 
+    /**
+     * String (or other CharSequence) to int, without boxing (convertToInteger() handles the values parseLong() does
+     * not).
+     */
+    private static int stringToInt(CharSequence fromInstance)
+    {
+        long value = parseLong(fromInstance);
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+        {
+            return (int) value;
+        }
+        return convertToInteger(fromInstance.toString());
+    }
+
     /**
      * Convert from the passed in instance to an Integer.  If null is passed in, null is returned. Possible inputs
      * are String, all primitive/primitive wrappers, boolean, AtomicBoolean, (false=0, true=1), and all Atomic*s.
@@ -1062,6 +1648,11 @@ public final class Converter
             }
             else if (fromInstance instanceof String)
             {
+                long parsed = parseLong((String) fromInstance);
+                if (parsed >= Integer.MIN_VALUE && parsed <= Integer.MAX_VALUE)
+                {
+                    return (int) parsed;
+                }
                 if (StringUtilities.isEmpty((String)fromInstance))
                 {
                     return INTEGER_ZERO;
@@ -1109,13 +1700,35 @@ public final class Converter
      */
     public static long convert2long(Object fromInstance)
     {
-        if (fromInstance == null)
+        if (fromInstance instanceof String)
         {
-            return LONG_ZERO;
+            return stringToLong((String) fromInstance);
+        }
+        else if (fromInstance instanceof Number)
+        {
+            return ((Number) fromInstance).longValue();
+        }
+        else if (fromInstance == null)
+        {
+            return 0;
         }
         return convertToLong(fromInstance);
     }
 
+    /**
+     * String (or other CharSequence) to long, without boxing (convertToLong() handles the values parseLong() does
+     * not).
+     */
+    private static long stringToLong(CharSequence fromInstance)
+    {
+        long value = parseLong(fromInstance);
+        if (value != NOT_PARSED)
+        {
+            return value;
+        }
+        return convertToLong(fromInstance.toString());
+    }
+
     /**
      * Convert from the passed in instance to a Long.  If null is passed in, null is returned. Possible inputs
      * are String, all primitive/primitive wrappers, boolean, AtomicBoolean, (false=0, true=1), and all Atomic*s.  In
@@ -1132,6 +1745,11 @@ public final class Converter
             }
             else if (fromInstance instanceof String)
             {
+                long parsed = parseLong((String) fromInstance);
+                if (parsed != NOT_PARSED)
+                {
+                    return parsed;
+                }
                 if ("".equals(fromInstance))
                 {
                     return LONG_ZERO;
@@ -1250,13 +1868,35 @@ public final class Converter
      */
     public static double convert2double(Object fromInstance)
     {
-        if (fromInstance == null)
+        if (fromInstance instanceof String)
+        {
+            return stringToDouble((String) fromInstance);
+        }
+        else if (fromInstance instanceof Number)
         {
-            return DOUBLE_ZERO;
+            return ((Number) fromInstance).doubleValue();
+        }
+        else if (fromInstance == null)
+        {
+            return 0;
         }
         return convertToDouble(fromInstance);
     }
 
+    /**
+     * String (or other CharSequence) to double, without boxing (convertToDouble() handles the values parseDouble()
+     * does not).
+     */
+    private static double stringToDouble(CharSequence fromInstance)
+    {
+        double value = parseDouble(fromInstance);
+        if (value == value)
+        {   // not NaN
+            return value;
+        }
+        return convertToDouble(fromInstance.toString());
+    }
+
     /**
      * Convert from the passed in instance to a Double.  If null is passed in, null is returned. Possible inputs
      * are String, all primitive/primitive wrappers, boolean, AtomicBoolean, (false=0, true=1), and all Atomic*s.
@@ -1267,6 +1907,11 @@ public final class Converter
         {
             if (fromInstance instanceof String)
             {
+                double parsed = parseDouble((String) fromInstance);
+                if (parsed == parsed)
+                {   // not NaN
+                    return parsed;
+                }
                 if (StringUtilities.isEmpty((String)fromInstance))
                 {
                     return DOUBLE_ZERO;
@@ -1525,6 +2170,307 @@ public final class Converter
         return null;
     }
 
+    /**
+     * Parse a long out of the chars the way convertToLong() converts a String, without allocating: surrounding
+     * whitespace (as trim()) is ignored, an optional '+' or '-', then ASCII digits with an optional fraction ("12.",
+     * ".5", "-3.75"), which is truncated toward zero as BigDecimal.longValue() does.  Blank returns 0.
+     * @return the value, or NOT_PARSED for anything else (exponents, overflow, other chars), which the caller hands
+     * to the general conversion.  Long.MIN_VALUE itself is NOT_PARSED, so it takes the general conversion too.
+     */
+    private static long parseLong(CharSequence s)
+    {
+        int i = 0;
+        int end = s.length();
+        while (i < end && s.charAt(i) <= ' ')
+        {
+            i++;
+        }
+        while (end > i && s.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+        if (i == end)
+        {
+            return 0;
+        }
+
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+')
+        {
+            negative = c == '-';
+            i++;
+        }
+
+        long value = 0;     // accumulated negative, as Long.parseLong() does (Long.MIN_VALUE has no positive)
+        boolean digits = false;
+        for (; i < end; i++)
+        {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                break;
+            }
+            if (value < Long.MIN_VALUE / 10)
+            {
+                return NOT_PARSED;
+            }
+            value = value * 10 - digit;
+            if (value > 0)
+            {   // wrapped around
+                return NOT_PARSED;
+            }
+            digits = true;
+        }
+        if (i < end && s.charAt(i) == '.')
+        {
+            for (i++; i < end; i++)
+            {
+                c = s.charAt(i);
+                if (c < '0' || c > '9')
+                {
+                    return NOT_PARSED;
+                }
+                digits = true;
+            }
+        }
+        if (i != end || !digits)
+        {
+            return NOT_PARSED;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Parse a double out of the chars the way Double.parseDouble() would parse the trimmed String, without
+     * allocating: an optional '+' or '-', ASCII digits with an optional fraction, and an optional exponent ("e-5").
+     * Blank returns 0.0.  Only values that convert exactly are computed here - up to 15 significant digits (exact in
+     * a double) scaled by a power of ten up to 10^22 (also exact), so the one rounding is the division or
+     * multiplication, which makes the result the correctly rounded one (Clinger's fast path).
+     * @return the value, or NaN for anything else (more digits, larger exponents, "NaN", "Infinity", hex, a 'd'
+     * suffix...), which the caller hands to the general conversion.
+     */
+    private static double parseDouble(CharSequence s)
+    {
+        int i = 0;
+        int end = s.length();
+        while (i < end && s.charAt(i) <= ' ')
+        {
+            i++;
+        }
+        while (end > i && s.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+        if (i == end)
+        {
+            return 0;
+        }
+
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+')
+        {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significant = 0;    // digits in mantissa, not counting leading zeros
+        int scale = 0;          // power of ten the mantissa is multiplied by
+        boolean digits = false;
+        boolean fraction = false;
+        for (; i < end; i++)
+        {
+            c = s.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                if (mantissa != 0 || c != '0')
+                {
+                    if (++significant > 15)
+                    {
+                        return Double.NaN;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (fraction)
+                {
+                    scale--;
+                }
+                digits = true;
+            }
+            else if (c == '.' && !fraction)
+            {
+                fraction = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+        if (!digits)
+        {
+            return Double.NaN;
+        }
+
+        if (i < end && (c == 'e' || c == 'E'))
+        {
+            boolean negativeExponent = false;
+            if (++i < end && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+            {
+                negativeExponent = s.charAt(i++) == '-';
+            }
+            if (i == end)
+            {
+                return Double.NaN;
+            }
+            int exponent = 0;
+            for (; i < end; i++)
+            {
+                int digit = s.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || exponent > 1000)
+                {
+                    return Double.NaN;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (i != end)
+        {
+            return Double.NaN;
+        }
+
+        double value;
+        if (mantissa == 0)
+        {
+            value = 0;
+        }
+        else if (scale < 0 && scale >= -22)
+        {
+            value = mantissa / POWERS_OF_TEN[-scale];
+        }
+        else if (scale >= 0 && scale <= 22)
+        {
+            value = mantissa * POWERS_OF_TEN[scale];
+        }
+        else
+        {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Format a Date (or Calendar) as yyyy-MM-dd'T'HH:mm:ss in the default TimeZone, the same as SimpleDateFormat,
+     * writing the digits straight into a char[].  Times before the Gregorian cutover (Julian calendar) or after the
+     * year 9999 go through SafeSimpleDateFormat.
+     */
+    private static String formatDate(long millis)
+    {
+        long local = millis + TimeZone.getDefault().getOffset(millis);
+        if (local < GREGORIAN_CUTOVER || local >= YEAR_10000)
+        {
+            return SafeSimpleDateFormat.getDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date(millis));
+        }
+
+        // Days since 0000-03-01 (a 400 year era starts on March 1st, so the leap day ends each year)
+        int days = (int) Math.floorDiv(local, 86400000L) + 719468;
+        int secondOfDay = (int) (Math.floorMod(local, 86400000L) / 1000);
+        int era = days / 146097;
+        int dayOfEra = days - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        int month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+        int year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+
+        char[] buf = new char[19];
+        writeDate(buf, year, month, day);
+        writeTime(buf, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60);
+        return new String(buf);
+    }
+
+    private static String formatLocalDate(LocalDate date)
+    {
+        int year = date.getYear();
+        if (year < 0 || year > 9999)
+        {
+            return String.format("%04d-%02d-%02d", year, date.getMonthValue(), date.getDayOfMonth());
+        }
+        char[] buf = new char[10];
+        writeDate(buf, year, date.getMonthValue(), date.getDayOfMonth());
+        return new String(buf);
+    }
+
+    private static String formatLocalDateTime(LocalDateTime dateTime)
+    {
+        int year = dateTime.getYear();
+        if (year < 0 || year > 9999)
+        {
+            return String.format("%04d-%02d-%02dT%02d:%02d:%02d", year, dateTime.getMonthValue(), dateTime.getDayOfMonth(), dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+        }
+        char[] buf = new char[19];
+        writeDate(buf, year, dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        writeTime(buf, dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+        return new String(buf);
+    }
+
+    /**
+     * Format as yyyy-MM-dd'T'HH:mm:ssZ (offset as +HHMM), the same as ZONED_FORMAT.  Years outside 1 - 9999 (which
+     * ZONED_FORMAT writes as year-of-era, with a sign past 9999) and offsets with seconds go through ZONED_FORMAT.
+     */
+    private static String formatZonedDateTime(ZonedDateTime dateTime)
+    {
+        int year = dateTime.getYear();
+        int offset = dateTime.getOffset().getTotalSeconds();
+        if (year < 1 || year > 9999 || offset % 60 != 0)
+        {
+            return dateTime.format(ZONED_FORMAT);
+        }
+        char[] buf = new char[24];
+        writeDate(buf, year, dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        writeTime(buf, dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+        buf[19] = offset < 0 ? '-' : '+';
+        offset = Math.abs(offset) / 60;
+        write2(buf, 20, offset / 60);
+        write2(buf, 22, offset % 60);
+        return new String(buf);
+    }
+
+    /**
+     * Write yyyy-MM-dd at the start of buf (year must be 0 - 9999).
+     */
+    private static void writeDate(char[] buf, int year, int month, int day)
+    {
+        write2(buf, 0, year / 100);
+        write2(buf, 2, year % 100);
+        buf[4] = '-';
+        write2(buf, 5, month);
+        buf[7] = '-';
+        write2(buf, 8, day);
+    }
+
+    /**
+     * Write 'T'HH:mm:ss following the date written by writeDate().
+     */
+    private static void writeTime(char[] buf, int hour, int minute, int second)
+    {
+        buf[10] = 'T';
+        write2(buf, 11, hour);
+        buf[13] = ':';
+        write2(buf, 14, minute);
+        buf[16] = ':';
+        write2(buf, 17, second);
+    }
+
+    private static void write2(char[] buf, int pos, int value)
+    {
+        buf[pos] = (char) ('0' + value / 10);
+        buf[pos + 1] = (char) ('0' + value % 10);
+    }
+
     private static String nope(Object fromInstance, String targetType)
     {
         if (fromInstance == null)
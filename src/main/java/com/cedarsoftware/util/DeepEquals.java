@@ -1,14 +1,18 @@
 package com.cedarsoftware.util;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import static com.cedarsoftware.util.Converter.convert2BigDecimal;
 import static com.cedarsoftware.util.Converter.convert2boolean;
-import static com.cedarsoftware.util.ReflectionUtils.getClassLoaderName;
 
 /**
  * Test two objects for equivalence with a 'deep' comparison.  This will traverse
@@ -57,8 +61,24 @@ public class DeepEquals
 
     public static final String IGNORE_CUSTOM_EQUALS = "ignoreCustomEquals";
     public static final String ALLOW_STRINGS_TO_MATCH_NUMBERS = "stringsCanMatchNumbers";
-    private static final Map<String, Boolean> _customEquals = new ConcurrentHashMap<>();
-    private static final Map<String, Boolean> _customHash = new ConcurrentHashMap<>();
+    public static final String PARALLEL_COMPARE = "parallelCompare";
+    public static final String IMMUTABLE_TYPES = "immutableTypes";
+    private static final ClassValue<Boolean> _customEquals = new ClassValue<Boolean>()
+    {
+        protected Boolean computeValue(Class<?> c)
+        {
+            return declaresMethod(c, "equals", Object.class);
+        }
+    };
+    private static final ClassValue<Boolean> _customHash = new ClassValue<Boolean>()
+    {
+        protected Boolean computeValue(Class<?> c)
+        {
+            return declaresMethod(c, "hashCode");
+        }
+    };
+    private static final Map<IdentityKey, Integer> _hashCodes = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Object> _hashCodeQueue = new ReferenceQueue<>();
     private static final double doubleEplison = 1e-15;
     private static final double floatEplison = 1e-6;
     private static final Set<Class> prims = new HashSet<>();
@@ -79,11 +99,38 @@ public class DeepEquals
     {
         private final Object _key1;
         private final Object _key2;
+        private final boolean _tracked;         // keeps its path (differences are being reported)
+        private final ItemsToCompare _parent;
+        private final char _kind;               // '.' field name, '[' index or Map key of a value, '{' Set member or Map key
+        private final Object _step;
 
         private ItemsToCompare(Object k1, Object k2)
+        {
+            this(k1, k2, false, null, '.', null);
+        }
+
+        private ItemsToCompare(Object k1, Object k2, boolean tracked, ItemsToCompare parent, char kind, Object step)
         {
             _key1 = k1;
             _key2 = k2;
+            _tracked = tracked;
+            _parent = parent;
+            _kind = kind;
+            _step = step;
+        }
+
+        /**
+         * @return the items found within these items at the passed in step (kind: see _kind), with their path if
+         * this has its path.
+         */
+        private ItemsToCompare child(Object k1, Object k2, char kind, Object step)
+        {
+            return _tracked ? new ItemsToCompare(k1, k2, true, this, kind, step) : new ItemsToCompare(k1, k2);
+        }
+
+        private ItemsToCompare element(Object k1, Object k2, int index)
+        {
+            return _tracked ? new ItemsToCompare(k1, k2, true, this, '[', index) : new ItemsToCompare(k1, k2);
         }
 
         public boolean equals(Object other)
@@ -98,10 +145,8 @@ public class DeepEquals
         }
 
         public int hashCode()
-        {
-            int h1 = _key1 != null ? _key1.hashCode() : 0;
-            int h2 = _key2 != null ? _key2.hashCode() : 0;
-            return h1 + h2;
+        {   // Identity, as equals() is: many pairs of equal values (boxed field values) would collide on hashCode()
+            return System.identityHashCode(_key1) * 31 + System.identityHashCode(_key2);
         }
     }
 
@@ -159,7 +204,10 @@ public class DeepEquals
      *                It is a black-list of classes that will not be compared
      *                using .equals() even if the classes have a custom .equals() method
      *                present.  If it is and empty set, then no custom .equals() methods
-     *                will be called.
+     *                will be called.  If PARALLEL_COMPARE is true, the graph is compared on
+     *                the common ForkJoinPool, with the items of large arrays, Collections,
+     *                and Maps split across threads (worth it for graphs of many thousands
+     *                of objects).
      *
      * @return true if a is equivalent to b, false otherwise.  Equivalent means that
      * all field values of both subgraphs are the same, either at the field level
@@ -168,221 +216,444 @@ public class DeepEquals
      */
     public static boolean deepEquals(Object a, Object b, Map<?, ?> options)
     {
-        Set<ItemsToCompare> visited = new HashSet<>();
-        Deque<ItemsToCompare> stack = new LinkedList<>();
         Set<String> ignoreCustomEquals = (Set<String>) options.get(IGNORE_CUSTOM_EQUALS);
         final boolean allowStringsToMatchNumbers = convert2boolean(options.get(ALLOW_STRINGS_TO_MATCH_NUMBERS));
 
+        if (convert2boolean(options.get(PARALLEL_COMPARE)))
+        {
+            Deque<ItemsToCompare> stack = new ArrayDeque<>();
+            stack.addFirst(new ItemsToCompare(a, b));
+            Set<ItemsToCompare> visited = ConcurrentHashMap.newKeySet();
+            return ForkJoinPool.commonPool().invoke(new Comparison(stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers, new AtomicBoolean()));
+        }
+
+        Deque<ItemsToCompare> stack = new LinkedList<>();
         stack.addFirst(new ItemsToCompare(a, b));
+        return compare(stack, new HashSet<>(), ignoreCustomEquals, allowStringsToMatchNumbers, null, null);
+    }
+
+    /**
+     * Compare two objects with a 'deep' comparison, as deepEquals(a, b, options) does, passing each difference
+     * found to the differences callback, in a single pass.  A difference is a pair of items (reached by the same
+     * path from a and b) that are not equal on their own - different values, types, or sizes - whose contents are
+     * not compared further.  Return false from the callback to stop comparing (for example, after the first N
+     * differences); nothing is collected beyond what the callback keeps.  The PARALLEL_COMPARE option is ignored.
+     * <pre>
+     *     DeepEquals.deepEquals(snapshot1, snapshot2, options, difference -&gt; {
+     *         log.info(difference.getPath() + ": " + difference.getLeft() + " -&gt; " + difference.getRight());
+     *         return ++count[0] &lt; 100;
+     *     });
+     * </pre>
+     * @param differences receives each Difference, returning true to continue comparing, false to stop.
+     * @return true if a is equivalent to b (no difference found), false otherwise.
+     */
+    public static boolean deepEquals(Object a, Object b, Map<?, ?> options, Predicate<Difference> differences)
+    {
+        Set<String> ignoreCustomEquals = (Set<String>) options.get(IGNORE_CUSTOM_EQUALS);
+        final boolean allowStringsToMatchNumbers = convert2boolean(options.get(ALLOW_STRINGS_TO_MATCH_NUMBERS));
+        Deque<ItemsToCompare> stack = new LinkedList<>();
+        stack.addFirst(new ItemsToCompare(a, b, true, null, '.', null));
+        return compare(stack, new HashSet<>(), ignoreCustomEquals, allowStringsToMatchNumbers, null, differences);
+    }
+
+    /**
+     * @return the first max differences between a and b (see deepEquals(a, b, options, differences)), empty if
+     * a is equivalent to b.
+     */
+    public static List<Difference> getDifferences(Object a, Object b, int max)
+    {
+        final List<Difference> differences = new ArrayList<>();
+        if (max > 0)
+        {
+            deepEquals(a, b, new HashMap(), difference -> {
+                differences.add(difference);
+                return differences.size() < max;
+            });
+        }
+        return differences;
+    }
 
+    /**
+     * Compare the pairs of items on the stack, pushing the pairs found within them (fields, elements, entries),
+     * until the stack is empty (equal) or a difference is found.
+     * @param task the Comparison running this compare in parallel mode, else null.
+     * @param differences callback for each difference found, else null (stop at the first difference).
+     */
+    private static boolean compare(Deque<ItemsToCompare> stack, Set<ItemsToCompare> visited, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers, Comparison task, Predicate<Difference> differences)
+    {
+        boolean equal = true;
         while (!stack.isEmpty())
         {
+            if (task != null && !task.proceed())
+            {   // Another task found a difference
+                return false;
+            }
             ItemsToCompare itemsToCompare = stack.removeFirst();
             visited.add(itemsToCompare);
 
-            final Object key1 = itemsToCompare._key1;
-            final Object key2 = itemsToCompare._key2;
-            if (key1 == key2)
-            {   // Same instance is always equal to itself.
-                continue;
+            final int size = stack.size();
+            if (!comparePair(itemsToCompare, stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers))
+            {
+                equal = false;
+                while (stack.size() > size)
+                {   // A Set or Map can fail after pushing some of its contents - the contents of a difference are
+                    // not compared (nor reported)
+                    stack.removeFirst();
+                }
+                if (differences == null || !differences.test(new Difference(itemsToCompare)))
+                {
+                    return false;
+                }
             }
+        }
+        return equal;
+    }
 
-            if (key1 == null || key2 == null)
-            {   // If either one is null, they are not equal (both can't be null, due to above comparison).
-                return false;
-            }
+    /**
+     * Compare one pair of items, pushing the pairs within them (fields, elements, entries) onto the stack.
+     * @return false if the pair is for certain not equal (without looking at the pairs within it).  Pairs pushed
+     * before that was found are left on the stack, for the caller to drop.
+     */
+    private static boolean comparePair(ItemsToCompare itemsToCompare, Deque<ItemsToCompare> stack, Set<ItemsToCompare> visited, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers)
+    {
+        final Object key1 = itemsToCompare._key1;
+        final Object key2 = itemsToCompare._key2;
+        if (key1 == key2)
+        {   // Same instance is always equal to itself.
+            return true;
+        }
 
-            if (key1 instanceof Number && key2 instanceof Number && compareNumbers((Number)key1, (Number)key2))
-            {
-                continue;
-            }
+        if (key1 == null || key2 == null)
+        {   // If either one is null, they are not equal (both can't be null, due to above comparison).
+            return false;
+        }
+
+        if (key1 instanceof Number && key2 instanceof Number && compareNumbers((Number)key1, (Number)key2))
+        {
+            return true;
+        }
 
-            if (key1 instanceof Number || key2 instanceof Number)
-            {   // If one is a Number and the other one is not, then optionally compare them as strings, otherwise return false
-                if (allowStringsToMatchNumbers)
+        if (key1 instanceof Number || key2 instanceof Number)
+        {   // If one is a Number and the other one is not, then optionally compare them as strings, otherwise return false
+            if (allowStringsToMatchNumbers)
+            {
+                try
                 {
-                    try
+                    if (key1 instanceof String && compareNumbers(convert2BigDecimal(key1), (Number)key2))
                     {
-                        if (key1 instanceof String && compareNumbers(convert2BigDecimal(key1), (Number)key2))
-                        {
-                            continue;
-                        }
-                        else if (key2 instanceof String && compareNumbers((Number)key1, convert2BigDecimal(key2)))
-                        {
-                            continue;
-                        }
+                        return true;
+                    }
+                    else if (key2 instanceof String && compareNumbers((Number)key1, convert2BigDecimal(key2)))
+                    {
+                        return true;
                     }
-                    catch (Exception e) { }
                 }
-                return false;
+                catch (Exception e) { }
             }
+            return false;
+        }
 
-            Class key1Class = key1.getClass();
+        Class key1Class = key1.getClass();
 
-            if (key1Class.isPrimitive() || prims.contains(key1Class) || key1 instanceof String || key1 instanceof Date || key1 instanceof Class)
+        if (key1Class.isPrimitive() || prims.contains(key1Class) || key1 instanceof String || key1 instanceof Date || key1 instanceof Class)
+        {
+            if (!key1.equals(key2))
             {
-                if (!key1.equals(key2))
-                {
-                    return false;
-                }
-                continue;   // Nothing further to push on the stack
-            }
-            
-            if (key1 instanceof Collection)
-            {   // If Collections, they both must be Collection
-                if (!(key2 instanceof Collection))
-                {
-                    return false;
-                }
+                return false;
             }
-            else if (key2 instanceof Collection)
-            {   // They both must be Collection
+            return true;   // Nothing further to push on the stack
+        }
+        
+        if (key1 instanceof Collection)
+        {   // If Collections, they both must be Collection
+            if (!(key2 instanceof Collection))
+            {
                 return false;
             }
+        }
+        else if (key2 instanceof Collection)
+        {   // They both must be Collection
+            return false;
+        }
 
-            if (key1 instanceof SortedSet)
+        if (key1 instanceof SortedSet)
+        {
+            if (!(key2 instanceof SortedSet))
             {
-                if (!(key2 instanceof SortedSet))
-                {
-                    return false;
-                }
+                return false;
             }
-            else if (key2 instanceof SortedSet)
+        }
+        else if (key2 instanceof SortedSet)
+        {
+            return false;
+        }
+
+        if (key1 instanceof SortedMap)
+        {
+            if (!(key2 instanceof SortedMap))
             {
                 return false;
             }
+        }
+        else if (key2 instanceof SortedMap)
+        {
+            return false;
+        }
 
-            if (key1 instanceof SortedMap)
+        if (key1 instanceof Map)
+        {
+            if (!(key2 instanceof Map))
             {
-                if (!(key2 instanceof SortedMap))
-                {
-                    return false;
-                }
+                return false;
             }
-            else if (key2 instanceof SortedMap)
+        }
+        else if (key2 instanceof Map)
+        {
+            return false;
+        }
+
+        if (!isContainerType(key1) && !isContainerType(key2) && !key1Class.equals(key2.getClass()))
+        {   // Must be same class
+            return false;
+        }
+
+        // Handle all [] types.  In order to be equal, the arrays must be the same
+        // length, be of the same type, be in the same order, and all elements within
+        // the array must be deeply equivalent.
+        if (key1Class.isArray())
+        {
+            if (!compareArrays(key1, key2, itemsToCompare, stack, visited))
             {
                 return false;
             }
+            return true;
+        }
 
-            if (key1 instanceof Map)
+        // Special handle SortedSets because they are fast to compare because their
+        // elements must be in the same order to be equivalent Sets.
+        if (key1 instanceof SortedSet)
+        {
+            if (!compareOrderedCollection((Collection) key1, (Collection) key2, itemsToCompare, stack, visited))
             {
-                if (!(key2 instanceof Map))
-                {
-                    return false;
-                }
+                return false;
             }
-            else if (key2 instanceof Map)
+            return true;
+        }
+
+        // Handled unordered Sets.  This is a slightly more expensive comparison because order cannot
+        // be assumed, the items are sorted by fingerprint, so the comparison runs in O(N log N) time.
+        if (key1 instanceof Set)
+        {
+            if (!compareUnorderedCollection((Collection) key1, (Collection) key2, itemsToCompare, stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers))
             {
                 return false;
             }
+            return true;
+        }
 
-            if (!isContainerType(key1) && !isContainerType(key2) && !key1Class.equals(key2.getClass()))
-            {   // Must be same class
+        // Check any Collection that is not a Set.  In these cases, element order
+        // matters, therefore this comparison is faster than using unordered comparison.
+        if (key1 instanceof Collection)
+        {
+            if (!compareOrderedCollection((Collection) key1, (Collection) key2, itemsToCompare, stack, visited))
+            {
                 return false;
             }
+            return true;
+        }
 
-            // Handle all [] types.  In order to be equal, the arrays must be the same
-            // length, be of the same type, be in the same order, and all elements within
-            // the array must be deeply equivalent.
-            if (key1Class.isArray())
+        // Compare two SortedMaps.  This takes advantage of the fact that these
+        // Maps can be compared in O(N) time due to their ordering.
+        if (key1 instanceof SortedMap)
+        {
+            if (!compareSortedMap((SortedMap) key1, (SortedMap) key2, itemsToCompare, stack, visited))
             {
-                if (!compareArrays(key1, key2, stack, visited))
-                {
-                    return false;
-                }
-                continue;
+                return false;
             }
+            return true;
+        }
 
-            // Special handle SortedSets because they are fast to compare because their
-            // elements must be in the same order to be equivalent Sets.
-            if (key1 instanceof SortedSet)
+        // Compare two Unordered Maps. This is a slightly more expensive comparison because
+        // order cannot be assumed, therefore the entries are sorted by the fingerprint of their
+        // keys, so the comparison runs in O(N log N) time.
+        if (key1 instanceof Map)
+        {
+            if (!compareUnorderedMap((Map) key1, (Map) key2, itemsToCompare, stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers))
             {
-                if (!compareOrderedCollection((Collection) key1, (Collection) key2, stack, visited))
-                {
-                    return false;
-                }
-                continue;
+                return false;
             }
+            return true;
+        }
 
-            // Handled unordered Sets.  This is a slightly more expensive comparison because order cannot
-            // be assumed, a temporary Map must be created, however the comparison still runs in O(N) time.
-            if (key1 instanceof Set)
+        // If there is a custom equals ... AND
+        // the caller has not specified any classes to skip ... OR
+        // the caller has specified come classes to ignore and this one is not in the list ... THEN
+        // compare using the custom equals.
+        if (hasCustomEquals(key1Class))
+        {
+            if (ignoreCustomEquals == null || (ignoreCustomEquals.size() > 0 && !ignoreCustomEquals.contains(key1Class)))
             {
-                if (!compareUnorderedCollection((Collection) key1, (Collection) key2, stack, visited))
+                if (!key1.equals(key2))
                 {
                     return false;
                 }
-                continue;
+                return true;
             }
+        }
 
-            // Check any Collection that is not a Set.  In these cases, element order
-            // matters, therefore this comparison is faster than using unordered comparison.
-            if (key1 instanceof Collection)
+        for (ReflectionUtils.FieldAccessor accessor : ReflectionUtils.getFieldAccessors(key1Class))
+        {
+            ItemsToCompare dk = itemsToCompare.child(accessor.get(key1), accessor.get(key2), '.', accessor.getField().getName());
+            if (!visited.contains(dk))
             {
-                if (!compareOrderedCollection((Collection) key1, (Collection) key2, stack, visited))
-                {
-                    return false;
-                }
-                continue;
+                stack.addFirst(dk);
             }
+        }
+        return true;
+    }
+
+    /**
+     * Parallel mode of deepEquals(): compares the pairs on its stack on a ForkJoinPool thread.  Whenever the stack
+     * grows past SPLIT_SIZE pairs (the elements of a large array, List, Set, or Map entry set were pushed), the pairs
+     * beyond SPLIT_SIZE / 2 are forked off to new Comparisons, in chunks of SPLIT_SIZE / 2.  All of them share the
+     * (concurrent) visited Set, so cycles are still detected, and a flag that stops them all at the first difference.
+     */
+    private static final class Comparison extends RecursiveTask<Boolean>
+    {
+        private static final int SPLIT_SIZE = 2048;
+        private final Deque<ItemsToCompare> stack;
+        private final Set<ItemsToCompare> visited;
+        private final Set<String> ignoreCustomEquals;
+        private final boolean allowStringsToMatchNumbers;
+        private final AtomicBoolean different;
+        private final List<Comparison> forked = new ArrayList<>();
+
+        private Comparison(Deque<ItemsToCompare> stack, Set<ItemsToCompare> visited, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers, AtomicBoolean different)
+        {
+            this.stack = stack;
+            this.visited = visited;
+            this.ignoreCustomEquals = ignoreCustomEquals;
+            this.allowStringsToMatchNumbers = allowStringsToMatchNumbers;
+            this.different = different;
+        }
 
-            // Compare two SortedMaps.  This takes advantage of the fact that these
-            // Maps can be compared in O(N) time due to their ordering.
-            if (key1 instanceof SortedMap)
+        protected Boolean compute()
+        {
+            boolean equal = compare(stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers, this, null);
+            if (!equal)
             {
-                if (!compareSortedMap((SortedMap) key1, (SortedMap) key2, stack, visited))
-                {
-                    return false;
-                }
-                continue;
+                different.set(true);
+            }
+            for (Comparison task : forked)
+            {   // After a difference, these stop at their next pair
+                equal &= task.join();
             }
+            return equal;
+        }
 
-            // Compare two Unordered Maps. This is a slightly more expensive comparison because
-            // order cannot be assumed, therefore a temporary Map must be created, however the
-            // comparison still runs in O(N) time.
-            if (key1 instanceof Map)
+        /**
+         * Fork off the pairs past SPLIT_SIZE / 2 from the bottom of the stack, when it has grown past SPLIT_SIZE.
+         * @return false if a difference has been found (by any task), true to keep comparing.
+         */
+        private boolean proceed()
+        {
+            if (different.get())
             {
-                if (!compareUnorderedMap((Map) key1, (Map) key2, stack, visited))
-                {
-                    return false;
-                }
-                continue;
+                return false;
             }
-
-            // If there is a custom equals ... AND
-            // the caller has not specified any classes to skip ... OR
-            // the caller has specified come classes to ignore and this one is not in the list ... THEN
-            // compare using the custom equals.
-            if (hasCustomEquals(key1Class))
+            while (stack.size() > SPLIT_SIZE)
             {
-                if (ignoreCustomEquals == null || (ignoreCustomEquals.size() > 0 && !ignoreCustomEquals.contains(key1Class)))
+                Deque<ItemsToCompare> part = new ArrayDeque<>();
+                while (part.size() < SPLIT_SIZE / 2)
                 {
-                    if (!key1.equals(key2))
-                    {
-                        return false;
-                    }
-                    continue;
+                    part.addFirst(stack.removeLast());
                 }
+                Comparison task = new Comparison(part, visited, ignoreCustomEquals, allowStringsToMatchNumbers, different);
+                task.fork();
+                forked.add(task);
             }
+            return true;
+        }
+    }
 
-            Collection<Field> fields = ReflectionUtils.getDeepDeclaredFields(key1Class);
+    /**
+     * A difference found by deepEquals(a, b, options, differences): the two values found at the same path from a
+     * and b.
+     */
+    public static final class Difference
+    {
+        private final ItemsToCompare items;
+
+        private Difference(ItemsToCompare items)
+        {
+            this.items = items;
+        }
 
-            for (Field field : fields)
+        /**
+         * @return path from the compared objects to the values, e.g. "orders[3].lines{Widget}.price": field names
+         * (dot separated), [index] for array, List, and other ordered Collection elements, [key] for Map values,
+         * {key} for Map keys and Set members.  Empty for the compared objects themselves.
+         */
+        public String getPath()
+        {
+            Deque<ItemsToCompare> steps = new ArrayDeque<>();
+            for (ItemsToCompare step = items; step._parent != null; step = step._parent)
             {
-                try
+                steps.addFirst(step);
+            }
+            StringBuilder path = new StringBuilder();
+            for (ItemsToCompare step : steps)
+            {
+                if (step._kind == '.')
                 {
-                    ItemsToCompare dk = new ItemsToCompare(field.get(key1), field.get(key2));
-                    if (!visited.contains(dk))
+                    if (path.length() > 0)
                     {
-                        stack.addFirst(dk);
+                        path.append('.');
                     }
+                    path.append(step._step);
+                }
+                else
+                {
+                    path.append(step._kind).append(describe(step._step)).append(step._kind == '[' ? ']' : '}');
                 }
-                catch (Exception ignored)
-                { }
             }
+            return path.toString();
         }
 
-        return true;
+        /**
+         * @return value found in the first object (a) at getPath().
+         */
+        public Object getLeft()
+        {
+            return items._key1;
+        }
+
+        /**
+         * @return value found in the second object (b) at getPath().
+         */
+        public Object getRight()
+        {
+            return items._key2;
+        }
+
+        public String toString()
+        {
+            return getPath() + ": " + describe(getLeft()) + " != " + describe(getRight());
+        }
+    }
+
+    /**
+     * @return the value as a String for simple values (Strings, Numbers, Dates, ...), else its class name (to not
+     * call toString() on an object graph).
+     */
+    private static String describe(Object o)
+    {
+        if (o == null || o instanceof String || o instanceof Number || o instanceof Boolean || o instanceof Character ||
+                o instanceof Date || o instanceof Enum || o instanceof Class)
+        {
+            return String.valueOf(o);
+        }
+        return o.getClass().getName();
     }
 
     public static boolean isContainerType(Object o)
@@ -395,11 +666,12 @@ public class DeepEquals
      * elements within the arrays must be deeply equal in order to return true.
      * @param array1 [] type (Object[], String[], etc.)
      * @param array2 [] type (Object[], String[], etc.)
+     * @param pair the items being compared (parent of the pushed items)
      * @param stack add items to compare to the Stack (Stack versus recursion)
      * @param visited Set of objects already compared (prevents cycles)
      * @return true if the two arrays are the same length and contain deeply equivalent items.
      */
-    private static boolean compareArrays(Object array1, Object array2, Deque stack, Set visited)
+    private static boolean compareArrays(Object array1, Object array2, ItemsToCompare pair, Deque stack, Set visited)
     {
         // Same instance check already performed...
 
@@ -411,7 +683,7 @@ public class DeepEquals
 
         for (int i = 0; i < len; i++)
         {
-            ItemsToCompare dk = new ItemsToCompare(Array.get(array1, i), Array.get(array2, i));
+            ItemsToCompare dk = pair.element(Array.get(array1, i), Array.get(array2, i), i);
             if (!visited.contains(dk))
             {   // push contents for further comparison
                 stack.addFirst(dk);
@@ -424,12 +696,13 @@ public class DeepEquals
      * Deeply compare two Collections that must be same length and in same order.
      * @param col1 First collection of items to compare
      * @param col2 Second collection of items to compare
+     * @param pair the items being compared (parent of the pushed items)
      * @param stack add items to compare to the Stack (Stack versus recursion)
      * @param visited Set of objects already compared (prevents cycles)
      * value of 'true' indicates that the Collections may be equal, and the sets
      * items will be added to the Stack for further comparison.
      */
-    private static boolean compareOrderedCollection(Collection col1, Collection col2, Deque stack, Set visited)
+    private static boolean compareOrderedCollection(Collection col1, Collection col2, ItemsToCompare pair, Deque stack, Set visited)
     {
         // Same instance check already performed...
 
@@ -440,10 +713,11 @@ public class DeepEquals
 
         Iterator i1 = col1.iterator();
         Iterator i2 = col2.iterator();
+        int index = 0;
 
         while (i1.hasNext())
         {
-            ItemsToCompare dk = new ItemsToCompare(i1.next(), i2.next());
+            ItemsToCompare dk = pair.element(i1.next(), i2.next(), index++);
             if (!visited.contains(dk))
             {   // push contents for further comparison
                 stack.addFirst(dk);
@@ -455,20 +729,26 @@ public class DeepEquals
     /**
      * Deeply compare the two sets referenced by ItemsToCompare.  This method attempts
      * to quickly determine inequality by length, then if lengths match, it
-     * places one collection into a temporary Map by deepHashCode(), so that it
-     * can walk the other collection and look for each item in the map, which
-     * runs in O(N) time, rather than an O(N^2) lookup that would occur if each
-     * item from collection one was scanned for in collection two.
+     * sorts the items of both collections by their fingerprint() and walks the
+     * two sorted arrays side by side, which runs in O(N log N) time, rather
+     * than an O(N^2) lookup that would occur if each item from collection one
+     * was scanned for in collection two.  An item whose fingerprint is unique
+     * is paired with the other collection's item at the same position.  Items
+     * sharing a fingerprint (items that are deeply equal, or collisions) are
+     * matched up by isSameMultiset().
      * @param col1 First collection of items to compare
      * @param col2 Second collection of items to compare
+     * @param pair the items being compared (parent of the pushed items)
      * @param stack add items to compare to the Stack (Stack versus recursion)
      * @param visited Set containing items that have already been compared,
      * so as to prevent cycles.
+     * @param ignoreCustomEquals the IGNORE_CUSTOM_EQUALS option of the compare
+     * @param allowStringsToMatchNumbers the ALLOW_STRINGS_TO_MATCH_NUMBERS option of the compare
      * @return boolean false if the Collections are for certain not equals. A
      * value of 'true' indicates that the Collections may be equal, and the sets
      * items will be added to the Stack for further comparison.
      */
-    private static boolean compareUnorderedCollection(Collection col1, Collection col2, Deque stack, Set visited)
+    private static boolean compareUnorderedCollection(Collection col1, Collection col2, ItemsToCompare pair, Deque stack, Set visited, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers)
     {
         // Same instance check already performed...
 
@@ -477,43 +757,30 @@ public class DeepEquals
             return false;
         }
 
-        Map<Integer, Collection> fastLookup = new HashMap<>();
-        for (Object o : col2)
-        {
-            int hash = deepHashCode(o);
-            Collection items = fastLookup.get(hash);
-            if (items == null)
-            {
-                items = new ArrayList();
-                fastLookup.put(hash, items);
-            }
-            items.add(o);
-        }
-
-        for (Object o : col1)
+        Keyed[] items1 = Keyed.sorted(col1);
+        Keyed[] items2 = Keyed.sorted(col2);
+        int i = 0;
+        while (i < items1.length)
         {
-            Collection other = fastLookup.get(deepHashCode(o));
-            if (other == null || other.isEmpty())
-            {   // fail fast: item not even found in other Collection, no need to continue.
+            int end = Keyed.runEnd(items1, i);
+            if (items1[i].key != items2[i].key || Keyed.runEnd(items2, i) != end)
+            {   // fail fast: item not found (as many times) in other Collection, no need to continue.
                 return false;
             }
 
-            if (other.size() == 1)
-            {   // no hash collision, items must be equivalent or deepEquals is false
-                ItemsToCompare dk = new ItemsToCompare(o, other.iterator().next());
+            if (end - i == 1)
+            {   // no other item with this fingerprint, items must be equivalent or deepEquals is false
+                ItemsToCompare dk = pair.child(items1[i].item, items2[i].item, '{', items1[i].item);
                 if (!visited.contains(dk))
                 {   // Place items on 'stack' for future equality comparison.
                     stack.addFirst(dk);
                 }
             }
-            else
-            {   // hash collision: try all collided items against the current item (if 1 equals, we are good - remove it
-                // from collision list, making further comparisons faster)
-                if (!isContained(o, other))
-                {
-                    return false;
-                }
+            else if (!isSameMultiset(items1, items2, i, end, pair, stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers))
+            {
+                return false;
             }
+            i = end;
         }
         return true;
     }
@@ -523,12 +790,13 @@ public class DeepEquals
      * taking advantage of the fact that the Maps are SortedMaps.
      * @param map1 SortedMap one
      * @param map2 SortedMap two
+     * @param pair the items being compared (parent of the pushed items)
      * @param stack add items to compare to the Stack (Stack versus recursion)
      * @param visited Set containing items that have already been compared, to prevent cycles.
      * @return false if the Maps are for certain not equals.  'true' indicates that 'on the surface' the maps
      * are equal, however, it will place the contents of the Maps on the stack for further comparisons.
      */
-    private static boolean compareSortedMap(SortedMap map1, SortedMap map2, Deque stack, Set visited)
+    private static boolean compareSortedMap(SortedMap map1, SortedMap map2, ItemsToCompare pair, Deque stack, Set visited)
     {
         // Same instance check already performed...
 
@@ -546,13 +814,13 @@ public class DeepEquals
             Map.Entry entry2 = (Map.Entry)i2.next();
 
             // Must split the Key and Value so that Map.Entry's equals() method is not used.
-            ItemsToCompare dk = new ItemsToCompare(entry1.getKey(), entry2.getKey());
+            ItemsToCompare dk = pair.child(entry1.getKey(), entry2.getKey(), '{', entry1.getKey());
             if (!visited.contains(dk))
             {   // Push Keys for further comparison
                 stack.addFirst(dk);
             }
 
-            dk = new ItemsToCompare(entry1.getValue(), entry2.getValue());
+            dk = pair.child(entry1.getValue(), entry2.getValue(), '[', entry1.getKey());
             if (!visited.contains(dk))
             {   // Push values for further comparison
                 stack.addFirst(dk);
@@ -563,15 +831,20 @@ public class DeepEquals
 
     /**
      * Deeply compare two Map instances.  After quick short-circuit tests, this method
-     * uses a temporary Map so that this method can run in O(N) time.
+     * sorts the entries of both Maps by the fingerprint() of their keys, and walks
+     * them side by side, as compareUnorderedCollection() does, so that this method
+     * runs in O(N log N) time.
      * @param map1 Map one
      * @param map2 Map two
+     * @param pair the items being compared (parent of the pushed items)
      * @param stack add items to compare to the Stack (Stack versus recursion)
      * @param visited Set containing items that have already been compared, to prevent cycles.
+     * @param ignoreCustomEquals the IGNORE_CUSTOM_EQUALS option of the compare
+     * @param allowStringsToMatchNumbers the ALLOW_STRINGS_TO_MATCH_NUMBERS option of the compare
      * @return false if the Maps are for certain not equals.  'true' indicates that 'on the surface' the maps
      * are equal, however, it will place the contents of the Maps on the stack for further comparisons.
      */
-    private static boolean compareUnorderedMap(Map map1, Map map2, Deque stack, Set visited)
+    private static boolean compareUnorderedMap(Map map1, Map map2, ItemsToCompare pair, Deque stack, Set visited, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers)
     {
         // Same instance check already performed...
 
@@ -580,78 +853,430 @@ public class DeepEquals
             return false;
         }
 
-        Map<Integer, Collection<Map.Entry>> fastLookup = new HashMap<>();
-
-        for (Map.Entry entry : (Set<Map.Entry>)map2.entrySet())
-        {
-            int hash = deepHashCode(entry.getKey());
-            Collection items = fastLookup.get(hash);
-            if (items == null)
-            {
-                items = new ArrayList();
-                fastLookup.put(hash, items);
-            }
-
-            // Use only key and value, not specific Map.Entry type for equality check.
-            // This ensures that Maps that might use different Map.Entry types still compare correctly.
-            items.add(new AbstractMap.SimpleEntry(entry.getKey(), entry.getValue()));
-        }
-
-        for (Map.Entry entry : (Set<Map.Entry>)map1.entrySet())
+        Keyed[] entries1 = Keyed.sorted(map1);
+        Keyed[] entries2 = Keyed.sorted(map2);
+        int i = 0;
+        while (i < entries1.length)
         {
-            Collection<Map.Entry> other = fastLookup.get(deepHashCode(entry.getKey()));
-            if (other == null || other.isEmpty())
+            int end = Keyed.runEnd(entries1, i);
+            if (entries1[i].key != entries2[i].key || Keyed.runEnd(entries2, i) != end)
             {
                 return false;
             }
 
-            if (other.size() == 1)
+            if (end - i == 1)
             {
-                Map.Entry entry2 = other.iterator().next();
-                ItemsToCompare dk = new ItemsToCompare(entry.getKey(), entry2.getKey());
+                Keyed entry1 = entries1[i];
+                Keyed entry2 = entries2[i];
+                ItemsToCompare dk = pair.child(entry1.item, entry2.item, '{', entry1.item);
                 if (!visited.contains(dk))
                 {   // Push keys for further comparison
                     stack.addFirst(dk);
                 }
 
-                dk = new ItemsToCompare(entry.getValue(), entry2.getValue());
+                dk = pair.child(entry1.value, entry2.value, '[', entry1.item);
                 if (!visited.contains(dk))
                 {   // Push values for further comparison
                     stack.addFirst(dk);
                 }
             }
+            else if (!isSameMultiset(entries1, entries2, i, end, pair, stack, visited, ignoreCustomEquals, allowStringsToMatchNumbers))
+            {
+                return false;
+            }
+            i = end;
+        }
+
+        return true;
+    }
+
+    /**
+     * Match up the items (or Map entries) from start to end of two sorted arrays, all with the same fingerprint.
+     * Items that deepEquals() compares with equals() (see comparesWithEquals()) are matched up through a HashMap
+     * of the second side's items, in O(N) (O(N log N) when their hashCodes collide too, as the HashMap bins of
+     * Comparable keys are trees).  A Map entry matched this way has its values pushed on the stack for comparison.
+     * The remaining items of the second side are grouped into distinct (deepEquals) items with a count each, then
+     * each remaining item on the first side takes one from the count of the distinct item it equals.  That takes
+     * O(N * D) deepEquals calls for D distinct items.
+     * @return false if both sides for certain do not hold the same items, as many times each.
+     */
+    private static boolean isSameMultiset(Keyed[] items1, Keyed[] items2, int start, int end, ItemsToCompare pair, Deque stack, Set visited, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers)
+    {
+        Map<Object, Map<Object, List<Keyed>>> byGroup = new HashMap<>();
+        List<Keyed> rest2 = new ArrayList<>();
+        for (int i = start; i < end; i++)
+        {
+            Keyed item2 = items2[i];
+            Object group = equalsGroup(item2.item, ignoreCustomEquals, allowStringsToMatchNumbers);
+            if (group == null)
+            {
+                rest2.add(item2);
+            }
             else
-            {   // hash collision: try all collided items against the current item (if 1 equals, we are good - remove it
-                // from collision list, making further comparisons faster)
-                if (!isContained(new AbstractMap.SimpleEntry(entry.getKey(), entry.getValue()), other))
-                {
-                    return false;
+            {
+                byGroup.computeIfAbsent(group, g -> new HashMap<>()).computeIfAbsent(item2.item, k -> new ArrayList<>()).add(item2);
+            }
+        }
+
+        List<Keyed> rest1 = new ArrayList<>();
+        for (int i = start; i < end; i++)
+        {
+            Keyed item1 = items1[i];
+            Object group = equalsGroup(item1.item, ignoreCustomEquals, allowStringsToMatchNumbers);
+            if (group == null)
+            {
+                rest1.add(item1);
+                continue;
+            }
+            Map<Object, List<Keyed>> byItem = byGroup.get(group);
+            List<Keyed> equal = byItem == null ? null : byItem.get(item1.item);
+            if (equal == null || equal.isEmpty())
+            {
+                return false;
+            }
+            Keyed item2 = equal.remove(equal.size() - 1);
+            if (item1.entry)
+            {
+                ItemsToCompare dk = pair.child(item1.value, item2.value, '[', item1.item);
+                if (!visited.contains(dk))
+                {   // Push values for further comparison
+                    stack.addFirst(dk);
                 }
             }
         }
 
+        if (rest1.size() != rest2.size())
+        {   // Items left over on one side
+            return false;
+        }
+        if (rest1.isEmpty())
+        {
+            return true;
+        }
+
+        Map<String, Object> options = new HashMap<>();
+        options.put(IGNORE_CUSTOM_EQUALS, ignoreCustomEquals);
+        options.put(ALLOW_STRINGS_TO_MATCH_NUMBERS, allowStringsToMatchNumbers);
+        List<Object> distinct = new ArrayList<>();
+        int[] counts = new int[rest2.size()];
+        for (Keyed item2 : rest2)
+        {
+            Object item = item2.compared();
+            int d = indexOf(distinct, item, null, options);
+            if (d < 0)
+            {
+                d = distinct.size();
+                distinct.add(item);
+            }
+            counts[d]++;
+        }
+
+        for (Keyed item1 : rest1)
+        {
+            int d = indexOf(distinct, item1.compared(), counts, options);
+            if (d < 0)
+            {
+                return false;
+            }
+            counts[d]--;
+        }
         return true;
     }
 
     /**
-     * @return true of the passed in o is within the passed in Collection, using a deepEquals comparison
-     * element by element.  Used only for hash collisions.
+     * @return for an item that deepEquals() compares to others with its equals() method (not a Number, nor a
+     * Collection or Map): the group of items it may equal - Object.class for the built-in types compared with
+     * equals() before their classes are checked (String, Boolean, Character, Date, Class), else the item's class
+     * (for a class with custom equals() and hashCode() methods).  Null for any other item.
+     */
+    private static Object equalsGroup(Object item, Set<String> ignoreCustomEquals, boolean allowStringsToMatchNumbers)
+    {
+        if (item == null || item instanceof Number)
+        {
+            return null;
+        }
+        Class c = item.getClass();
+        if (item instanceof String)
+        {   // A String may match a Number
+            return allowStringsToMatchNumbers ? null : Object.class;
+        }
+        if (prims.contains(c) || item instanceof Date || item instanceof Class)
+        {
+            return Object.class;
+        }
+        if (c.isArray() || isContainerType(item) || !hasCustomEquals(c) || !hasCustomHashCode(c))
+        {
+            return null;
+        }
+        if (ignoreCustomEquals == null || (ignoreCustomEquals.size() > 0 && !ignoreCustomEquals.contains(c)))
+        {
+            return c;
+        }
+        return null;
+    }
+
+    /**
+     * @return index of the first of the distinct items that deepEquals (with the passed in options) the passed in
+     * item (skipping the ones with a count of 0, when counts are passed in), or -1 if none.
      */
-    private static boolean isContained(Object o, Collection other)
+    private static int indexOf(List<Object> distinct, Object item, int[] counts, Map<String, Object> options)
     {
-        Iterator i = other.iterator();
-        while (i.hasNext())
+        for (int d = 0; d < distinct.size(); d++)
         {
-            Object x = i.next();
-            if (DeepEquals.deepEquals(o, x))
+            if ((counts == null || counts[d] > 0) && DeepEquals.deepEquals(item, distinct.get(d), options))
             {
-                i.remove(); // can only be used successfully once - remove from list
-                return true;
+                return d;
             }
         }
-        return false;
+        return -1;
+    }
+
+    /**
+     * An item of an unordered Collection, or an entry (item = key) of an unordered Map, with the fingerprint() of
+     * the item as its sort key.
+     */
+    private static final class Keyed
+    {
+        private static final Comparator<Keyed> BY_KEY = (a, b) -> Long.compare(a.key, b.key);
+        private final long key;
+        private final Object item;
+        private final Object value;
+        private final boolean entry;
+
+        private Keyed(Object item, Object value, boolean entry)
+        {
+            this.key = fingerprint(item);
+            this.item = item;
+            this.value = value;
+            this.entry = entry;
+        }
+
+        private static Keyed[] sorted(Collection col)
+        {
+            Keyed[] items = new Keyed[col.size()];
+            int i = 0;
+            for (Object o : col)
+            {
+                items[i++] = new Keyed(o, null, false);
+            }
+            Arrays.sort(items, BY_KEY);
+            return items;
+        }
+
+        private static Keyed[] sorted(Map map)
+        {
+            Keyed[] entries = new Keyed[map.size()];
+            int i = 0;
+            for (Map.Entry entry : (Set<Map.Entry>) map.entrySet())
+            {
+                entries[i++] = new Keyed(entry.getKey(), entry.getValue(), true);
+            }
+            Arrays.sort(entries, BY_KEY);
+            return entries;
+        }
+
+        /**
+         * @return the end (exclusive) of the run of items with the same key as the item at start.
+         */
+        private static int runEnd(Keyed[] items, int start)
+        {
+            int end = start + 1;
+            while (end < items.length && items[end].key == items[start].key)
+            {
+                end++;
+            }
+            return end;
+        }
+
+        /**
+         * @return what is compared with deepEquals() when matching up items: the item, or for a Map entry, its key
+         * and value (only key and value, not the specific Map.Entry type, so that Maps with different Map.Entry
+         * types still compare correctly).
+         */
+        private Object compared()
+        {
+            return entry ? new Object[]{item, value} : item;
+        }
+    }
+
+    /**
+     * Get a 64-bit hash of an item's structure, for sorting the items of unordered Collections (and keys of unordered
+     * Maps).  Items that deepEquals() each other have the same fingerprint, as they have the same deepHashCode(): the
+     * fingerprint is built from the same values as deepHashCode() (the hashCode() of items with a hashCode() method,
+     * Doubles and Floats rounded to integral values), but it hashes fields and array elements in order, and
+     * Collection items and Map entries without order, so items that deepHashCode() cannot tell apart (for example,
+     * the same field values in different fields) get different fingerprints.  Objects reached more than once are hashed
+     * once.  For an item whose graph has a cycle, the fingerprint is its deepHashCode().
+     */
+    private static long fingerprint(Object item)
+    {
+        if (isFingerprintLeaf(item))
+        {
+            return leafFingerprint(item);
+        }
+
+        Map<Object, Object> hashes = new IdentityHashMap<>();   // object -> Long, or PENDING while it is being hashed
+        Deque<Fingerprint> stack = new ArrayDeque<>();
+        stack.addFirst(new Fingerprint(item));
+        hashes.put(item, Fingerprint.PENDING);
+
+        while (true)
+        {
+            Fingerprint top = stack.peekFirst();
+            if (top.next == top.children.length)
+            {
+                long hash = top.hash();
+                stack.removeFirst();
+                if (stack.isEmpty())
+                {
+                    return hash;
+                }
+                hashes.put(top.obj, hash);
+                stack.peekFirst().add(hash);
+                continue;
+            }
+
+            Object child = top.children[top.next++];
+            if (isFingerprintLeaf(child))
+            {
+                top.add(leafFingerprint(child));
+                continue;
+            }
+
+            Object hash = hashes.get(child);
+            if (hash == Fingerprint.PENDING)
+            {   // Cycle - the fingerprint would depend on where the cycle was entered
+                return deepHashCode(item);
+            }
+            if (hash != null)
+            {
+                top.add((Long) hash);
+                continue;
+            }
+            hashes.put(child, Fingerprint.PENDING);
+            stack.addFirst(new Fingerprint(child));
+        }
+    }
+
+    /**
+     * @return true if the passed in item is hashed on its own by deepHashCode() (no items within it are visited).
+     */
+    private static boolean isFingerprintLeaf(Object item)
+    {
+        if (item == null || item instanceof Double || item instanceof Float)
+        {
+            return true;
+        }
+        Class<?> c = item.getClass();
+        return !c.isArray() && !(item instanceof Collection) && !(item instanceof Map) && hasCustomHashCode(c);
+    }
+
+    private static long leafFingerprint(Object item)
+    {
+        if (item == null)
+        {
+            return 0;
+        }
+        if (item instanceof Double || item instanceof Float)
+        {   // Same as deepHashCode(): the integral value, as close values compare equal
+            return Long.hashCode(Math.round(((Number) item).doubleValue()));
+        }
+        return item.hashCode();
+    }
+
+    /**
+     * An object being fingerprinted, with the hashes of the items within it (fields, array or Collection elements,
+     * or Map keys and values) added as they are computed.
+     */
+    private static final class Fingerprint
+    {
+        private static final Object PENDING = new Object();
+        private static final long M = 0x9E3779B97F4A7C15L;
+        private static final int ORDERED = 1;
+        private static final int UNORDERED = 2;
+        private static final int ENTRIES = 3;
+        private final Object obj;
+        private final Object[] children;
+        private final int kind;
+        private int next;
+        private long hash;
+        private long key;       // hash of the Map key whose value is next
+
+        private Fingerprint(Object obj)
+        {
+            this.obj = obj;
+            if (obj.getClass().isArray())
+            {
+                int len = Array.getLength(obj);
+                children = new Object[len];
+                for (int i = 0; i < len; i++)
+                {
+                    children[i] = Array.get(obj, i);
+                }
+                kind = ORDERED;
+            }
+            else if (obj instanceof Collection)
+            {
+                children = ((Collection) obj).toArray();
+                kind = UNORDERED;       // a List can equal a Set
+            }
+            else if (obj instanceof Map)
+            {
+                Map<?, ?> map = (Map<?, ?>) obj;
+                children = new Object[map.size() * 2];
+                int i = 0;
+                for (Map.Entry<?, ?> entry : map.entrySet())
+                {
+                    children[i++] = entry.getKey();
+                    children[i++] = entry.getValue();
+                }
+                kind = ENTRIES;
+            }
+            else
+            {
+                ReflectionUtils.FieldAccessor[] accessors = ReflectionUtils.getFieldAccessors(obj.getClass());
+                children = new Object[accessors.length];
+                for (int i = 0; i < accessors.length; i++)
+                {
+                    children[i] = accessors[i].get(obj);
+                }
+                kind = ORDERED;
+            }
+        }
+
+        private void add(long h)
+        {
+            if (kind == ORDERED)
+            {
+                hash = hash * M + mix(h);
+            }
+            else if (kind == UNORDERED)
+            {
+                hash += mix(h);
+            }
+            else if ((next & 1) == 1)
+            {   // Map key
+                key = h;
+            }
+            else
+            {   // Map value
+                hash += mix(mix(key) + h);
+            }
+        }
+
+        private long hash()
+        {
+            return mix(hash + kind * M + children.length);
+        }
+
+        private static long mix(long h)
+        {
+            h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+            h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
     }
-    
+
     private static boolean compareNumbers(Number a, Number b)
     {
         if (a instanceof Float && (b instanceof Float || b instanceof Double))
@@ -718,7 +1343,7 @@ public class DeepEquals
 
     /**
      * Determine if the passed in class has a non-Object.equals() method.  This
-     * method caches its results in static ConcurrentHashMap to benefit
+     * method caches its results per Class (in a ClassValue) to benefit
      * execution performance.
      * @param c Class to check.
      * @return true, if the passed in Class has a .equals() method somewhere between
@@ -726,30 +1351,7 @@ public class DeepEquals
      */
     public static boolean hasCustomEquals(Class<?> c)
     {
-        StringBuilder sb = new StringBuilder(getClassLoaderName(c));
-        sb.append('.');
-        sb.append(c.getName());
-        String key = sb.toString();
-        Boolean ret = _customEquals.get(key);
-        
-        if (ret != null)
-        {
-            return ret;
-        }
-
-        while (!Object.class.equals(c))
-        {
-            try
-            {
-                c.getDeclaredMethod("equals", Object.class);
-                _customEquals.put(key, true);
-                return true;
-            }
-            catch (Exception ignored) { }
-            c = c.getSuperclass();
-        }
-        _customEquals.put(key, false);
-        return false;
+        return _customEquals.get(c);
     }
 
     /**
@@ -770,20 +1372,133 @@ public class DeepEquals
      */
     public static int deepHashCode(Object obj)
     {
-        Set<Object> visited = new HashSet<>();
+        return deepHashCode(obj, null, null, null);
+    }
+
+    /**
+     * Get the 'deep' hashCode of an Object, as deepHashCode(obj) does, memoizing the deep hashCodes of objects
+     * whose classes are listed in the IMMUTABLE_TYPES option (a Set of Classes, matched exactly, not subclasses).
+     * Listing a class declares that its instances, and everything reachable from them, never change once they
+     * have been hashed.  The deep hashCode of each such object is kept in a weak identity cache (it does not keep
+     * the object alive), so hashing it again, on its own or as part of any other graph, costs one lookup instead
+     * of a walk of its subgraph:
+     * <pre>
+     *     Map&lt;String, Object&gt; options = new HashMap&lt;&gt;();
+     *     options.put(DeepEquals.IMMUTABLE_TYPES, new HashSet&lt;&gt;(Arrays.asList(Config.class, Schema.class)));
+     *     int hash = DeepEquals.deepHashCode(request, options);
+     * </pre>
+     * An immutable object contributes its whole deep hashCode to the graph being hashed, so the result may
+     * differ from deepHashCode(obj) when the same (equal) values are found both inside and outside of it.  As the
+     * deep hashCode of an object depends on which objects within it are immutable, the memoized hashCodes are kept
+     * per IMMUTABLE_TYPES (by the contents of the Set): deeply equal objects hashed with equal IMMUTABLE_TYPES have
+     * the same hashCode, whatever other options they were hashed with before.  Immutable objects that reference
+     * each other in a cycle are not memoized.  Objects that do change anyway can be dropped from the cache with
+     * clearHashCodeCache().
+     * @param obj Object who hashCode is desired.
+     * @param options Map options, see IMMUTABLE_TYPES.  With no option, this is deepHashCode(obj).
+     * @return the 'deep' hashCode value for the passed in object.
+     */
+    public static int deepHashCode(Object obj, Map<?, ?> options)
+    {
+        Set<Class<?>> immutableTypes = (Set<Class<?>>) options.get(IMMUTABLE_TYPES);
+        if (immutableTypes == null || immutableTypes.isEmpty())
+        {
+            return deepHashCode(obj, null, null, null);
+        }
+        if (obj != null && immutableTypes.contains(obj.getClass()))
+        {
+            Integer memo = _hashCodes.get(new IdentityKey(obj, immutableTypes, null));
+            if (memo != null)
+            {
+                return memo;
+            }
+        }
+        Set<Object> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean[] cycle = new boolean[1];
+        int hash = deepHashCode(obj, immutableTypes, pending, cycle);
+        // Immutable objects referencing each other (A->B->A) would hash differently depending on which one
+        // was reached first, so such graphs are hashed without memoization.
+        return cycle[0] ? deepHashCode(obj, null, null, null) : hash;
+    }
+
+    /**
+     * Remove all memoized deep hashCodes (see deepHashCode(obj, options)).
+     */
+    public static void clearHashCodeCache()
+    {
+        _hashCodes.clear();
+    }
+
+    /**
+     * Walk of one object graph, iterative (no recursion), however deeply the graph nests.  Each immutable object
+     * whose hashCode is not memoized yet is hashed in a HashFrame of its own: its subgraph is walked with its own
+     * visited Set and hash, as if it were hashed on its own.  The frame itself sits on the stack below the
+     * subgraph, so popping it ends the subgraph: its hash is memoized and added to the enclosing frame's hash.
+     * @param immutableTypes classes whose instances have their deep hashCode memoized, null for none.
+     * @param pending immutable objects whose frame is open, null when immutableTypes is null.
+     * @param cycle cycle[0] is set when an immutable object reaches a pending one, after which nothing more is
+     * memoized.  Null when immutableTypes is null.
+     */
+    private static int deepHashCode(Object root, Set<Class<?>> immutableTypes, Set<Object> pending, boolean[] cycle)
+    {
         LinkedList<Object> stack = new LinkedList<>();
-        stack.addFirst(obj);
-        int hash = 0;
+        HashFrame frame = new HashFrame(root, null);
+        stack.addFirst(frame);
+        stack.addFirst(root);
+        if (immutableTypes != null && root != null && immutableTypes.contains(root.getClass()))
+        {
+            pending.add(root);
+        }
 
-        while (!stack.isEmpty())
+        while (true)
         {
-            obj = stack.removeFirst();
-            if (obj == null || visited.contains(obj))
+            Object obj = stack.removeFirst();
+            if (obj == frame)
+            {   // All of the frame's subgraph has been hashed
+                Object frameRoot = frame.root;
+                if (immutableTypes != null && frameRoot != null && immutableTypes.contains(frameRoot.getClass()))
+                {
+                    pending.remove(frameRoot);
+                    if (!cycle[0])
+                    {
+                        expungeHashCodes();
+                        _hashCodes.put(new IdentityKey(frameRoot, immutableTypes, _hashCodeQueue), frame.hash);
+                    }
+                }
+                if (frame.parent == null)
+                {
+                    return frame.hash;
+                }
+                frame.parent.hash += frame.hash;
+                frame = frame.parent;
+                continue;
+            }
+            if (obj == null || frame.visited.contains(obj))
             {
                 continue;
             }
 
-            visited.add(obj);
+            frame.visited.add(obj);
+
+            if (immutableTypes != null && obj != frame.root && immutableTypes.contains(obj.getClass()))
+            {
+                if (pending.contains(obj))
+                {
+                    cycle[0] = true;
+                    continue;
+                }
+                Integer memo = _hashCodes.get(new IdentityKey(obj, immutableTypes, null));
+                if (memo != null)
+                {
+                    frame.hash += memo;
+                    continue;
+                }
+                pending.add(obj);
+                frame = new HashFrame(obj, frame);
+                stack.addFirst(frame);
+                stack.addFirst(obj);
+                continue;
+            }
 
             if (obj.getClass().isArray())
             {
@@ -812,32 +1527,95 @@ public class DeepEquals
             {
                 // just take the integral value for hashcode
                 // equality tests things more comprehensively
-                stack.add(Math.round(((Number) obj).doubleValue()));
+                // (pushed on top, so that it is hashed within the current frame)
+                stack.addFirst(Math.round(((Number) obj).doubleValue()));
                 continue;
             }
 
             if (hasCustomHashCode(obj.getClass()))
             {   // A real hashCode() method exists, call it.
-                hash += obj.hashCode();
+                frame.hash += obj.hashCode();
                 continue;
             }
 
-            Collection<Field> fields = ReflectionUtils.getDeepDeclaredFields(obj.getClass());
-            for (Field field : fields)
+            for (ReflectionUtils.FieldAccessor accessor : ReflectionUtils.getFieldAccessors(obj.getClass()))
             {
-                try
-                {
-                    stack.addFirst(field.get(obj));
-                }
-                catch (Exception ignored) { }
+                stack.addFirst(accessor.get(obj));
+            }
+        }
+    }
+
+    /**
+     * Hash of an object (the root of the walk, or an immutable object within it) and its subgraph, see
+     * deepHashCode(root, immutableTypes, pending, cycle).
+     */
+    private static final class HashFrame
+    {
+        private final Object root;
+        private final HashFrame parent;
+        private final Set<Object> visited = new HashSet<>();
+        private int hash;
+
+        private HashFrame(Object root, HashFrame parent)
+        {
+            this.root = root;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Drop the memoized hashCodes of objects that have been garbage collected.
+     */
+    private static void expungeHashCodes()
+    {
+        Object key;
+        while ((key = _hashCodeQueue.poll()) != null)
+        {
+            _hashCodes.remove(key);
+        }
+    }
+
+    /**
+     * Weak reference to an object, with the IMMUTABLE_TYPES it was hashed with.  Equal to any other IdentityKey to
+     * the same object (by identity) with equal IMMUTABLE_TYPES.  Keys of the memoized deep hashCodes.
+     */
+    private static final class IdentityKey extends WeakReference<Object>
+    {
+        private final Set<Class<?>> immutableTypes;
+        private final int hash;
+
+        private IdentityKey(Object referent, Set<Class<?>> immutableTypes, ReferenceQueue<Object> queue)
+        {
+            super(referent, queue);
+            this.immutableTypes = immutableTypes;
+            hash = System.identityHashCode(referent) * 31 + immutableTypes.hashCode();
+        }
+
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        public boolean equals(Object other)
+        {
+            if (this == other)
+            {
+                return true;
+            }
+            if (!(other instanceof IdentityKey))
+            {
+                return false;
             }
+            IdentityKey that = (IdentityKey) other;
+            Object referent = get();
+            return referent != null && referent == that.get()
+                    && (immutableTypes == that.immutableTypes || immutableTypes.equals(that.immutableTypes));
         }
-        return hash;
     }
 
     /**
      * Determine if the passed in class has a non-Object.hashCode() method.  This
-     * method caches its results in static ConcurrentHashMap to benefit
+     * method caches its results per Class (in a ClassValue) to benefit
      * execution performance.
      * @param c Class to check.
      * @return true, if the passed in Class has a .hashCode() method somewhere between
@@ -845,29 +1623,24 @@ public class DeepEquals
      */
     public static boolean hasCustomHashCode(Class<?> c)
     {
-        StringBuilder sb = new StringBuilder(getClassLoaderName(c));
-        sb.append('.');
-        sb.append(c.getName());
-        String key = sb.toString();
-        Boolean ret = _customHash.get(key);
-        
-        if (ret != null)
-        {
-            return ret;
-        }
+        return _customHash.get(c);
+    }
 
-        while (!Object.class.equals(c))
+    /**
+     * @return true, if the passed in Class, or one of its superclasses below Object, declares the method.
+     */
+    private static boolean declaresMethod(Class<?> c, String name, Class<?>... types)
+    {
+        while (c != null && !Object.class.equals(c))
         {
             try
             {
-                c.getDeclaredMethod("hashCode");
-                _customHash.put(key, true);
+                c.getDeclaredMethod(name, types);
                 return true;
             }
             catch (Exception ignored) { }
             c = c.getSuperclass();
         }
-        _customHash.put(key, false);
         return false;
     }
 }
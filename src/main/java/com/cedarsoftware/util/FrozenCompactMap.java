@@ -0,0 +1,317 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+
+import static com.cedarsoftware.util.StringUtilities.equalsIgnoreCase;
+import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
+
+/**
+ * Immutable Map returned from CompactMap.freeze() and CompactMap.copyOf().  Like CompactMap, it has a single member
+ * variable: an Object[] holding the keys (even positions) and values (odd positions) in the source Map's iteration
+ * order, followed by one extra element - the table of a minimal perfect hash over the keys (see MinimalPerfectHash).
+ * get() and containsKey() hash the key, read the position of the only possible match out of the table, and compare
+ * that one key.  Lookups do not allocate.  The table costs 2 bytes per entry while it fits in a byte[] (up to roughly
+ * 200 entries), 4 bytes per entry as a char[] (up to 65535 entries), 8 bytes per entry as an int[] beyond that.<p></p>
+ *
+ * Keys with the same hash code share a slot of the table, and an int[] chains each such key to the next one (4 more
+ * bytes per entry, only when there are shared hash codes), so a lookup compares the keys with the looked up key's
+ * hash code, and no others.  Case-insensitive copies (isCaseInsensitive() returns true) hash String keys with
+ * hashCodeIgnoreCase() and compare them with equalsIgnoreCase().<p></p>
+ *
+ * All mutating methods throw UnsupportedOperationException.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+class FrozenCompactMap<K, V> implements Map<K, V>
+{
+    private final Object[] entries;
+
+    FrozenCompactMap(Map<? extends K, ? extends V> source)
+    {
+        int n = source.size();
+        Object[] copy = new Object[n * 2 + 1];
+        int[] hashes = new int[n];
+        int i = 0;
+        for (Entry<? extends K, ? extends V> entry : source.entrySet())
+        {
+            copy[i * 2] = entry.getKey();
+            copy[i * 2 + 1] = entry.getValue();
+            hashes[i] = computeKeyHashCode(entry.getKey());
+            i++;
+        }
+        copy[n * 2] = MinimalPerfectHash.build(hashes);
+        entries = copy;
+    }
+
+    static <K, V> Map<K, V> of(Map<? extends K, ? extends V> source, boolean caseInsensitive)
+    {
+        if (caseInsensitive)
+        {
+            return new FrozenCompactMap<K, V>(source)
+            {
+                protected boolean isCaseInsensitive() { return true; }
+            };
+        }
+        return new FrozenCompactMap<>(source);
+    }
+
+    public int size()
+    {
+        return entries.length / 2;
+    }
+
+    public boolean isEmpty()
+    {
+        return entries.length == 1;
+    }
+
+    /**
+     * @return index of the key within the Object[], or -1 if not found.
+     */
+    private int indexOf(Object key)
+    {
+        final Object[] entries = this.entries;
+        final int len = entries.length - 1;
+        final Object table = entries[len];
+        if (table != null)
+        {
+            int p = MinimalPerfectHash.find(table, len / 2, computeKeyHashCode(key));
+            do
+            {
+                if (compareKeys(key, entries[p * 2]))
+                {
+                    return p * 2;
+                }
+                p = MinimalPerfectHash.next(table, p);
+            } while (p >= 0);
+            return -1;
+        }
+        for (int i = 0; i < len; i += 2)
+        {
+            if (compareKeys(key, entries[i]))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean compareKeys(Object key, Object aKey)
+    {
+        if (key instanceof String)
+        {
+            if (aKey instanceof String)
+            {
+                if (isCaseInsensitive())
+                {
+                    return equalsIgnoreCase((String) aKey, (String) key);
+                }
+                else
+                {
+                    return aKey.equals(key);
+                }
+            }
+            return false;
+        }
+        return Objects.equals(key, aKey);
+    }
+
+    private int computeKeyHashCode(Object key)
+    {
+        if (key instanceof String && isCaseInsensitive())
+        {
+            return hashCodeIgnoreCase((String) key);
+        }
+        return key == null ? 0 : key.hashCode();
+    }
+
+    public boolean containsKey(Object key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    public boolean containsValue(Object value)
+    {
+        for (int i = 1; i < entries.length - 1; i += 2)
+        {
+            if (Objects.equals(value, entries[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public V get(Object key)
+    {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) entries[i + 1];
+    }
+
+    public V put(K key, V value)
+    {
+        throw new UnsupportedOperationException("This Map is immutable (frozen).");
+    }
+
+    public V remove(Object key)
+    {
+        throw new UnsupportedOperationException("This Map is immutable (frozen).");
+    }
+
+    public void putAll(Map<? extends K, ? extends V> m)
+    {
+        throw new UnsupportedOperationException("This Map is immutable (frozen).");
+    }
+
+    public void clear()
+    {
+        throw new UnsupportedOperationException("This Map is immutable (frozen).");
+    }
+
+    public int hashCode()
+    {
+        int h = 0;
+        for (int i = 0; i < entries.length - 1; i += 2)
+        {
+            Object value = entries[i + 1];
+            h += computeKeyHashCode(entries[i]) ^ (value == null ? 0 : value.hashCode());
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        if (!(obj instanceof Map))
+        {
+            return false;
+        }
+        Map<?, ?> other = (Map<?, ?>) obj;
+        if (size() != other.size())
+        {
+            return false;
+        }
+        for (Entry<?, ?> entry : other.entrySet())
+        {
+            int i = indexOf(entry.getKey());
+            if (i < 0 || !Objects.equals(entries[i + 1], entry.getValue()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString()
+    {
+        if (isEmpty())
+        {
+            return "{}";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        for (int i = 0; i < entries.length - 1; i += 2)
+        {
+            if (i > 0)
+            {
+                sb.append(',').append(' ');
+            }
+            sb.append(entries[i] == this ? "(this Map)" : entries[i]);
+            sb.append('=');
+            sb.append(entries[i + 1] == this ? "(this Map)" : entries[i + 1]);
+        }
+        return sb.append('}').toString();
+    }
+
+    public Set<K> keySet()
+    {
+        return new AbstractSet<K>()
+        {
+            public Iterator<K> iterator() { return new FrozenIterator<>(0); }
+            public int size() { return FrozenCompactMap.this.size(); }
+            public boolean contains(Object o) { return containsKey(o); }
+        };
+    }
+
+    public Collection<V> values()
+    {
+        return new AbstractCollection<V>()
+        {
+            public Iterator<V> iterator() { return new FrozenIterator<>(1); }
+            public int size() { return FrozenCompactMap.this.size(); }
+        };
+    }
+
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Entry<K, V>>()
+        {
+            public Iterator<Entry<K, V>> iterator() { return new FrozenIterator<>(-1); }
+            public int size() { return FrozenCompactMap.this.size(); }
+
+            public boolean contains(Object o)
+            {
+                if (!(o instanceof Entry))
+                {
+                    return false;
+                }
+                Entry<?, ?> entry = (Entry<?, ?>) o;
+                int i = indexOf(entry.getKey());
+                return i >= 0 && Objects.equals(entries[i + 1], entry.getValue());
+            }
+        };
+    }
+
+    /**
+     * Walks the keys (offset 0), values (offset 1), or entries (offset -1) of the Object[].
+     */
+    private class FrozenIterator<T> implements Iterator<T>
+    {
+        private final int offset;
+        private int next = 0;
+
+        FrozenIterator(int offset)
+        {
+            this.offset = offset;
+        }
+
+        public boolean hasNext()
+        {
+            return next < entries.length - 1;
+        }
+
+        public T next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            int i = next;
+            next += 2;
+            if (offset < 0)
+            {
+                return (T) new AbstractMap.SimpleImmutableEntry<>(entries[i], entries[i + 1]);
+            }
+            return (T) entries[i + offset];
+        }
+    }
+
+    protected boolean isCaseInsensitive() { return false; }
+}
@@ -0,0 +1,170 @@
+package com.cedarsoftware.util;
+
+import java.util.*;
+
+import static com.cedarsoftware.util.StringUtilities.equalsIgnoreCase;
+import static com.cedarsoftware.util.StringUtilities.hashCodeIgnoreCase;
+
+/**
+ * Immutable Set returned from CompactSet.freeze() and CompactSet.copyOf().  It has a single member variable: an
+ * Object[] holding the items in the source's iteration order, followed by one extra element - the table of a
+ * minimal perfect hash over the items (see MinimalPerfectHash), so that contains() compares only the items with the
+ * looked up item's hash code (one item, unless items share hash codes) and does not allocate.  Case-insensitive copies (isCaseInsensitive() returns true)
+ * hash String items with hashCodeIgnoreCase() and compare them with equalsIgnoreCase().<p></p>
+ *
+ * All mutating methods throw UnsupportedOperationException.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+class FrozenCompactSet<E> extends AbstractSet<E>
+{
+    private final Object[] items;
+
+    /**
+     * @param source items to copy - must not contain duplicates (as defined by isCaseInsensitive()).
+     */
+    FrozenCompactSet(Collection<? extends E> source)
+    {
+        int n = source.size();
+        Object[] copy = new Object[n + 1];
+        int[] hashes = new int[n];
+        int i = 0;
+        for (E item : source)
+        {
+            copy[i] = item;
+            hashes[i] = computeHashCode(item);
+            i++;
+        }
+        copy[n] = MinimalPerfectHash.build(hashes);
+        items = copy;
+    }
+
+    static <E> Set<E> of(Collection<? extends E> source, boolean caseInsensitive)
+    {
+        if (caseInsensitive)
+        {
+            return new FrozenCompactSet<E>(source)
+            {
+                protected boolean isCaseInsensitive() { return true; }
+            };
+        }
+        return new FrozenCompactSet<>(source);
+    }
+
+    public int size()
+    {
+        return items.length - 1;
+    }
+
+    public boolean isEmpty()
+    {
+        return items.length == 1;
+    }
+
+    public boolean contains(Object item)
+    {
+        final Object[] items = this.items;
+        final int n = items.length - 1;
+        final Object table = items[n];
+        if (table != null)
+        {
+            int p = MinimalPerfectHash.find(table, n, computeHashCode(item));
+            do
+            {
+                if (compareItems(item, items[p]))
+                {
+                    return true;
+                }
+                p = MinimalPerfectHash.next(table, p);
+            } while (p >= 0);
+            return false;
+        }
+        for (int i = 0; i < n; i++)
+        {
+            if (compareItems(item, items[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean compareItems(Object item, Object anItem)
+    {
+        if (item instanceof String)
+        {
+            if (anItem instanceof String)
+            {
+                if (isCaseInsensitive())
+                {
+                    return equalsIgnoreCase((String) anItem, (String) item);
+                }
+                else
+                {
+                    return anItem.equals(item);
+                }
+            }
+            return false;
+        }
+        return Objects.equals(item, anItem);
+    }
+
+    private int computeHashCode(Object item)
+    {
+        if (item instanceof String && isCaseInsensitive())
+        {
+            return hashCodeIgnoreCase((String) item);
+        }
+        return item == null ? 0 : item.hashCode();
+    }
+
+    public Iterator<E> iterator()
+    {
+        return new Iterator<E>()
+        {
+            int next = 0;
+
+            public boolean hasNext() { return next < items.length - 1; }
+
+            public E next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                return (E) items[next++];
+            }
+        };
+    }
+
+    public boolean add(E item)
+    {
+        throw new UnsupportedOperationException("This Set is immutable (frozen).");
+    }
+
+    public boolean remove(Object item)
+    {
+        throw new UnsupportedOperationException("This Set is immutable (frozen).");
+    }
+
+    public void clear()
+    {
+        throw new UnsupportedOperationException("This Set is immutable (frozen).");
+    }
+
+    protected boolean isCaseInsensitive() { return false; }
+}
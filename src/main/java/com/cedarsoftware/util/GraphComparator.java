@@ -456,15 +456,14 @@ public class GraphComparator
                     continue;
                 }
 
-                final Collection<Field> fields = ReflectionUtils.getDeepDeclaredFields(srcValue.getClass());
                 String sysId = "(" + System.identityHashCode(srcValue) + ").";
 
-                for (Field field : fields)
+                for (ReflectionUtils.FieldAccessor accessor : ReflectionUtils.getFieldAccessors(srcValue.getClass()))
                 {
                     try
                     {
-                        String srcPtr = sysId + field.getName();
-                        stack.push(new Delta(srcId, field.getName(), srcPtr, field.get(srcValue), field.get(targetValue), null));
+                        String fieldName = accessor.getField().getName();
+                        stack.push(new Delta(srcId, fieldName, sysId + fieldName, accessor.get(srcValue), accessor.get(targetValue), null));
                     }
                     catch (Exception ignored) { }
                 }
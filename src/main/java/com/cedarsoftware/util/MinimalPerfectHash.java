@@ -0,0 +1,323 @@
+package com.cedarsoftware.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds and probes a minimal perfect hash over a fixed set of key hash codes, using "hash and displace".
+ * The m distinct hash codes are split into m buckets by one hash function.  Buckets holding two or more hash codes are
+ * placed first (largest first), each searching for the displacement d that sends all of its hash codes to distinct
+ * free slots via a second, seeded, hash function.  Single hash code buckets are then dropped directly into the
+ * remaining free slots.  The result is a table with exactly one slot per hash code - no empty slots, no probing, no
+ * collisions.<p></p>
+ *
+ * The table is a single byte[] (when every value fits in 0 thru 255), char[] (0 thru 65535), or int[], laid out as:
+ * <pre>
+ *     [0 .. buckets - 1]          per bucket: the slot (value {@literal <} m, single hash code buckets), or m + d
+ *     [buckets .. buckets + m - 1] per slot: the position of the (first) key (in the caller's storage order)
+ * </pre>
+ * Keeping the position per slot lets callers store their keys in any order they like (e.g. insertion order).
+ * A lookup is two array reads and two integer hash mixes, and never allocates.  The caller still compares the key
+ * at the returned position, because a key that was not in the set also maps to some position.<p></p>
+ *
+ * Keys with equal hash codes (common among Strings) share their hash code's slot, which holds the first of them.
+ * The table is then wrapped in an Object[] {table, int[] next}, where next[position] is the position of the next
+ * key with the same hash code, or -1: callers compare the keys from find(), then next(), until next() returns -1.
+ *
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+final class MinimalPerfectHash
+{
+    private MinimalPerfectHash() { }
+
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+
+    /**
+     * @param hashes hash code of each key, indexed by the key's position.
+     * @return the table for the passed in hash codes (see the class comment), or null when there is none to be had:
+     * no keys, or no displacement found for a bucket within MAX_DISPLACEMENT tries (with distinct hash codes, this
+     * does not happen in practice).
+     */
+    static Object build(int[] hashes)
+    {
+        final int n = hashes.length;
+        if (n == 0)
+        {
+            return null;
+        }
+
+        // Distinct hash codes (sorted, with their positions), and the chains of positions sharing a hash code
+        long[] sorted = new long[n];
+        for (int i = 0; i < n; i++)
+        {
+            sorted[i] = ((long) hashes[i] << 32) | i;
+        }
+        Arrays.sort(sorted);
+        int[] distinct = new int[n];
+        int[] first = new int[n];
+        int[] next = null;
+        int m = 0;
+        for (int i = 0; i < n; i++)
+        {
+            int hash = (int) (sorted[i] >> 32);
+            int position = (int) sorted[i];
+            if (m > 0 && distinct[m - 1] == hash)
+            {
+                if (next == null)
+                {
+                    next = new int[n];
+                    Arrays.fill(next, -1);
+                }
+                next[(int) sorted[i - 1]] = position;
+                continue;
+            }
+            distinct[m] = hash;
+            first[m++] = position;
+        }
+
+        Object table = build(Arrays.copyOf(distinct, m), first, n);
+        if (table == null || next == null)
+        {
+            return table;
+        }
+        return new Object[]{table, next};
+    }
+
+    /**
+     * @param hashes the distinct hash codes.
+     * @param positions the position of the (first) key with each hash code.
+     * @param n number of keys (positions are 0 thru n - 1).
+     */
+    private static Object build(int[] hashes, int[] positions, int n)
+    {
+        final int m = hashes.length;
+        final int buckets = bucketCount(m);
+
+        // Group hash code indexes by bucket
+        List<int[]> groups = new ArrayList<>(buckets);
+        int[] counts = new int[buckets];
+        int[] bucketOf = new int[m];
+        for (int i = 0; i < m; i++)
+        {
+            bucketOf[i] = reduce(mix(hashes[i], 0), buckets);
+            counts[bucketOf[i]]++;
+        }
+        for (int b = 0; b < buckets; b++)
+        {
+            groups.add(new int[counts[b] + 1]);    // [0] = bucket number, [1..] = hash code indexes
+            groups.get(b)[0] = b;
+        }
+        int[] fill = new int[buckets];
+        for (int i = 0; i < m; i++)
+        {
+            int b = bucketOf[i];
+            groups.get(b)[++fill[b]] = i;
+        }
+        groups.sort((g1, g2) -> g2.length - g1.length);
+
+        int[] bucketValue = new int[buckets];
+        int[] slotToPosition = new int[m];
+        boolean[] taken = new boolean[m];
+        int[] slots = new int[m];
+        int maxValue = n - 1;
+        int freeSlot = 0;
+
+        for (int[] group : groups)
+        {
+            int size = group.length - 1;
+            if (size == 0)
+            {   // Sorted largest first - the rest are empty
+                break;
+            }
+            if (size == 1)
+            {   // Single hash code bucket - drop it straight into the next free slot
+                while (taken[freeSlot])
+                {
+                    freeSlot++;
+                }
+                taken[freeSlot] = true;
+                slotToPosition[freeSlot] = positions[group[1]];
+                bucketValue[group[0]] = freeSlot;
+                continue;
+            }
+
+            int d = 0;
+            while (!tryPlace(group, size, d, hashes, taken, slots))
+            {
+                if (++d > MAX_DISPLACEMENT)
+                {   // An unlucky search - no perfect hash.
+                    return null;
+                }
+            }
+            for (int j = 0; j < size; j++)
+            {
+                taken[slots[j]] = true;
+                slotToPosition[slots[j]] = positions[group[j + 1]];
+            }
+            bucketValue[group[0]] = m + d;
+            maxValue = Math.max(maxValue, m + d);
+        }
+
+        if (maxValue <= 0xff)
+        {
+            byte[] table = new byte[buckets + m];
+            for (int b = 0; b < buckets; b++)
+            {
+                table[b] = (byte) bucketValue[b];
+            }
+            for (int s = 0; s < m; s++)
+            {
+                table[buckets + s] = (byte) slotToPosition[s];
+            }
+            return table;
+        }
+        if (maxValue <= Character.MAX_VALUE)
+        {
+            char[] table = new char[buckets + m];
+            for (int b = 0; b < buckets; b++)
+            {
+                table[b] = (char) bucketValue[b];
+            }
+            for (int s = 0; s < m; s++)
+            {
+                table[buckets + s] = (char) slotToPosition[s];
+            }
+            return table;
+        }
+        int[] table = new int[buckets + m];
+        System.arraycopy(bucketValue, 0, table, 0, buckets);
+        System.arraycopy(slotToPosition, 0, table, buckets, m);
+        return table;
+    }
+
+    private static boolean tryPlace(int[] group, int size, int d, int[] hashes, boolean[] taken, int[] slots)
+    {
+        final int m = hashes.length;
+        for (int j = 0; j < size; j++)
+        {
+            int slot = reduce(mix(hashes[group[j + 1]], d + 1), m);
+            if (taken[slot])
+            {
+                return false;
+            }
+            for (int k = 0; k < j; k++)
+            {
+                if (slots[k] == slot)
+                {
+                    return false;
+                }
+            }
+            slots[j] = slot;
+        }
+        return true;
+    }
+
+    /**
+     * @return position of the first key that could have the passed in hash code (the caller must still compare it,
+     * and the keys at next() after it).  n is the number of keys the table was built for.
+     */
+    static int find(Object table, int n, int hash)
+    {
+        if (table instanceof byte[])
+        {
+            byte[] bytes = (byte[]) table;
+            int m = bytes.length / 2;
+            int v = bytes[reduce(mix(hash, 0), m)] & 0xff;
+            int slot = v < m ? v : reduce(mix(hash, v - m + 1), m);
+            return bytes[m + slot] & 0xff;
+        }
+        if (table instanceof char[])
+        {
+            char[] chars = (char[]) table;
+            int m = chars.length / 2;
+            int v = chars[reduce(mix(hash, 0), m)];
+            int slot = v < m ? v : reduce(mix(hash, v - m + 1), m);
+            return chars[m + slot];
+        }
+        if (table instanceof int[])
+        {
+            int[] ints = (int[]) table;
+            int m = ints.length / 2;
+            int v = ints[reduce(mix(hash, 0), m)];
+            int slot = v < m ? v : reduce(mix(hash, v - m + 1), m);
+            return ints[m + slot];
+        }
+        return find(((Object[]) table)[0], n, hash);
+    }
+
+    /**
+     * @return position of the next key with the same hash code as the key at the passed in position, or -1 if there
+     * is none.
+     */
+    static int next(Object table, int position)
+    {
+        return table instanceof Object[] ? ((int[]) ((Object[]) table)[1])[position] : -1;
+    }
+
+    /**
+     * @return number of elements in the table (without the next[] of keys sharing hash codes) - for sizing
+     * estimates and tests.
+     */
+    static int length(Object table)
+    {
+        if (table instanceof byte[])
+        {
+            return ((byte[]) table).length;
+        }
+        if (table instanceof char[])
+        {
+            return ((char[]) table).length;
+        }
+        if (table instanceof int[])
+        {
+            return ((int[]) table).length;
+        }
+        return length(((Object[]) table)[0]);
+    }
+
+    /**
+     * One bucket per hash code (on average): n/2 buckets would save n/2 table elements, but leaves so few single
+     * key buckets that the last multi-key buckets need long displacement searches, pushing the table from byte[] to char[].
+     */
+    private static int bucketCount(int n)
+    {
+        return n;
+    }
+
+    /**
+     * Murmur3 32-bit finalizer over the hash code, perturbed by the seed.
+     */
+    private static int mix(int h, int seed)
+    {
+        h ^= seed * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return h mapped onto 0 thru range - 1 (multiply-shift, avoids the division of a modulus).
+     */
+    private static int reduce(int h, int range)
+    {
+        return (int) (((h & 0xffffffffL) * range) >>> 32);
+    }
+}
@@ -4,6 +4,9 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -38,6 +41,24 @@ public final class ReflectionUtils
     private static final ConcurrentMap<String, Method> METHOD_MAP = new ConcurrentHashMap<>();
     private static final ConcurrentMap<String, Method> METHOD_MAP2 = new ConcurrentHashMap<>();
     private static final ConcurrentMap<String, Method> METHOD_MAP3 = new ConcurrentHashMap<>();
+    private static final ClassValue<FieldAccessor[]> FIELD_ACCESSORS = new ClassValue<FieldAccessor[]>()
+    {
+        protected FieldAccessor[] computeValue(Class<?> c)
+        {
+            List<FieldAccessor> accessors = new ArrayList<>();
+            for (Field field : getDeepDeclaredFields(c))
+            {
+                try
+                {
+                    accessors.add(new FieldAccessor(field));
+                }
+                catch (IllegalAccessException ignored)
+                {   // Not accessible (setAccessible() refused) - Field.get() would throw too
+                }
+            }
+            return accessors.toArray(new FieldAccessor[0]);
+        }
+    };
 
     private ReflectionUtils()
     {
@@ -229,6 +250,64 @@ public final class ReflectionUtils
         }
     }
 
+    /**
+     * Get a FieldAccessor for each of the fields getDeepDeclaredFields() returns for the passed in class (except
+     * fields that cannot be made accessible).  Each field's getter is compiled (into a MethodHandle) once per class,
+     * and the result is cached per Class in a ClassValue, so repeated calls are a single lookup - use this instead of
+     * getDeepDeclaredFields() and Field.get() when reading the fields of many instances (object graph walking).
+     * @param c Class instance
+     * @return FieldAccessor[] shared by all callers - do not modify it.
+     */
+    public static FieldAccessor[] getFieldAccessors(Class<?> c)
+    {
+        return FIELD_ACCESSORS.get(c);
+    }
+
+    /**
+     * Reads one (accessible) field of an instance, through a MethodHandle compiled from the Field, instead of
+     * Field.get().  Primitive values are boxed, as Field.get() does.
+     */
+    public static final class FieldAccessor
+    {
+        private final Field field;
+        private final MethodHandle getter;
+
+        private FieldAccessor(Field field) throws IllegalAccessException
+        {
+            this.field = field;
+            getter = MethodHandles.lookup().unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+        }
+
+        public Field getField()
+        {
+            return field;
+        }
+
+        /**
+         * @return the value of the field in the passed in instance, which must be an instance of the field's class.
+         */
+        public Object get(Object instance)
+        {
+            try
+            {
+                return (Object) getter.invokeExact(instance);
+            }
+            catch (RuntimeException | Error e)
+            {
+                throw e;
+            }
+            catch (Throwable t)
+            {   // A field getter does not throw checked exceptions
+                throw new IllegalStateException("Unable to read field: " + field, t);
+            }
+        }
+
+        public String toString()
+        {
+            return field.toString();
+        }
+    }
+
     /**
      * Return all Fields from a class (including inherited), mapped by
      * String field name to java.lang.reflect.Field.
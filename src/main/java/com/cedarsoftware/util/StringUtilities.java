@@ -48,13 +48,42 @@ public final class StringUtilities
         return str1.equals(str2);
     }
 
+    /**
+     * Same result as String.equalsIgnoreCase() (null safe), faster for ASCII.  While both Strings are ASCII, four
+     * chars of each are packed into a long, folded to lower case together (SWAR), and compared with one long
+     * comparison.  From the first block containing a non-ASCII char on, String.regionMatches(true, ...) does the
+     * full Unicode comparison.
+     */
     public static boolean equalsIgnoreCase(final String s1, final String s2)
     {
         if (s1 == null || s2 == null)
         {
             return s1 == s2;
         }
-        return s1.equalsIgnoreCase(s2);
+        if (s1 == s2)
+        {
+            return true;
+        }
+        final int len = s1.length();
+        if (len != s2.length())
+        {
+            return false;
+        }
+        int i = 0;
+        for (; i + 4 <= len; i += 4)
+        {
+            long w1 = pack4(s1, i);
+            long w2 = pack4(s2, i);
+            if (((w1 | w2) & NON_ASCII_LANES) != 0)
+            {   // Non-ASCII - let the JDK do the Unicode case folding
+                break;
+            }
+            if (w1 != w2 && toLowerCaseAscii(w1) != toLowerCaseAscii(w2))
+            {
+                return false;
+            }
+        }
+        return s1.regionMatches(true, i, s2, i, len - i);
     }
 
     public static boolean equalsWithTrim(final String s1, final String s2)
@@ -482,7 +511,10 @@ public final class StringUtilities
 
     /**
      * Get the hashCode of a String, insensitive to case, without any new Strings
-     * being created on the heap.
+     * being created on the heap.  The value is the hashCode() of the String with
+     * every char passed through Character.toLowerCase(char).  ASCII text is hashed
+     * four chars per iteration (lower cased without Character lookups, and with the
+     * 31 * hash chain unrolled), using Character.toLowerCase() for non-ASCII chars.
      * @param s String input
      * @return int hashCode of input String insensitive to case
      */
@@ -494,11 +526,52 @@ public final class StringUtilities
         }
         int hash = 0;
         int len = s.length();
-        for (int i = 0; i < len; i++)
+        int i = 0;
+        for (; i + 4 <= len; i += 4)
+        {
+            int c0 = s.charAt(i);
+            int c1 = s.charAt(i + 1);
+            int c2 = s.charAt(i + 2);
+            int c3 = s.charAt(i + 3);
+            if ((c0 | c1 | c2 | c3) >= 0x80)
+            {
+                break;
+            }
+            hash = 923521 * hash + 29791 * toLowerCaseAscii(c0) + 961 * toLowerCaseAscii(c1) +
+                    31 * toLowerCaseAscii(c2) + toLowerCaseAscii(c3);    // 31^4, 31^3, 31^2
+        }
+        for (; i < len; i++)
         {
-            char c = Character.toLowerCase(s.charAt(i));
-            hash = 31 * hash + c;
+            int c = s.charAt(i);
+            hash = 31 * hash + (c < 0x80 ? toLowerCaseAscii(c) : Character.toLowerCase(c));
         }
         return hash;
     }
+
+    private static final long LANES = 0x0001000100010001L;
+    private static final long NON_ASCII_LANES = 0xFF80L * LANES;
+
+    /**
+     * @return ASCII char c in lower case.  c must be {@literal <} 0x80.
+     */
+    private static int toLowerCaseAscii(int c)
+    {
+        return c >= 'A' && c <= 'Z' ? c + 32 : c;
+    }
+
+    /**
+     * @return four ASCII chars (in 16 bit lanes) in lower case.  Every lane must be {@literal <} 0x80.
+     */
+    private static long toLowerCaseAscii(long w)
+    {
+        long atLeastA = w + (0x80 - 'A') * LANES;           // bit 7 of a lane set when its char >= 'A'
+        long aboveZ = w + (0x80 - 'Z' - 1) * LANES;         // bit 7 of a lane set when its char > 'Z'
+        long upper = atLeastA & ~aboveZ & (0x80 * LANES);
+        return w | (upper >>> 2);                           // 0x80 >>> 2 == 0x20, the ASCII case bit
+    }
+
+    private static long pack4(String s, int i)
+    {
+        return s.charAt(i) | ((long) s.charAt(i + 1) << 16) | ((long) s.charAt(i + 2) << 32) | ((long) s.charAt(i + 3) << 48);
+    }
 }
@@ -1,7 +1,6 @@
 package com.cedarsoftware.util;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.util.*;
 
 /**
@@ -132,18 +131,14 @@ public class Traverser
     {
         ClassInfo classInfo = getClassInfo(current.getClass(), skip);
 
-        for (Field field : classInfo._refFields)
+        for (ReflectionUtils.FieldAccessor accessor : classInfo._refFields)
         {
-            try
+            Object value = accessor.get(current);
+            if (value == null || value.getClass().isPrimitive())
             {
-                Object value = field.get(current);
-                if (value == null || value.getClass().isPrimitive())
-                {
-                    continue;
-                }
-                stack.add(value);
+                continue;
             }
-            catch (IllegalAccessException ignored) { }
+            stack.add(value);
         }
     }
 
@@ -192,7 +187,7 @@ public class Traverser
     public static class ClassInfo
     {
         private boolean _skip = false;
-        private final Collection<Field> _refFields = new ArrayList<>();
+        private final Collection<ReflectionUtils.FieldAccessor> _refFields = new ArrayList<>();
 
         public ClassInfo(Class<?> c, Class<?>[] skip)
         {
@@ -208,14 +203,13 @@ public class Traverser
                 }
             }
 
-            Collection<Field> fields = ReflectionUtils.getDeepDeclaredFields(c);
-            for (Field field : fields)
+            for (ReflectionUtils.FieldAccessor accessor : ReflectionUtils.getFieldAccessors(c))
             {
-                Class<?> fc = field.getType();
+                Class<?> fc = accessor.getField().getType();
 
                 if (!fc.isPrimitive())
                 {
-                    _refFields.add(field);
+                    _refFields.add(accessor);
                 }
             }
         }
@@ -0,0 +1,165 @@
+package com.cedarsoftware.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCaseInsensitiveHashMap
+{
+    @Test
+    public void testAgainstCaseInsensitiveMap()
+    {
+        Random random = new Random(11);
+        String[] words = {"Content-Type", "Accept", "Host", "X-Request-Id", "Cache-Control", "Cookie", "Origin", "Via"};
+        Map<String, Integer> map = new CaseInsensitiveHashMap<>(2);
+        Map<String, Integer> control = new CaseInsensitiveMap<>();
+        for (int i = 0; i < 50000; i++)
+        {
+            String word = words[random.nextInt(words.length)];
+            String key = random.nextBoolean() ? word.toUpperCase() : random.nextBoolean() ? word.toLowerCase() : word;
+            int op = random.nextInt(4);
+            if (op == 0)
+            {
+                assert Objects.equals(control.put(key, i), map.put(key, i));
+            }
+            else if (op == 1)
+            {
+                assert Objects.equals(control.remove(key), map.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(control.get(key), map.get(key));
+                assert control.containsKey(key) == map.containsKey(key);
+            }
+            assert control.size() == map.size();
+        }
+        assert new ArrayList<>(control.keySet()).equals(new ArrayList<>(map.keySet()));    // insertion order, original keys
+        assert new ArrayList<>(control.values()).equals(new ArrayList<>(map.values()));
+        assert control.equals(map);
+        assert map.equals(control);
+        assert control.hashCode() == map.hashCode();
+    }
+
+    @Test
+    public void testNullAndNonStringKeys()
+    {
+        Map<Object, Object> map = new CaseInsensitiveHashMap<>();
+        map.put(null, "null");
+        map.put(1, "one");
+        map.put("One", 1);
+        assert "null".equals(map.get(null));
+        assert map.containsKey(null);
+        assert "one".equals(map.get(1));
+        assert map.get(1L) == null;
+        assert map.get("ONE").equals(1);
+        assert map.containsValue(null) == false;
+        map.put("two", null);
+        assert map.containsKey("TWO");
+        assert map.containsValue(null);
+        assert "null".equals(map.remove(null));
+        assert !map.containsKey(null);
+        assert map.size() == 3;
+        map.clear();
+        assert map.isEmpty();
+        assert map.get("one") == null;
+    }
+
+    @Test
+    public void testViews()
+    {
+        CaseInsensitiveHashMap<String, Integer> map = new CaseInsensitiveHashMap<>();
+        for (int i = 0; i < 100; i++)
+        {
+            map.put("Key" + i, i);
+        }
+        assert map.keySet().contains("KEY50");
+        assert map.keySet().remove("key50");
+        assert !map.keySet().remove("key50");
+        assert map.entrySet().contains(new AbstractMap.SimpleEntry<>("KEY51", 51));
+        assert !map.entrySet().contains(new AbstractMap.SimpleEntry<>("KEY51", 52));
+        assert map.entrySet().remove(new AbstractMap.SimpleEntry<>("KEY51", 51));
+
+        Iterator<Map.Entry<String, Integer>> i = map.entrySet().iterator();
+        try { i.remove(); fail(); } catch (IllegalStateException ignored) { }
+        while (i.hasNext())
+        {
+            Map.Entry<String, Integer> entry = i.next();
+            if (entry.getValue() % 2 == 0)
+            {
+                i.remove();
+            }
+            else
+            {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        assert map.size() == 49;
+        assert map.get("KEY99") == -99;
+        assert !map.containsKey("key98");
+        assert "Key1".equals(map.keySet().iterator().next());
+
+        Iterator<String> keys = map.keySet().iterator();
+        keys.next();
+        map.put("new", 1);
+        try { keys.next(); fail(); } catch (ConcurrentModificationException ignored) { }
+    }
+
+    @Test
+    public void testBackingCaseInsensitiveMap()
+    {
+        Map<String, Object> source = new CaseInsensitiveMap<>();
+        source.put("Content-Type", "text/html");
+        source.put("Accept", "*/*");
+
+        CaseInsensitiveMap<String, Object> map = new CaseInsensitiveMap<>(source, new CaseInsensitiveHashMap<>());
+        assert map.getWrappedMap() instanceof CaseInsensitiveHashMap;
+        for (Object key : map.getWrappedMap().keySet())
+        {   // Strings are held as is
+            assert key instanceof String;
+        }
+        assert "text/html".equals(map.get("CONTENT-TYPE"));
+        assert map.containsKey("accept");
+        assert map.equals(source);
+        assert source.equals(map);
+        assert map.hashCode() == source.hashCode();
+        assert map.keySet().hashCode() == source.keySet().hashCode();
+
+        map.putAll(source);
+        map.put("HOST", "example.com");
+        assert map.size() == 3;
+        assert "example.com".equals(map.remove("host"));
+        assert "Content-Type".equals(map.keySet().iterator().next());
+        for (Map.Entry<String, Object> entry : map.entrySet())
+        {
+            entry.setValue("x");
+        }
+        assert "x".equals(map.get("accept"));
+
+        CaseInsensitiveMap<String, Object> copy = new CaseInsensitiveMap<>(map.getWrappedMap());
+        assert copy.getWrappedMap() instanceof CaseInsensitiveHashMap;
+        assert "x".equals(copy.get("CONTENT-type"));
+
+        Map<String, Object> wrapped = new CaseInsensitiveMap<>(map);
+        assert wrapped.equals(map);
+        assert "x".equals(wrapped.get("ACCEPT"));
+    }
+}
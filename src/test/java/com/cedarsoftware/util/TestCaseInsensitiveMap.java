@@ -7,6 +7,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
@@ -1524,6 +1525,353 @@ public class TestCaseInsensitiveMap
         System.out.println((stop - start) / 1000000);
     }
 
+    @Test
+    public void testLookupProbe()
+    {
+        List<Map<String, Object>> backings = Arrays.asList(new HashMap<>(), new TreeMap<>(), new ConcurrentHashMap<>(), new ConcurrentSkipListMap<>(), new WeakHashMap<>(), new Hashtable<>());
+        for (Map<String, Object> backing : backings)
+        {
+            CaseInsensitiveMap<String, Object> map = new CaseInsensitiveMap<>(Collections.emptyMap(), backing);
+            map.put("Content-Type", "text/html");
+            map.put("Accept", "*/*");
+            assert "text/html".equals(map.get("content-type"));
+            assert map.containsKey("ACCEPT");
+            assert !map.containsKey("Accept-Encoding");
+            assert "*/*".equals(map.remove("accept"));
+            assert map.size() == 1;
+
+            // The wrapped Map never holds the lookup key
+            for (Object key : backing.keySet())
+            {
+                assert "Content-Type".equals(key.toString());
+            }
+        }
+
+        // Lookup nested inside a lookup (a key whose equals() consults another CaseInsensitiveMap) gets its own lookup key
+        final CaseInsensitiveMap<String, Object> inner = new CaseInsensitiveMap<>();
+        inner.put("x", 1);
+        Object nested = new Object()
+        {
+            public boolean equals(Object o) { return inner.containsKey("X"); }
+            public int hashCode() { return 1; }
+        };
+        CaseInsensitiveMap<Object, Object> outer = new CaseInsensitiveMap<>();
+        outer.put(nested, "nested");
+        outer.put("Key", "value");
+        assert "nested".equals(outer.get(nested));
+        assert "value".equals(outer.get("KEY"));
+
+        // Lookups from many threads at once on one Map (each thread with its own lookup key)
+        final CaseInsensitiveMap<String, Object> shared = new CaseInsensitiveMap<>();
+        for (int i = 0; i < 100; i++)
+        {
+            shared.put("Key" + i, i);
+        }
+        long misses = IntStream.range(0, 4).parallel().mapToLong(t -> {
+            long count = 0;
+            for (int i = 0; i < 20000; i++)
+            {
+                count += Integer.valueOf(i % 100).equals(shared.get("KEY" + (i % 100))) ? 0 : 1;
+            }
+            return count;
+        }).sum();
+        assert misses == 0;
+
+        // Stored keys are immutable, and lookups write nothing to the Map
+        for (Class<?> c : Arrays.asList(CaseInsensitiveMap.CaseInsensitiveString.class, CaseInsensitiveMap.class))
+        {
+            for (java.lang.reflect.Field field : c.getDeclaredFields())
+            {
+                int modifiers = field.getModifiers();
+                assert java.lang.reflect.Modifier.isStatic(modifiers) || java.lang.reflect.Modifier.isFinal(modifiers) : field.getName();
+            }
+        }
+    }
+
+    @Test
+    public void testLookupDoesNotAllocate()
+    {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled())
+        {
+            return;
+        }
+
+        CaseInsensitiveMap<String, Object> map = new CaseInsensitiveMap<>();
+        String[] keys = {"Content-Type", "Accept", "User-Agent", "Host"};
+        for (String key : keys)
+        {
+            map.put(key, key);
+        }
+        String[] lookups = {"content-type", "ACCEPT", "user-agent", "Connection"};
+        int hits = 0;
+        for (int i = 0; i < 1000; i++)
+        {   // warm up (creates this thread's lookup key)
+            hits += map.containsKey(lookups[i & 3]) ? 1 : 0;
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100000; i++)
+        {
+            String key = lookups[i & 3];
+            if (map.get(key) != null && map.containsKey(key))
+            {
+                hits++;
+            }
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        assert hits > 0;
+        assert allocated < 100000 : "lookups allocated " + allocated + " bytes";    // a wrapper per lookup would be > 4MB
+    }
+
+    @Test
+    public void testInternPool()
+    {
+        CaseInsensitiveMap.CaseInsensitiveString.setInternPoolCapacity(2);
+        try
+        {
+            CaseInsensitiveMap<String, Object> map1 = new CaseInsensitiveMap<>(Collections.emptyMap(), new HashMap<>());
+            CaseInsensitiveMap<String, Object> map2 = new CaseInsensitiveMap<>(Collections.emptyMap(), new HashMap<>());
+            for (Map<String, Object> map : Arrays.asList(map1, map2))
+            {
+                map.put("Content-Type", "text/html");
+                map.put("Accept", "*/*");
+                map.put("Host", "example.com");    // pool is full by now - not interned
+            }
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternPoolSize() == 2;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternPoolHits() == 2;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternPoolMisses() == 4;
+            assert CaseInsensitiveMap.CaseInsensitiveString.getInternPoolHitRate() == 2.0d / 6.0d;
+
+            Map<Object, Object> keys1 = new IdentityHashMap<>();
+            for (Object key : map1.getWrappedMap().keySet())
+            {
+                keys1.put(key, key);
+            }
+            int shared = 0;
+            for (Object key : map2.getWrappedMap().keySet())
+            {
+                shared += keys1.containsKey(key) ? 1 : 0;
+            }
+            assert shared == 2;
+
+            // Pooled instances are found by lookups, and are not disturbed by them
+            assert "text/html".equals(map1.get("Content-Type"));
+            assert "text/html".equals(map1.get("CONTENT-TYPE"));
+            assert Arrays.asList(map2.keySet().toArray()).contains("Content-Type");
+            assert map2.remove("Accept") != null;
+            assert "*/*".equals(map1.get("accept"));
+            assert new CaseInsensitiveMap<>(map1).equals(map1);
+
+            try
+            {
+                CaseInsensitiveMap.CaseInsensitiveString.setInternPoolCapacity(-1);
+                fail();
+            }
+            catch (IllegalArgumentException ignored) { }
+        }
+        finally
+        {
+            CaseInsensitiveMap.CaseInsensitiveString.setInternPoolCapacity(0);
+        }
+        assert CaseInsensitiveMap.CaseInsensitiveString.getInternPoolSize() == 0;
+        assert CaseInsensitiveMap.CaseInsensitiveString.getInternPoolHitRate() == 0.0d;
+        CaseInsensitiveMap.CaseInsensitiveString ciString = CaseInsensitiveMap.CaseInsensitiveString.of("Accept");
+        assert ciString != CaseInsensitiveMap.CaseInsensitiveString.of("Accept");
+        assert ciString.equals(CaseInsensitiveMap.CaseInsensitiveString.of("ACCEPT"));
+    }
+
+    @Test
+    public void testBulkCopyReusesKeys()
+    {
+        CaseInsensitiveMap<String, Object> source = new CaseInsensitiveMap<>(Collections.emptyMap(), new TreeMap<>());
+        for (int i = 0; i < 100; i++)
+        {
+            source.put("Key" + i, i);
+        }
+        source.put("KEY5", 55);
+
+        // Copy constructor keeps the backing type and shares the wrapped keys
+        CaseInsensitiveMap<String, Object> copy = new CaseInsensitiveMap<>(source);
+        assert copy.getWrappedMap() instanceof TreeMap;
+        assert copy.equals(source);
+        assert sameKeyInstances(source, copy);
+        assert copy.get("KEY5").equals(55);
+
+        // putAll from another CaseInsensitiveMap with the same wrapping
+        CaseInsensitiveMap<String, Object> target = new CaseInsensitiveMap<>();
+        target.put("key0", "old");
+        target.putAll(source);
+        assert target.size() == 100;
+        assert target.get("KEY0").equals(0);
+        assert "key0".equals(target.keySet().iterator().next());     // existing key kept
+        int shared = 0;
+        for (Object key : target.getWrappedMap().keySet())
+        {
+            for (Object sourceKey : source.getWrappedMap().keySet())
+            {
+                shared += key == sourceKey ? 1 : 0;
+            }
+        }
+        assert shared == 99;
+
+        // Between wrapped and native (CaseInsensitiveHashMap) backing, keys are converted
+        CaseInsensitiveMap<String, Object> nativeCopy = new CaseInsensitiveMap<>(source, new CaseInsensitiveHashMap<>());
+        assert nativeCopy.equals(source);
+        for (Object key : nativeCopy.getWrappedMap().keySet())
+        {
+            assert key instanceof String;
+        }
+        CaseInsensitiveMap<String, Object> back = new CaseInsensitiveMap<>(nativeCopy, new LinkedHashMap<>());
+        assert back.equals(source);
+        for (Object key : back.getWrappedMap().keySet())
+        {
+            assert key instanceof CaseInsensitiveMap.CaseInsensitiveString;
+        }
+        back.putAll(nativeCopy);
+        nativeCopy.putAll(back);
+        assert back.size() == 100 && nativeCopy.size() == 100;
+        assert back.get("key5").equals(55);
+    }
+
+    private static boolean sameKeyInstances(CaseInsensitiveMap<?, ?> a, CaseInsensitiveMap<?, ?> b)
+    {
+        Iterator<?> i = a.getWrappedMap().keySet().iterator();
+        Iterator<?> j = b.getWrappedMap().keySet().iterator();
+        while (i.hasNext())
+        {
+            if (i.next() != j.next())
+            {
+                return false;
+            }
+        }
+        return !j.hasNext();
+    }
+
+    @Test
+    public void testPrefixMap()
+    {
+        CaseInsensitiveMap<String, Object> map = new CaseInsensitiveMap<>(Collections.emptyMap(), new TreeMap<>());
+        for (String key : new String[]{"Content-Type", "content-length", "CONTENT", "Accept", "Accept-Encoding", "Host", "contenu", "@home", "[bracket", "Zed", "zebra"})
+        {
+            map.put(key, key.length());
+        }
+
+        CaseInsensitiveMap<String, Object> content = map.prefixMap("CONTENT-");
+        assert new ArrayList<>(content.keySet()).equals(Arrays.asList("content-length", "Content-Type"));
+        assert content.containsKey("content-type");
+        assert !content.containsKey("Accept");
+        assert content.get("CONTENT-LENGTH").equals(14);
+
+        assert new ArrayList<>(map.prefixMap("content").keySet()).equals(Arrays.asList("CONTENT", "content-length", "Content-Type"));
+        assert new ArrayList<>(map.prefixMap("@").keySet()).equals(Arrays.asList("@home"));
+        assert new ArrayList<>(map.prefixMap("z").keySet()).equals(Arrays.asList("zebra", "Zed"));
+        assert map.prefixMap("x").isEmpty();
+        assert map.prefixMap("").size() == map.size();
+
+        // View writes through, both ways
+        content.put("CONTENT-ENCODING", 16);
+        assert map.get("content-encoding").equals(16);
+        content.remove("content-length");
+        assert !map.containsKey("Content-Length");
+        map.put("content-md5", 11);
+        assert content.size() == 3;
+        try
+        {
+            content.put("Host", 4);
+            fail();
+        }
+        catch (IllegalArgumentException expected)
+        {
+        }
+
+        // Nothing folds above \uffff, so the end of the range carries to the char before it
+        map.put("\uffff\uffffa", 1);
+        map.put("a\uffff", 2);
+        map.put("a\uffffb", 3);
+        assert map.prefixMap("\uffff").size() == 1;
+        assert new ArrayList<>(map.prefixMap("A\uffff").keySet()).equals(Arrays.asList("a\uffff", "a\uffffb"));
+    }
+
+    @Test
+    public void testPrefixMapMatchesScan()
+    {
+        Random random = new Random(42);
+        String alphabet = "aAbB@[`{zZ\u00e9\u00c9\u0130\u0131iI\uffff";
+        CaseInsensitiveMap<String, Object> map = new CaseInsensitiveMap<>(Collections.emptyMap(), new ConcurrentSkipListMap<>());
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+        {
+            StringBuilder key = new StringBuilder();
+            for (int j = random.nextInt(5); j >= 0; j--)
+            {
+                key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            keys.add(key.toString());
+            map.put(key.toString(), i);
+        }
+
+        for (String prefix : keys.subList(0, 500))
+        {
+            prefix = prefix.substring(0, Math.min(prefix.length(), 1 + random.nextInt(3)));
+            Set<String> expected = new HashSet<>();
+            for (String key : map.keySet())
+            {
+                if (key.regionMatches(true, 0, prefix, 0, prefix.length()))
+                {
+                    expected.add(key);
+                }
+            }
+            assert new HashSet<>(map.prefixMap(prefix).keySet()).equals(expected) : prefix;
+        }
+    }
+
+    @Test
+    public void testSubMapCeilingFloor()
+    {
+        CaseInsensitiveMap<Object, Object> map = new CaseInsensitiveMap<>(Collections.emptyMap(), new TreeMap<>());
+        map.put("Alpha", 1);
+        map.put("bravo", 2);
+        map.put("CHARLIE", 3);
+        map.put("delta", 4);
+
+        assert new ArrayList<>(map.subMap("BRAVO", "Delta").keySet()).equals(Arrays.asList("bravo", "CHARLIE"));
+        assert new ArrayList<>(map.subMap("b", false, "DELTA", true).keySet()).equals(Arrays.asList("bravo", "CHARLIE", "delta"));
+        assert map.subMap("alpha", "BRAVO").get("ALPHA").equals(1);
+
+        assert "bravo".equals(map.ceilingKey("B"));
+        assert "bravo".equals(map.ceilingKey("BRAVO"));
+        assert "CHARLIE".equals(map.ceilingKey("bravo!"));
+        assert map.ceilingKey("echo") == null;
+        assert "Alpha".equals(map.floorKey("b"));
+        assert "delta".equals(map.floorKey("ZULU"));
+        assert map.floorKey("aaa") == null;
+
+        CaseInsensitiveMap<String, Object> hashed = new CaseInsensitiveMap<>();
+        hashed.put("a", 1);
+        try
+        {
+            hashed.prefixMap("a");
+            fail();
+        }
+        catch (UnsupportedOperationException expected)
+        {
+        }
+        try
+        {
+            hashed.ceilingKey("a");
+            fail();
+        }
+        catch (UnsupportedOperationException expected)
+        {
+        }
+    }
+
     // ---------------------------------------------------
 
 
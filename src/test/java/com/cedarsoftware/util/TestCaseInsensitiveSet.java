@@ -576,6 +576,60 @@ public class TestCaseInsensitiveSet
         assert !set.equals(other);
     }
 
+    @Test
+    public void testBulkCopy()
+    {
+        Set<String> sorted = new CaseInsensitiveSet<>(Collections.emptySet(), new CaseInsensitiveMap<>(Collections.emptyMap(), new TreeMap<>()));
+        sorted.add("Charlie");
+        sorted.add("alpha");
+        sorted.add("BRAVO");
+
+        // Copy keeps the backing Map type (sorted order) of the source Set
+        Set<String> copy = new CaseInsensitiveSet<>(sorted);
+        assert copy.equals(sorted);
+        assert new ArrayList<>(copy).equals(Arrays.asList("alpha", "BRAVO", "Charlie"));
+        copy.add("ALPHA");
+        assert copy.size() == 3;
+        copy.add("able");
+        assert new ArrayList<>(copy).get(0).equals("able");
+        assert sorted.size() == 3;
+
+        // addAll from another CaseInsensitiveSet
+        Set<String> set = new CaseInsensitiveSet<>();
+        set.add("bravo");
+        assert set.addAll(sorted);
+        assert !set.addAll(sorted);
+        assert set.addAll(copy);
+        assert set.size() == 4;
+        assert set.contains("CHARLIE");
+        assert new ArrayList<>(set).get(0).equals("bravo");     // existing element kept
+    }
+
+    @Test
+    public void testPrefixSet()
+    {
+        CaseInsensitiveSet<String> set = new CaseInsensitiveSet<>(new TreeSet<>(Arrays.asList("CUSTOMER_ID", "customer_name", "Order_Id", "ORDER_DATE", "status")));
+        assert new ArrayList<>(set.prefixSet("Customer_")).equals(Arrays.asList("CUSTOMER_ID", "customer_name"));
+        assert new ArrayList<>(set.subSet("order", "z")).equals(Arrays.asList("ORDER_DATE", "Order_Id", "status"));
+        assert "ORDER_DATE".equals(set.ceiling("o"));
+        assert "customer_name".equals(set.floor("Customer_Zip"));
+
+        Set<String> orders = set.prefixSet("order_");
+        orders.add("order_total");
+        assert set.contains("ORDER_TOTAL");
+        orders.clear();
+        assert set.size() == 3;
+
+        try
+        {
+            new CaseInsensitiveSet<>(Arrays.asList("a")).prefixSet("a");
+            fail();
+        }
+        catch (UnsupportedOperationException expected)
+        {
+        }
+    }
+
     private static Set get123()
     {
         Set set = new CaseInsensitiveSet();
@@ -0,0 +1,138 @@
+package com.cedarsoftware.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactIntMap
+{
+    @Test
+    public void testTiers()
+    {
+        CompactIntMap map = new CompactIntMap()
+        {
+            protected int compactSize() { return 3; }
+            protected int getNoEntryValue() { return -1; }
+        };
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert map.get(1) == -1;
+        assert map.get((Object) 1) == null;
+        assert map.put(1, 10) == -1;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.put(1, 11) == 10;
+        map.put(2, 20);
+        map.put(-3, 0);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        map.put(Integer.MIN_VALUE, 40);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.size() == 4;
+        assert map.get(-3) == 0;
+        assert map.get(Integer.MIN_VALUE) == 40;
+        assert map.get((Object) Integer.MIN_VALUE) == 40;
+        assert map.get((Object) 2L) == null;    // Long key is not an Integer key
+        assert map.containsValue(40);
+        assert !map.containsValue(41);
+
+        assert map.remove(-3) == 0;
+        assert map.remove(-3) == -1;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        int[] keys = map.keys();
+        Arrays.sort(keys);    // order after leaving the hash table is the table's order
+        assert Arrays.equals(new int[]{Integer.MIN_VALUE, 1, 2}, keys);
+        assert map.toString().contains("2=20");
+        map.remove(2);
+        map.remove(Integer.MIN_VALUE);
+        assert map.remove((Object) 1) == 11;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testAgainstHashMap()
+    {
+        Random random = new Random(42);
+        CompactIntMap map = new CompactIntMap()
+        {
+            protected int compactSize() { return 10; }
+        };
+        Map<Integer, Integer> control = new HashMap<>();
+        for (int i = 0; i < 50000; i++)
+        {
+            int key = random.nextInt(64) << 20;    // keys differing only in the high bits
+            int op = random.nextInt(3);
+            if (op == 0)
+            {
+                Integer save = control.put(key, i);
+                assert map.put(key, i) == (save == null ? 0 : save);
+            }
+            else if (op == 1)
+            {
+                assert Objects.equals(control.remove(key), map.remove((Object) key));
+            }
+            else
+            {
+                assert Objects.equals(control.get(key), map.get((Object) key));
+                assert control.containsKey(key) == map.containsKey(key);
+            }
+            assert control.size() == map.size();
+        }
+        assert control.equals(map);
+        assert map.equals(control);
+        assert control.hashCode() == map.hashCode();
+        assert new HashMap<>(map).equals(control);
+    }
+
+    @Test
+    public void testIterators()
+    {
+        CompactIntMap map = new CompactIntMap();
+        for (int i = 0; i < 100; i++)
+        {
+            map.put(i, i * 10);
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+
+        Iterator<Map.Entry<Integer, Integer>> i = map.entrySet().iterator();
+        try { i.remove(); fail(); } catch (IllegalStateException ignored) { }
+        while (i.hasNext())
+        {
+            Map.Entry<Integer, Integer> entry = i.next();
+            if (entry.getKey() % 2 == 0)
+            {
+                i.remove();
+            }
+            else
+            {
+                entry.setValue(-1);
+            }
+        }
+        assert map.size() == 50;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.get(99) == -1;
+        assert !map.containsKey(98);
+
+        map.keySet().remove(99);
+        assert !map.containsKey(99);
+        map.values().clear();
+        assert map.isEmpty();
+    }
+}
@@ -0,0 +1,153 @@
+package com.cedarsoftware.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactLongMap
+{
+    @Test
+    public void testTiers()
+    {
+        CompactLongMap<String> map = new CompactLongMap<String>()
+        {
+            protected int compactSize() { return 3; }
+        };
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert map.get(1L) == null;
+        assert map.put(1L, "one") == null;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ENTRY;
+        assert "one".equals(map.put(1L, "uno"));
+        map.put(2L, "two");
+        map.put(3L, null);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.containsKey(3L);
+        assert map.containsValue(null);
+        map.put(Long.MIN_VALUE, "min");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.size() == 4;
+        assert map.containsKey(3L);
+        assert map.get(3L) == null;
+        assert map.containsValue(null);
+        assert "min".equals(map.get(Long.MIN_VALUE));
+        assert "min".equals(map.get((Object) Long.MIN_VALUE));
+        assert map.get((Object) 2) == null;    // Integer key is not a Long key
+
+        assert map.remove(3L) == null;
+        assert !map.containsKey(3L);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        long[] keys = map.keys();
+        Arrays.sort(keys);    // order after leaving the hash table is the table's order
+        assert Arrays.equals(new long[]{Long.MIN_VALUE, 1L, 2L}, keys);
+        map.remove(2L);
+        map.remove(Long.MIN_VALUE);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ENTRY;
+        assert "uno".equals(map.remove(1L));
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert map.isEmpty();
+    }
+
+    @Test
+    public void testAgainstHashMap()
+    {
+        Random random = new Random(42);
+        CompactLongMap<Integer> map = new CompactLongMap<Integer>()
+        {
+            protected int compactSize() { return 10; }
+        };
+        Map<Long, Integer> control = new HashMap<>();
+        for (int i = 0; i < 50000; i++)
+        {
+            long key = random.nextInt(64) * 0x100000000L;    // keys differing only in the high bits
+            Integer value = i;
+            int op = random.nextInt(3);
+            if (op == 0)
+            {
+                assert Objects.equals(control.put(key, value), map.put(key, value));
+            }
+            else if (op == 1)
+            {
+                assert Objects.equals(control.remove(key), map.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(control.get(key), map.get(key));
+                assert control.containsKey(key) == map.containsKey(key);
+            }
+            assert control.size() == map.size();
+        }
+        assert control.equals(map);
+        assert map.equals(control);
+        assert control.hashCode() == map.hashCode();
+        assert new HashMap<>(map).equals(control);
+    }
+
+    @Test
+    public void testIterators()
+    {
+        CompactLongMap<String> map = new CompactLongMap<>();
+        for (long i = 0; i < 100; i++)
+        {
+            map.put(i, "v" + i);
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+
+        Iterator<Map.Entry<Long, String>> i = map.entrySet().iterator();
+        try { i.remove(); fail(); } catch (IllegalStateException ignored) { }
+        while (i.hasNext())
+        {
+            Map.Entry<Long, String> entry = i.next();
+            if (entry.getKey() % 2 == 0)
+            {
+                i.remove();
+            }
+            else
+            {
+                entry.setValue("odd");
+            }
+        }
+        assert map.size() == 50;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert "odd".equals(map.get(99L));
+        assert !map.containsKey(98L);
+
+        map.keySet().remove(99L);
+        assert !map.containsKey(99L);
+        map.values().clear();
+        assert map.isEmpty();
+        assert "{}".equals(map.toString());
+    }
+
+    @Test
+    public void testBadCompactSize()
+    {
+        try
+        {
+            new CompactLongMap<String>()
+            {
+                protected int compactSize() { return 1; }
+            };
+            fail();
+        }
+        catch (IllegalStateException ignored) { }
+    }
+}
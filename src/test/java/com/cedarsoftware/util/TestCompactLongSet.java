@@ -0,0 +1,117 @@
+package com.cedarsoftware.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestCompactLongSet
+{
+    @Test
+    public void testTiers()
+    {
+        CompactLongSet set = new CompactLongSet()
+        {
+            protected int compactSize() { return 3; }
+        };
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert !set.contains(0L);
+        assert set.add(0L);
+        assert !set.add(0L);
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        set.add(-1L);
+        set.add(Long.MAX_VALUE);
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        set.add(Long.MIN_VALUE);
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert set.size() == 4;
+        assert set.contains(0L);
+        assert set.contains((Object) Long.MIN_VALUE);
+        assert !set.contains((Object) 0);    // Integer is not a Long
+
+        assert set.remove(-1L);
+        assert !set.remove(-1L);
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        long[] items = set.toLongArray();
+        Arrays.sort(items);    // order after leaving the hash table is the table's order
+        assert Arrays.equals(new long[]{Long.MIN_VALUE, 0L, Long.MAX_VALUE}, items);
+        set.remove(0L);
+        set.remove(Long.MAX_VALUE);
+        assert set.remove((Object) Long.MIN_VALUE);
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert set.isEmpty();
+    }
+
+    @Test
+    public void testAgainstHashSet()
+    {
+        Random random = new Random(42);
+        CompactLongSet set = new CompactLongSet()
+        {
+            protected int compactSize() { return 10; }
+        };
+        Set<Long> control = new HashSet<>();
+        for (int i = 0; i < 50000; i++)
+        {
+            long item = random.nextInt(64) * 0x100000000L;
+            int op = random.nextInt(3);
+            if (op == 0)
+            {
+                assert control.add(item) == set.add(item);
+            }
+            else if (op == 1)
+            {
+                assert control.remove(item) == set.remove(item);
+            }
+            else
+            {
+                assert control.contains(item) == set.contains(item);
+            }
+            assert control.size() == set.size();
+        }
+        assert control.equals(set);
+        assert set.equals(control);
+        assert control.hashCode() == set.hashCode();
+    }
+
+    @Test
+    public void testIterator()
+    {
+        CompactLongSet set = new CompactLongSet();
+        for (long i = 0; i < 100; i++)
+        {
+            set.add(i);
+        }
+        Iterator<Long> i = set.iterator();
+        try { i.remove(); fail(); } catch (IllegalStateException ignored) { }
+        while (i.hasNext())
+        {
+            if (i.next() % 2 == 0)
+            {
+                i.remove();
+            }
+        }
+        assert set.size() == 50;
+        assert set.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert !set.contains(98L);
+        assert set.contains(99L);
+    }
+}
@@ -3241,6 +3241,585 @@ public class TestCompactMap
         assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;    // ensure switch over
     }
 
+    @Test
+    public void testHashIndexed()
+    {
+        testLookupHelper(10, false, true);
+        testLookupHelper(80, true, true);
+        testLookupHelper(300, false, true);   // index switches from byte[] to char[] above 254 entries
+    }
+
+    @Test
+    public void testKeyHashCached()
+    {
+        testLookupHelper(10, false, false);
+        testLookupHelper(80, true, false);
+        testLookupHelper(300, true, false);
+    }
+
+    private void testLookupHelper(final int compactSize, final boolean caseInsensitive, final boolean hashIndexed)
+    {
+        CompactMap<Object, Object> map = new CompactMap<Object, Object>()
+        {
+            protected Map<Object, Object> getNewMap() { return caseInsensitive ? new CaseInsensitiveMap<>() : new LinkedHashMap<>(); }
+            protected boolean isCaseInsensitive() { return caseInsensitive; }
+            protected boolean isHashIndexed() { return hashIndexed; }
+            protected boolean isKeyHashCached() { return !hashIndexed; }
+            protected int compactSize() { return compactSize; }
+        };
+        Map<Object, Object> expected = caseInsensitive ? new CaseInsensitiveMap<>() : new LinkedHashMap<>();
+
+        Random random = new Random(42);
+        for (int i = 0; i < compactSize * 20; i++)
+        {
+            Object key = random.nextInt(4) == 0 ? (Object) random.nextInt(compactSize + 5) : "Key" + random.nextInt(compactSize + 5);
+            if (caseInsensitive && key instanceof String && random.nextBoolean())
+            {
+                key = ((String) key).toUpperCase();
+            }
+            if (random.nextInt(3) == 0)
+            {
+                assert Objects.equals(map.remove(key), expected.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(map.put(key, i), expected.put(key, i));
+            }
+            assert map.size() == expected.size();
+            assert map.containsKey(key) == expected.containsKey(key);
+            assert Objects.equals(map.get(key), expected.get(key));
+        }
+
+        assert map.equals(expected);
+        assert expected.equals(map);
+        for (Object key : expected.keySet())
+        {
+            assert map.containsKey(key);
+        }
+
+        // Drop down into the Object[] and verify insertion order is retained (uses LinkedHashMap copy on iteration)
+        while (map.size() > compactSize / 2)
+        {
+            Object key = map.keySet().iterator().next();
+            assert Objects.equals(map.remove(key), expected.remove(key));
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.containsKey(null) == expected.containsKey(null);
+        map.put(null, "nil");
+        expected.put(null, "nil");
+        assert "nil".equals(map.get(null));
+        assert !map.containsKey("nil");
+        assert map.equals(expected);
+
+        // hashCode() from cached hashes matches hashCode() computed from the keys
+        CompactMap<Object, Object> plain = new CompactMap<Object, Object>()
+        {
+            protected boolean isCaseInsensitive() { return caseInsensitive; }
+            protected int compactSize() { return compactSize; }
+        };
+        plain.putAll(map);
+        assert map.hashCode() == plain.hashCode();
+    }
+
+    @Test
+    public void testCompactCIKeyHashCached()
+    {
+        CompactCILinkedMap<String, Object> map = new CompactCILinkedMap<>();
+        assert map.isKeyHashCached();
+        for (int i = 0; i < map.compactSize(); i++)
+        {
+            map.put("Key" + i, i);
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        for (int i = 0; i < map.compactSize(); i++)
+        {
+            assert (Integer) map.get("KEY" + i) == i;
+            assert map.containsKey("key" + i);
+        }
+        assert !map.containsKey("key" + map.compactSize());
+        assert (Integer) map.remove("kEy7") == 7;
+        assert !map.containsKey("KEY7");
+        assert (Integer) map.get("KEY8") == 8;
+        map.put("KEY7", 7);
+        assert map.keySet().toArray()[map.size() - 1].equals("KEY7");
+        assert (Integer) map.get("key" + (map.compactSize() - 1)) == map.compactSize() - 1;
+    }
+
+    @Test
+    public void testHashIndexedTransitions()
+    {
+        CompactMap<String, Object> map = new CompactMap<String, Object>()
+        {
+            protected String getSingleValueKey() { return "key1"; }
+            protected boolean isHashIndexed() { return true; }
+            protected int compactSize() { return 3; }
+            protected Map<String, Object> getNewMap() { return new LinkedHashMap<>(); }
+        };
+
+        map.put("key1", "foo");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.OBJECT;
+        map.put("key2", "bar");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.size() == 2;
+        map.put("key3", "baz");
+        assert map.size() == 3;
+        assert "bar".equals(map.put("key2", "BAR"));
+        assert map.size() == 3;
+        map.put("key4", "qux");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+
+        assert "qux".equals(map.remove("key4"));
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.size() == 3;
+        assert "foo".equals(map.get("key1"));
+        assert "BAR".equals(map.get("key2"));
+        assert "baz".equals(map.get("key3"));
+        assert !map.containsKey("key4");
+        assert map.containsValue("baz");
+        assert map.toString().equals("{key1=foo, key2=BAR, key3=baz}");
+
+        assert "BAR".equals(map.remove("key2"));
+        assert map.size() == 2;
+        assert "baz".equals(map.get("key3"));
+        assert map.remove("key2") == null;
+        assert "baz".equals(map.remove("key3"));
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.OBJECT;
+    }
+
+    @Test
+    public void testHashIndexedHashesOnlyNewKey()
+    {
+        testHashesOnlyNewKeyHelper(true);
+    }
+
+    @Test
+    public void testKeyHashCachedHashesOnlyNewKey()
+    {
+        testHashesOnlyNewKeyHelper(false);
+    }
+
+    private void testHashesOnlyNewKeyHelper(final boolean hashIndexed)
+    {
+        CompactMap<Object, Object> map = new CompactMap<Object, Object>()
+        {
+            protected boolean isHashIndexed() { return hashIndexed; }
+            protected boolean isKeyHashCached() { return !hashIndexed; }
+            protected int compactSize() { return 300; }
+        };
+        int[] hashCount = new int[1];
+
+        for (int i = 0; i < 300; i++)
+        {
+            map.put(new CountingKey(i, hashCount), i);
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert hashCount[0] == 300;     // each key hashed once, not again when the Object[] is resized
+
+        hashCount[0] = 0;
+        for (int i = 0; i < 200; i++)
+        {
+            assert (Integer) map.remove(new CountingKey(i, hashCount)) == i;
+        }
+        assert hashCount[0] == 200;     // only the key passed to remove()
+        for (int i = 200; i < 300; i++)
+        {
+            assert (Integer) map.get(new CountingKey(i, hashCount)) == i;
+        }
+        assert !map.containsKey(new CountingKey(0, hashCount));
+    }
+
+    private static final class CountingKey
+    {
+        private final int value;
+        private final int[] hashCount;
+
+        private CountingKey(int value, int[] hashCount)
+        {
+            this.value = value;
+            this.hashCount = hashCount;
+        }
+
+        public int hashCode()
+        {
+            hashCount[0]++;
+            return value;
+        }
+
+        public boolean equals(Object obj)
+        {
+            return obj instanceof CountingKey && ((CountingKey) obj).value == value;
+        }
+    }
+
+    @Test
+    public void testSorted()
+    {
+        testSortedHelper(false);
+        testSortedHelper(true);
+    }
+
+    private void testSortedHelper(final boolean caseInsensitive)
+    {
+        CompactMap<String, Object> map = new CompactMap<String, Object>()
+        {
+            protected boolean isCaseInsensitive() { return caseInsensitive; }
+            protected boolean isSorted() { return true; }
+            protected int compactSize() { return 10; }
+        };
+        Map<String, Object> expected = caseInsensitive ? new TreeMap<>(String.CASE_INSENSITIVE_ORDER) : new TreeMap<>();
+        assert map.getNewMap() instanceof TreeMap;
+
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++)
+        {
+            String key = (random.nextBoolean() ? "k" : "K") + random.nextInt(20);
+            if (random.nextInt(3) == 0)
+            {
+                assert Objects.equals(map.remove(key), expected.remove(key));
+            }
+            else
+            {
+                assert Objects.equals(map.put(key, i), expected.put(key, i));
+            }
+            assert map.size() == expected.size();
+            assert Objects.equals(map.get(key), expected.get(key));
+            assert map.containsKey(key) == expected.containsKey(key);
+
+            // Iteration is in key order, in every storage tier
+            assert new ArrayList<>(map.keySet()).equals(new ArrayList<>(expected.keySet()));
+            assert new ArrayList<>(map.values()).equals(new ArrayList<>(expected.values()));
+        }
+    }
+
+    @Test
+    public void testSortedTransitions()
+    {
+        CompactMap<String, Object> map = new CompactMap<String, Object>()
+        {
+            protected String getSingleValueKey() { return "m"; }
+            protected boolean isSorted() { return true; }
+            protected boolean isHashIndexed() { return true; }   // sorted takes precedence
+            protected int compactSize() { return 3; }
+        };
+
+        map.put("m", 1);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.OBJECT;
+        map.put("c", 2);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.keySet().iterator().next().equals("c");
+        map.put("z", 3);
+        map.put("a", 4);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.toString().equals("{a=4, c=2, m=1, z=3}");
+
+        map.remove("m");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.toString().equals("{a=4, c=2, z=3}");
+        assert (Integer) map.get("z") == 3;
+        assert !map.containsKey("m");
+        map.put("b", 5);
+        assert map.toString().equals("{a=4, b=5, c=2, z=3}");
+
+        try
+        {
+            map.containsKey(null);
+            fail();
+        }
+        catch (NullPointerException ignored) { }
+    }
+
+    @Test
+    public void testDemoteSize()
+    {
+        testDemoteSizeHelper(4, false, false);
+        testDemoteSizeHelper(4, true, false);
+        testDemoteSizeHelper(4, false, true);
+        testDemoteSizeHelper(1, false, false);
+        testDemoteSizeHelper(0, true, false);
+    }
+
+    private void testDemoteSizeHelper(final int demoteSize, final boolean hashIndexed, final boolean sorted)
+    {
+        CompactMap<String, Object> map = new CompactMap<String, Object>()
+        {
+            protected String getSingleValueKey() { return "k0"; }
+            protected boolean isHashIndexed() { return hashIndexed; }
+            protected boolean isSorted() { return sorted; }
+            protected int compactSize() { return 10; }
+            protected int demoteSize() { return demoteSize; }
+            protected Map<String, Object> getNewMap() { return sorted ? new TreeMap<>() : new LinkedHashMap<>(); }
+        };
+
+        Map<String, Object> copy = new HashMap<>();
+        for (int i = 0; i < 11; i++)
+        {
+            map.put("k" + i, i);
+            copy.put("k" + i, i);
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+
+        // Remove down to just above the low-water mark - stays a Map
+        Iterator<String> i = map.keySet().iterator();
+        while (map.size() > demoteSize + 1)
+        {
+            copy.remove(i.next());
+            i.remove();
+            assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        }
+
+        // Hysteresis - adding back up to compactSize() does not re-create the Object[]
+        map.put("x", "x");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        map.remove("x");
+
+        // Crossing the low-water mark demotes
+        copy.remove(i.next());
+        i.remove();
+        assert map.size() == demoteSize;
+        if (demoteSize == 0)
+        {
+            assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        }
+        else if (demoteSize == 1)
+        {
+            assert map.getLogicalValueType() == (copy.containsKey("k0") ? CompactMap.LogicalValueType.OBJECT : CompactMap.LogicalValueType.ENTRY);
+        }
+        else
+        {
+            assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        }
+        assert map.equals(copy);
+        for (Map.Entry<String, Object> entry : copy.entrySet())
+        {
+            assert map.get(entry.getKey()).equals(entry.getValue());
+        }
+        if (sorted)
+        {
+            List<String> keys = new ArrayList<>(map.keySet());
+            List<String> ordered = new ArrayList<>(keys);
+            Collections.sort(ordered);
+            assert keys.equals(ordered);
+        }
+
+        // Grow back into the Map
+        for (int j = 0; j < 11; j++)
+        {
+            map.put("k" + j, j);
+        }
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.size() == 11;
+    }
+
+    @Test
+    public void testBadDemoteSize()
+    {
+        try
+        {
+            new CompactMap<String, Object>()
+            {
+                protected int demoteSize() { return compactSize() + 1; }
+            };
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assert e.getMessage().contains("demoteSize");
+        }
+    }
+
+    @Test
+    public void testMinimalPerfectHash()
+    {
+        Random random = new Random(11);
+        for (int n = 1; n < 2000; n += 1 + n / 8)
+        {
+            Set<Integer> unique = new LinkedHashSet<>();
+            while (unique.size() < n)
+            {
+                unique.add(random.nextInt());
+            }
+            int[] hashes = new int[n];
+            int i = 0;
+            for (Integer hash : unique)
+            {
+                hashes[i++] = hash;
+            }
+
+            Object table = MinimalPerfectHash.build(hashes);
+            assert table != null;
+            assert n > 64 || table instanceof byte[];
+            assert n < 256 || table instanceof char[];
+            assert MinimalPerfectHash.length(table) == 2 * n;
+
+            // Every key maps to its own position - a bijection onto 0 thru n - 1
+            for (int j = 0; j < n; j++)
+            {
+                assert MinimalPerfectHash.find(table, n, hashes[j]) == j;
+            }
+            // Unknown hashes still land on some position
+            for (int j = 0; j < 100; j++)
+            {
+                int pos = MinimalPerfectHash.find(table, n, random.nextInt());
+                assert pos >= 0 && pos < n;
+            }
+        }
+
+        assert MinimalPerfectHash.build(new int[0]) == null;
+
+        // Keys with the same hash code share a slot, chained in position order
+        Object table = MinimalPerfectHash.build(new int[]{5, 7, 5, 5});
+        assert MinimalPerfectHash.length(table) == 4;
+        assert MinimalPerfectHash.find(table, 4, 5) == 0;
+        assert MinimalPerfectHash.next(table, 0) == 2;
+        assert MinimalPerfectHash.next(table, 2) == 3;
+        assert MinimalPerfectHash.next(table, 3) == -1;
+        assert MinimalPerfectHash.find(table, 4, 7) == 1;
+        assert MinimalPerfectHash.next(table, 1) == -1;
+
+        // Past 65535 keys, the table is an int[]
+        int n = 70000;
+        int[] hashes = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            hashes[i] = i * 0x9E3779B9;
+        }
+        table = MinimalPerfectHash.build(hashes);
+        assert table instanceof int[];
+        for (int i = 0; i < n; i++)
+        {
+            assert MinimalPerfectHash.find(table, n, hashes[i]) == i;
+        }
+    }
+
+    @Test
+    public void testFreeze()
+    {
+        CompactMap<String, Object> map = new CompactLinkedMap<>();
+        Map<String, Object> control = new LinkedHashMap<>();
+        for (int i = 0; i < 300; i++)
+        {
+            Map<String, Object> frozen = map.freeze();
+            assert frozen.equals(control);
+            assert control.equals(frozen);
+            assert frozen.hashCode() == control.hashCode();
+            assert frozen.toString().equals(control.toString());
+            assert new ArrayList<>(frozen.keySet()).equals(new ArrayList<>(control.keySet()));
+            assert new ArrayList<>(frozen.values()).equals(new ArrayList<>(control.values()));
+            for (String key : control.keySet())
+            {
+                assert frozen.containsKey(key);
+                assert frozen.get(key).equals(control.get(key));
+            }
+            assert !frozen.containsKey("nope");
+            assert frozen.get("KEY0") == null;
+            assert !frozen.containsKey(null);
+
+            String key = "key" + i;
+            map.put(key, i);
+            control.put(key, i);
+        }
+
+        Map<String, Object> frozen = CompactMap.copyOf(control);
+        assert frozen.entrySet().contains(new AbstractMap.SimpleEntry<>("key5", 5));
+        assert !frozen.entrySet().contains(new AbstractMap.SimpleEntry<>("key5", 6));
+        assert frozen.containsValue(299);
+        assert !frozen.containsValue(300);
+        assert CompactMap.copyOf(frozen) == frozen;
+
+        try { frozen.put("a", 1); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.remove("key1"); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.clear(); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.putAll(control); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.keySet().iterator().remove(); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.entrySet().iterator().next().setValue(1); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.computeIfAbsent("x", k -> 1); fail(); } catch (UnsupportedOperationException ignored) { }
+        assert frozen.size() == 300;
+    }
+
+    @Test
+    public void testFreezeCaseInsensitive()
+    {
+        CompactMap<String, Object> map = new CompactCIHashMap<>();
+        map.put("Alpha", 1);
+        map.put("BETA", 2);
+        map.put(null, 3);
+        map.put("gamma", null);
+        Map<String, Object> frozen = map.freeze();
+        assert frozen.get("ALPHA").equals(1);
+        assert frozen.get("beta").equals(2);
+        assert frozen.get(null).equals(3);
+        assert frozen.containsKey("GAMMA");
+        assert frozen.get("GAMMA") == null;
+        assert !frozen.containsKey("delta");
+        assert frozen.equals(map);
+        assert map.equals(frozen);
+        assert frozen.hashCode() == map.hashCode();
+
+        CaseInsensitiveMap<String, Object> ciMap = new CaseInsensitiveMap<>();
+        ciMap.put("One", 1);
+        ciMap.put("Two", 2);
+        frozen = CompactMap.copyOf(ciMap);
+        assert frozen.get("ONE").equals(1);
+        assert frozen.keySet().contains("two");
+        assert frozen.keySet().iterator().next().equals("One");
+
+        // Keys with the same hash code share a slot of the perfect hash
+        assert "Aa".hashCode() == "BB".hashCode();
+        Map<String, Object> colliding = new LinkedHashMap<>();
+        colliding.put("Aa", 1);
+        colliding.put("BB", 2);
+        colliding.put("C", 3);
+        frozen = CompactMap.copyOf(colliding);
+        assert frozen.get("Aa").equals(1);
+        assert frozen.get("BB").equals(2);
+        assert frozen.get("C").equals(3);
+        assert frozen.get("aa") == null;
+    }
+
+    @Test
+    public void testFreezeCollidingKeys()
+    {
+        // 20 groups of 256 keys with equal hash codes ("Aa" and "BB" hash alike), plus 1000 keys of their own
+        Map<String, Object> source = new LinkedHashMap<>();
+        for (int group = 0; group < 20; group++)
+        {
+            for (int bits = 0; bits < 256; bits++)
+            {
+                source.put(collidingKey("k" + group, bits), group * 256 + bits);
+            }
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            source.put("key" + i, -i);
+        }
+
+        Map<String, Object> frozen = CompactMap.copyOf(source);
+        assert frozen.size() == source.size();
+        assert new ArrayList<>(frozen.keySet()).equals(new ArrayList<>(source.keySet()));
+        for (Map.Entry<String, Object> entry : source.entrySet())
+        {
+            assert frozen.get(entry.getKey()).equals(entry.getValue());
+        }
+        // Same hash code as a group, but not a key ("C#" also hashes like "Aa")
+        assert "C#".hashCode() == "Aa".hashCode();
+        assert !frozen.containsKey("k3C#AaAaAaAaAaAaAa");
+        assert collidingKey("k3", 0).hashCode() == "k3C#AaAaAaAaAaAaAa".hashCode();
+        assert !frozen.containsKey("key1000");
+    }
+
+    /**
+     * @return prefix followed by 8 two letter blocks, "Aa" or "BB" per bit - all 256 have the same hash code.
+     */
+    static String collidingKey(String prefix, int bits)
+    {
+        StringBuilder key = new StringBuilder(prefix);
+        for (int i = 0; i < 8; i++)
+        {
+            key.append((bits & (1 << i)) == 0 ? "Aa" : "BB");
+        }
+        return key.toString();
+    }
+
     @Ignore
     @Test
     public void testPerformance()
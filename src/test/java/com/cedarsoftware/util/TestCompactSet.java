@@ -3,8 +3,12 @@ package com.cedarsoftware.util;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -363,6 +367,170 @@ public class TestCompactSet
     }
 
 
+    @Test
+    public void testSorted()
+    {
+        testSortedHelper(false);
+        testSortedHelper(true);
+    }
+
+    private void testSortedHelper(final boolean caseInsensitive)
+    {
+        CompactSet<String> set = new CompactSet<String>()
+        {
+            protected boolean isCaseInsensitive() { return caseInsensitive; }
+            protected boolean isSorted() { return true; }
+            protected int compactSize() { return 10; }
+        };
+        Set<String> expected = caseInsensitive ? new TreeSet<>(String.CASE_INSENSITIVE_ORDER) : new TreeSet<>();
+        assert set.getNewSet() instanceof TreeSet;
+
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++)
+        {
+            String item = (random.nextBoolean() ? "i" : "I") + random.nextInt(20);
+            if (random.nextInt(3) == 0)
+            {
+                assert set.remove(item) == expected.remove(item);
+            }
+            else
+            {
+                assert set.add(item) == expected.add(item);
+            }
+            assert set.size() == expected.size();
+            assert set.contains(item) == expected.contains(item);
+            assert new ArrayList<>(set).equals(new ArrayList<>(expected));
+        }
+
+        Iterator<String> i = set.iterator();
+        while (i.hasNext())
+        {
+            i.next();
+            i.remove();
+        }
+        assert set.isEmpty();
+    }
+
+    @Test
+    public void testDemoteSize()
+    {
+        testDemoteSizeHelper(3);
+        testDemoteSizeHelper(0);
+    }
+
+    private void testDemoteSizeHelper(final int demoteSize)
+    {
+        CompactSet<String> set = new CompactSet<String>()
+        {
+            protected int compactSize() { return 5; }
+            protected int demoteSize() { return demoteSize; }
+        };
+
+        for (int i = 0; i < 6; i++)
+        {
+            set.add("i" + i);
+        }
+        int memory = sizeOfVal(set);
+        while (set.size() > demoteSize + 1)
+        {
+            set.remove("i" + (6 - set.size()));
+            assert sizeOfVal(set) == memory;    // still a HashSet
+        }
+        set.add("x");
+        set.remove("x");
+        set.remove("i" + (6 - set.size()));
+        assert set.size() == demoteSize;
+        assert demoteSize == 0 ? set.isEmpty() : sizeOfVal(set) == demoteSize;
+        for (int i = 6 - demoteSize; i < 6; i++)
+        {
+            assert set.contains("i" + i);
+        }
+
+        try
+        {
+            new CompactSet<String>()
+            {
+                protected int demoteSize() { return -1; }
+            };
+            fail();
+        }
+        catch (IllegalStateException ignored) { }
+    }
+
+    private static int sizeOfVal(CompactSet<?> set)
+    {   // -1 for the Set tier, otherwise length of the Object[]
+        try
+        {
+            java.lang.reflect.Field field = CompactSet.class.getDeclaredField("val");
+            field.setAccessible(true);
+            Object val = field.get(set);
+            return val instanceof Object[] ? ((Object[]) val).length : -1;
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testFreeze()
+    {
+        CompactSet<String> set = new CompactLinkedSet<>();
+        for (int i = 0; i < 100; i++)
+        {
+            Set<String> frozen = set.freeze();
+            assert frozen.equals(set);
+            assert set.equals(frozen);
+            assert frozen.hashCode() == set.hashCode();
+            assert new ArrayList<>(frozen).equals(new ArrayList<>(set));
+            for (String item : set)
+            {
+                assert frozen.contains(item);
+            }
+            assert !frozen.contains("nope");
+            assert !frozen.contains(null);
+            set.add("item" + i);
+        }
+
+        Set<String> frozen = CompactSet.copyOf(Arrays.asList("a", "b", "a", null));
+        assert frozen.size() == 3;
+        assert frozen.contains(null);
+        assert frozen.contains("b");
+        assert CompactSet.copyOf(frozen) == frozen;
+        try { frozen.add("c"); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.remove("a"); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.clear(); fail(); } catch (UnsupportedOperationException ignored) { }
+        try { frozen.iterator().remove(); fail(); } catch (UnsupportedOperationException ignored) { }
+
+        Set<String> ci = CompactSet.copyOf(new CaseInsensitiveSet<>(Arrays.asList("Alpha", "BETA")));
+        assert ci.contains("alpha");
+        assert ci.contains("Beta");
+        assert !ci.contains("gamma");
+        ci = new CompactCIHashSet<>(Arrays.asList("Alpha", "BETA")).freeze();
+        assert ci.contains("ALPHA");
+    }
+
+    @Test
+    public void testFreezeCollidingItems()
+    {
+        Set<String> source = new LinkedHashSet<>();
+        for (int group = 0; group < 20; group++)
+        {
+            for (int bits = 0; bits < 256; bits++)
+            {
+                source.add(TestCompactMap.collidingKey("k" + group, bits));
+            }
+        }
+        Set<String> frozen = CompactSet.copyOf(source);
+        assert frozen.equals(source);
+        for (String item : source)
+        {
+            assert frozen.contains(item);
+        }
+        assert !frozen.contains("k3C#AaAaAaAaAaAaAa");
+        assert !frozen.contains("k20AaAaAaAaAaAaAaAa");
+    }
+
     @Ignore
     @Test
     public void testPerformance()
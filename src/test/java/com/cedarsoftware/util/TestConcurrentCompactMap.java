@@ -0,0 +1,362 @@
+package com.cedarsoftware.util;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestConcurrentCompactMap
+{
+    @Test
+    public void testTransitions()
+    {
+        ConcurrentCompactMap<String, Object> map = new ConcurrentCompactMap<String, Object>()
+        {
+            protected int compactSize() { return 3; }
+        };
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert map.isEmpty();
+        assert map.get("a") == null;
+
+        assert map.put("a", 1) == null;
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ENTRY;
+        assert map.put("a", 2).equals(1);
+        assert map.size() == 1;
+        assert map.get("a").equals(2);
+
+        map.put("b", 3);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        map.put("c", 4);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.size() == 3;
+
+        map.put("d", 5);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.size() == 4;
+        assert map.get("a").equals(2);
+        assert map.get("d").equals(5);
+
+        // Stays a ConcurrentMap once promoted
+        map.remove("d");
+        map.remove("c");
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert map.size() == 2;
+
+        map.clear();
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        assert map.remove("b").equals(2);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ARRAY;
+        assert map.remove("a").equals(1);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.ENTRY;
+        assert map.get("c").equals(3);
+        assert map.remove("x") == null;
+        assert map.remove("c").equals(3);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.EMPTY;
+        assert map.remove("c") == null;
+    }
+
+    @Test
+    public void testAgainstHashMap()
+    {
+        Random random = new Random(42);
+        ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<String, Integer>()
+        {
+            protected int compactSize() { return 10; }
+        };
+        Map<String, Integer> control = new HashMap<>();
+        for (int i = 0; i < 20000; i++)
+        {
+            String key = "k" + random.nextInt(16);
+            Integer value = random.nextInt(4);
+            switch (random.nextInt(7))
+            {
+                case 0:
+                case 1:
+                    assert Objects.equals(map.put(key, value), control.put(key, value));
+                    break;
+                case 2:
+                    assert Objects.equals(map.remove(key), control.remove(key));
+                    break;
+                case 3:
+                    assert Objects.equals(map.putIfAbsent(key, value), control.putIfAbsent(key, value));
+                    break;
+                case 4:
+                    assert map.remove(key, value) == control.remove(key, value);
+                    break;
+                case 5:
+                    assert map.replace(key, value, value + 1) == control.replace(key, value, value + 1);
+                    break;
+                default:
+                    assert Objects.equals(map.replace(key, value), control.replace(key, value));
+            }
+            if (random.nextInt(500) == 0)
+            {
+                map.clear();
+                control.clear();
+            }
+            assert map.size() == control.size();
+            assert map.get(key) == control.get(key);
+            assert map.containsKey(key) == control.containsKey(key);
+            assert map.containsValue(value) == control.containsValue(value);
+        }
+        assert map.equals(control);
+        assert control.equals(map);
+        assert map.hashCode() == control.hashCode();
+        assert new HashMap<>(map).equals(control);
+        assert map.keySet().equals(control.keySet());
+        assert new HashSet<>(map.values()).equals(new HashSet<>(control.values()));
+    }
+
+    @Test
+    public void testIteratorsAndViews()
+    {
+        for (int size : new int[]{0, 1, 2, 5, 12})
+        {
+            ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<String, Integer>()
+            {
+                protected int compactSize() { return 5; }
+            };
+            for (int i = 0; i < size; i++)
+            {
+                map.put("k" + i, i);
+            }
+            assert map.entrySet().size() == size;
+            assert map.toString().equals(new LinkedHashMap<>(map).toString());
+
+            // setValue() writes through
+            for (Map.Entry<String, Integer> entry : map.entrySet())
+            {
+                entry.setValue(entry.getValue() + 100);
+            }
+            for (int i = 0; i < size; i++)
+            {
+                assert map.get("k" + i) == i + 100;
+            }
+            assert size == 0 || map.entrySet().contains(new AbstractMap.SimpleEntry<>("k0", 100));
+            assert !map.entrySet().contains(new AbstractMap.SimpleEntry<>("k0", 0));
+
+            // Iterator remove() writes through
+            Iterator<String> i = map.keySet().iterator();
+            while (i.hasNext())
+            {
+                if (i.next().hashCode() % 2 == 0)
+                {
+                    i.remove();
+                }
+            }
+            for (int j = 0; j < size; j++)
+            {
+                String key = "k" + j;
+                assert map.containsKey(key) == (key.hashCode() % 2 != 0);
+            }
+
+            map.values().clear();
+            assert map.isEmpty();
+            try
+            {
+                map.entrySet().iterator().next();
+                fail();
+            }
+            catch (NoSuchElementException ignored) { }
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveBeforeNext()
+    {
+        ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<>();
+        map.put("a", 1);
+        try
+        {
+            map.keySet().iterator().remove();
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assert e.getMessage().contains("before calling next");
+        }
+    }
+
+    @Test
+    public void testNulls()
+    {
+        ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<>();
+        try { map.put(null, 1); fail(); } catch (NullPointerException ignored) { }
+        try { map.put("a", null); fail(); } catch (NullPointerException ignored) { }
+        try { map.get(null); fail(); } catch (NullPointerException ignored) { }
+        try { map.containsValue(null); fail(); } catch (NullPointerException ignored) { }
+        map.put("a", 1);
+        try { map.entrySet().iterator().next().setValue(null); fail(); } catch (NullPointerException ignored) { }
+        assert map.get("a") == 1;
+    }
+
+    @Test
+    public void testBadCompactSize()
+    {
+        try
+        {
+            new ConcurrentCompactMap<String, Object>()
+            {
+                protected int compactSize() { return 1; }
+            };
+            fail();
+        }
+        catch (IllegalStateException e)
+        {
+            assert e.getMessage().contains("compactSize");
+        }
+    }
+
+    @Test
+    public void testCustomNewMap()
+    {
+        ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<String, Integer>()
+        {
+            protected int compactSize() { return 2; }
+            protected ConcurrentMap<String, Integer> getNewMap() { return new ConcurrentSkipListMap<>(); }
+        };
+        map.put("c", 3);
+        map.put("a", 1);
+        map.put("b", 2);
+        assert map.getLogicalValueType() == CompactMap.LogicalValueType.MAP;
+        assert new ArrayList<>(map.keySet()).equals(Arrays.asList("a", "b", "c"));
+
+        Map<String, Integer> copy = new ConcurrentCompactMap<>(map);
+        assert copy.equals(map);
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws Exception
+    {
+        final ConcurrentCompactMap<String, Integer> map = new ConcurrentCompactMap<String, Integer>()
+        {
+            protected int compactSize() { return 20; }
+        };
+        // "fixed" keys are always present with a value equal to their number - readers must always see them.
+        for (int i = 0; i < 5; i++)
+        {
+            map.put("fixed" + i, i);
+        }
+
+        final int writers = 4;
+        final int readers = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++)
+        {
+            final int id = w;
+            threads.add(new Thread(() -> {
+                try
+                {
+                    start.await();
+                    Random random = new Random(id);
+                    for (int i = 0; i < 20000; i++)
+                    {
+                        String key = "w" + id + "_" + random.nextInt(8);
+                        if (random.nextBoolean())
+                        {
+                            map.put(key, i);
+                        }
+                        else
+                        {
+                            map.remove(key);
+                        }
+                    }
+                }
+                catch (Throwable t)
+                {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (int r = 0; r < readers; r++)
+        {
+            threads.add(new Thread(() -> {
+                try
+                {
+                    start.await();
+                    while (!done.get())
+                    {
+                        for (int i = 0; i < 5; i++)
+                        {
+                            Integer value = map.get("fixed" + i);
+                            if (value == null || value != i)
+                            {
+                                throw new IllegalStateException("Lost fixed" + i + ", found: " + value);
+                            }
+                        }
+                        int count = 0;
+                        for (Map.Entry<String, Integer> entry : map.entrySet())
+                        {
+                            if (entry.getKey().startsWith("fixed"))
+                            {
+                                count++;
+                            }
+                        }
+                        if (count != 5)
+                        {
+                            throw new IllegalStateException("Iteration saw " + count + " fixed entries");
+                        }
+                    }
+                }
+                catch (Throwable t)
+                {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        start.countDown();
+        for (int i = 0; i < writers; i++)
+        {
+            threads.get(i).join();
+        }
+        done.set(true);
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assert failure.get() == null : failure.get();
+        for (int i = 0; i < 5; i++)
+        {
+            assert map.get("fixed" + i) == i;
+        }
+        assert new HashMap<>(map).equals(new ConcurrentHashMap<>(map));
+    }
+}
@@ -0,0 +1,163 @@
+package com.cedarsoftware.util;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.fail;
+
+/**
+ * @author John DeRegnaucourt (jdereg@gmail.com)
+ *         <br>
+ *         Copyright (c) Cedar Software LLC
+ *         <br><br>
+ *         Licensed under the Apache License, Version 2.0 (the "License");
+ *         you may not use this file except in compliance with the License.
+ *         You may obtain a copy of the License at
+ *         <br><br>
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *         <br><br>
+ *         Unless required by applicable law or agreed to in writing, software
+ *         distributed under the License is distributed on an "AS IS" BASIS,
+ *         WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *         See the License for the specific language governing permissions and
+ *         limitations under the License.
+ */
+public class TestConcurrentCompactSet
+{
+    @Test
+    public void testSimpleCases()
+    {
+        Set<String> set = new ConcurrentCompactSet<>();
+        assert set.isEmpty();
+        assert !set.contains("foo");
+        assert !set.remove("foo");
+        assert set.add("foo");
+        assert !set.add("foo");
+        assert set.size() == 1;
+        assert set.contains("foo");
+        assert !set.remove("bar");
+        assert set.remove("foo");
+        assert set.isEmpty();
+
+        try { set.add(null); fail(); } catch (NullPointerException ignored) { }
+        try { set.contains(null); fail(); } catch (NullPointerException ignored) { }
+    }
+
+    @Test
+    public void testAgainstHashSet()
+    {
+        Random random = new Random(7);
+        ConcurrentCompactSet<Integer> set = new ConcurrentCompactSet<Integer>()
+        {
+            protected int compactSize() { return 6; }
+        };
+        Set<Integer> control = new HashSet<>();
+        for (int i = 0; i < 10000; i++)
+        {
+            Integer item = random.nextInt(10);
+            if (random.nextBoolean())
+            {
+                assert set.add(item) == control.add(item);
+            }
+            else
+            {
+                assert set.remove(item) == control.remove(item);
+            }
+            if (random.nextInt(300) == 0)
+            {
+                set.clear();
+                control.clear();
+            }
+            assert set.size() == control.size();
+            assert set.contains(item) == control.contains(item);
+        }
+        assert set.equals(control);
+        assert control.equals(set);
+        assert set.hashCode() == control.hashCode();
+
+        Iterator<Integer> i = set.iterator();
+        while (i.hasNext())
+        {
+            if (i.next() % 2 == 0)
+            {
+                i.remove();
+            }
+        }
+        control.removeIf(item -> item % 2 == 0);
+        assert set.equals(control);
+    }
+
+    @Test
+    public void testCustomNewSet()
+    {
+        ConcurrentCompactSet<String> set = new ConcurrentCompactSet<String>()
+        {
+            protected int compactSize() { return 2; }
+            protected Set<String> getNewSet() { return new ConcurrentSkipListSet<>(); }
+        };
+        set.add("c");
+        set.add("a");
+        set.add("b");
+        assert new ArrayList<>(set).equals(Arrays.asList("a", "b", "c"));
+        assert new ConcurrentCompactSet<>(set).equals(set);
+    }
+
+    @Test
+    public void testConcurrentAddRemove() throws Exception
+    {
+        final ConcurrentCompactSet<String> set = new ConcurrentCompactSet<String>()
+        {
+            protected int compactSize() { return 16; }
+        };
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            final int id = t;
+            threads.add(new Thread(() -> {
+                try
+                {
+                    start.await();
+                    for (int i = 0; i < 5000; i++)
+                    {
+                        String item = id + "_" + (i % 4);
+                        set.add(item);
+                        if (!set.contains(item) && (i % 4) == 3)
+                        {   // Only this thread removes its own items, and it only removes items that are not (i % 4) == 3
+                            throw new IllegalStateException("Lost " + item);
+                        }
+                        if ((i % 4) != 3)
+                        {
+                            set.remove(item);
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assert failure.get() == null : failure.get();
+        assert set.size() == 8;
+        for (int t = 0; t < 8; t++)
+        {
+            assert set.contains(t + "_3");
+        }
+    }
+}
@@ -7,17 +7,28 @@ import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Random;
 import java.util.TimeZone;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 import static com.cedarsoftware.util.Converter.*;
 import static com.cedarsoftware.util.TestConverter.fubar.bar;
@@ -49,14 +60,13 @@ public class TestConverter
     }
 
     @Test
-    public void testConstructorIsPrivateAndClassIsFinal() throws Exception
+    public void testConstructorIsPublicAndClassIsFinal() throws Exception
     {
         Class c = Converter.class;
         assertEquals(Modifier.FINAL, c.getModifiers() & Modifier.FINAL);
 
-        Constructor<StringUtilities> con = c.getDeclaredConstructor();
-        assertEquals(Modifier.PRIVATE, con.getModifiers() & Modifier.PRIVATE);
-        con.setAccessible(true);
+        Constructor<Converter> con = c.getDeclaredConstructor();
+        assertEquals(Modifier.PUBLIC, con.getModifiers() & Modifier.PUBLIC);
 
         assertNotNull(con.newInstance());
     }
@@ -1635,4 +1645,516 @@ public class TestConverter
         AtomicLong atomicLong = convertToAtomicLong(ZonedDateTime.of(2020, 9, 8, 13, 11, 1, 0, ZoneId.systemDefault()));
         assert atomicLong.get() == cal.getTime().getTime();
     }
+
+    @Test
+    public void testConverterFor()
+    {
+        Object[] values = {null, "", " ", "42", " -7 ", "1.5", "1e3", "abc", "true", "FALSE", "300", "100000",
+                "70000", "1.5e2", 0, 42, -1, 300, 1L, 5000000000L, (short) 3, (byte) -2, 2.75d, -1.5f, 1e20d,
+                Double.NaN, Float.NaN, true, false, new BigInteger("123456789012345678901234567890"),
+                new BigDecimal("12.50"), new AtomicInteger(9), new AtomicLong(11), 'x', LocalDate.of(2020, 9, 8)};
+        Class<?>[] targets = {String.class, long.class, Long.class, int.class, Integer.class, short.class, Short.class,
+                byte.class, Byte.class, double.class, Double.class, float.class, Float.class, boolean.class,
+                Boolean.class, BigDecimal.class, BigInteger.class, char.class, Character.class, LocalDate.class};
+
+        for (Object value : values)
+        {
+            Class fromType = value == null ? String.class : value.getClass();
+            for (Class<?> toType : targets)
+            {
+                Function converter = converterFor(fromType, toType);
+                Object expected;
+                try
+                {
+                    expected = convert(value, toType);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    try
+                    {
+                        converter.apply(value);
+                        fail(value + " to " + toType);
+                    }
+                    catch (IllegalArgumentException e2)
+                    {
+                        assertEquals(e.getMessage(), e2.getMessage());
+                    }
+                    continue;
+                }
+                Object actual = converter.apply(value);
+                assertEquals(value + " to " + toType, expected, actual);
+                assert expected == null || expected.getClass() == actual.getClass();
+            }
+        }
+
+        Function<String, Long> toLong = converterFor(String.class, Long.class);
+        assert toLong == converterFor(String.class, Long.class);
+        assert toLong != converterFor(String.class, long.class);
+        assert converterFor(String.class, long.class).apply(null).equals(0L);
+        assert toLong.apply(null) == null;
+
+        // Values of another type than the one asked for still convert
+        Function raw = converterFor(String.class, Integer.class);
+        assert raw.apply(17L).equals(17);
+        assert raw.apply(true).equals(1);
+
+        // A subclass converts the same as convert() does, not as the type asked for
+        Function<Date, String> dateToString = converterFor(Date.class, String.class);
+        assert dateToString.apply(new Date(0)).equals(convert(new Date(0), String.class));
+        try
+        {
+            dateToString.apply(new Timestamp(0));
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("Unsupported value type");
+        }
+
+        try
+        {
+            converterFor(String.class, HashMap.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("Unsupported type");
+        }
+        try
+        {
+            converterFor(null, Long.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("cannot be null");
+        }
+    }
+
+    @Test
+    public void testPrimitiveConverters()
+    {
+        Object[] values = {null, "", " ", "42", " -7 ", "1.5", "1e3", "5000000000", "abc", 0, 42, -1, 5000000000L,
+                (short) 3, (byte) -2, 2.75d, -1.5f, 1e20d, true, new BigInteger("123456789012345678901234567890"),
+                new BigDecimal("12.50"), new AtomicInteger(9), new AtomicLong(11), new AtomicBoolean(true), 'x'};
+        for (Object value : values)
+        {
+            Class fromType = value == null ? Object.class : value.getClass();
+            ToIntFunction toInt = toIntConverter(fromType);
+            ToLongFunction toLong = toLongConverter(fromType);
+            ToDoubleFunction toDouble = toDoubleConverter(fromType);
+            assertPrimitiveConversion(value, () -> convertToInteger(value), () -> toInt.applyAsInt(value));
+            assertPrimitiveConversion(value, () -> convertToLong(value), () -> toLong.applyAsLong(value));
+            assertPrimitiveConversion(value, () -> convertToDouble(value), () -> toDouble.applyAsDouble(value));
+            assertPrimitiveConversion(value, () -> convertToInteger(value), () -> convert2int(value));
+            assertPrimitiveConversion(value, () -> convertToLong(value), () -> convert2long(value));
+            assertPrimitiveConversion(value, () -> convertToDouble(value), () -> convert2double(value));
+        }
+
+        // Functions resolved for one type still convert other types
+        assert toLongConverter(String.class).applyAsLong("12") == 12L;
+        ToLongFunction raw = toLongConverter(String.class);
+        assert raw.applyAsLong(new Date(99)) == 99L;
+        assert toDoubleConverter(Integer.class).applyAsDouble(null) == 0.0d;
+        assert toIntConverter(Date.class).applyAsInt(null) == 0;
+    }
+
+    private static void assertPrimitiveConversion(Object value, java.util.concurrent.Callable<Number> boxed, java.util.concurrent.Callable<Number> primitive)
+    {
+        Number expected;
+        try
+        {
+            expected = boxed.call();
+        }
+        catch (Exception e)
+        {
+            try
+            {
+                primitive.call();
+                fail("expected " + e.getMessage());
+            }
+            catch (Exception e2)
+            {
+                assertEquals(e.getMessage(), e2.getMessage());
+            }
+            return;
+        }
+
+        Number actual;
+        try
+        {
+            actual = primitive.call();
+        }
+        catch (Exception e)
+        {
+            throw new AssertionError(value + ": " + e.getMessage(), e);
+        }
+        if (expected == null)
+        {   // convertTo*(null) returns null, the primitive conversions 0
+            assertEquals(0.0d, actual.doubleValue(), 0.0d);
+        }
+        else
+        {
+            assertEquals(String.valueOf(value), expected.doubleValue(), actual.doubleValue(), 0.0d);
+        }
+    }
+
+    @Test
+    public void testPrimitiveConvertersDoNotAllocate()
+    {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled())
+        {
+            return;
+        }
+
+        String[] strings = {"1234567890123", " -42 ", "7.25", "-9000.5e-2"};
+        Object[] numbers = {1234567890123L, 2.5d, 7, new BigDecimal("12.5")};
+        ToLongFunction<String> toLong = toLongConverter(String.class);
+        ToIntFunction<String> toInt = toIntConverter(String.class);
+        ToDoubleFunction<Object> toDouble = toDoubleConverter(Object.class);
+        ToDoubleFunction<StringBuilder> builderToDouble = toDoubleConverter(StringBuilder.class);
+        StringBuilder builder = new StringBuilder("  3.14159 ");
+        long sum = 0;
+        for (int i = 0; i < 1000; i++)
+        {   // warm up
+            sum += toLong.applyAsLong(strings[i % 3]) + toInt.applyAsInt(strings[1]) + (long) toDouble.applyAsDouble(numbers[i & 3]);
+            sum += (long) convert2double(strings[i & 3]) + (long) builderToDouble.applyAsDouble(builder);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < 100000; i++)
+        {
+            sum += toLong.applyAsLong(strings[i % 3]) + toInt.applyAsInt(strings[1]) + (long) toDouble.applyAsDouble(numbers[i & 3]);
+            sum += convert2long(strings[i % 3]) + (long) convert2double(numbers[i & 3]);
+            sum += (long) convert2double(strings[i & 3]) + (long) builderToDouble.applyAsDouble(builder);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        assert sum != 0;
+        assert allocated < 100000 : "conversions allocated " + allocated + " bytes";     // boxing would be > 3MB
+    }
+
+    @Test
+    public void testNumberParsing()
+    {
+        String[] strings = {"0", "-0", "+0", "00012", "  42\t", "\n-7", "+15", "1.5", "-1.5", "-1.99", "12.", ".5", "-.5",
+                "+.5", "-", "+", ".", "", "   ", "1e3", "1E-2", "2.5e+1", "1e", "1e+", "1.2.3", "12a", "0x10", "1_000",
+                "9223372036854775807", "-9223372036854775808", "9223372036854775808", "-9223372036854775809",
+                "99999999999999999999", "2147483647", "-2147483648", "2147483648", "2147483647.9", "NaN", "Infinity",
+                "-Infinity", "1d", "1.5f", "0.1", "0.30000000000000004", "123456789012345", "1234567890123456",
+                "1234567890123456789", "1e22", "1e23", "1e-22", "1e-23", "4.9e-324", "1.7976931348623157e308",
+                "1e400", "-1e-400", "0.000000000000000000000000000001", "\u0661\u0662", "1 2", "- 1", "3.14159265358979"};
+        for (String string : strings)
+        {
+            assertSameConversion(string);
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++)
+        {
+            double d = Double.longBitsToDouble(random.nextLong());
+            assertSameConversion(Double.toString(d));
+            assertSameConversion(String.format("%.6f", random.nextDouble() * 1e6));
+            StringBuilder sb = new StringBuilder();
+            if (random.nextBoolean())
+            {
+                sb.append(random.nextBoolean() ? '-' : '+');
+            }
+            sb.append(random.nextInt(1000000));
+            if (random.nextBoolean())
+            {
+                sb.append('.').append(random.nextInt(100000));
+            }
+            if (random.nextInt(4) == 0)
+            {
+                sb.append('e').append(random.nextInt(60) - 30);
+            }
+            assertSameConversion(sb.toString());
+            assertSameConversion(Long.toString(random.nextLong()));
+        }
+
+        ToLongFunction<StringBuilder> toLong = toLongConverter(StringBuilder.class);
+        assert toLong.applyAsLong(new StringBuilder(" 42 ")) == 42L;
+        assert toLong.applyAsLong(new StringBuilder("1e3")) == 1000L;
+        assert toIntConverter(CharSequence.class).applyAsInt(java.nio.CharBuffer.wrap("-17.9")) == -17;
+        assert toDoubleConverter(CharSequence.class).applyAsDouble(java.nio.CharBuffer.wrap("0.25")) == 0.25d;
+    }
+
+    /**
+     * The conversions must match what Converter did before it had its own number parsing: Long.valueOf() /
+     * Integer.valueOf() / Double.valueOf() on the trimmed String, with BigDecimal for the rest.
+     */
+    private static void assertSameConversion(String string)
+    {
+        String trimmed = string.trim();
+        Long expectedLong;
+        try
+        {
+            expectedLong = trimmed.isEmpty() ? 0L : parseLongThenBigDecimal(trimmed);
+        }
+        catch (NumberFormatException e)
+        {
+            expectedLong = null;
+        }
+        assertSameResult(string, expectedLong, () -> convert2long(string));
+        assertSameResult(string, expectedLong, () -> convertToLong(string));
+
+        Integer expectedInt;
+        try
+        {
+            expectedInt = trimmed.isEmpty() ? 0 : parseIntThenBigDecimal(trimmed);
+        }
+        catch (NumberFormatException e)
+        {
+            expectedInt = null;
+        }
+        assertSameResult(string, expectedInt, () -> convert2int(string));
+        assertSameResult(string, expectedInt, () -> convertToInteger(string));
+
+        Double expectedDouble;
+        try
+        {
+            expectedDouble = trimmed.isEmpty() ? 0.0d : Double.parseDouble(trimmed);
+        }
+        catch (NumberFormatException e)
+        {
+            expectedDouble = null;
+        }
+        assertSameResult(string, expectedDouble, () -> convert2double(string));
+        assertSameResult(string, expectedDouble, () -> convertToDouble(string));
+    }
+
+    private static long parseLongThenBigDecimal(String trimmed)
+    {
+        try
+        {
+            return Long.parseLong(trimmed);
+        }
+        catch (NumberFormatException e)
+        {
+            return new BigDecimal(trimmed).longValue();
+        }
+    }
+
+    private static int parseIntThenBigDecimal(String trimmed)
+    {
+        try
+        {
+            return Integer.parseInt(trimmed);
+        }
+        catch (NumberFormatException e)
+        {
+            long value = new BigDecimal(trimmed).longValue();
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            {
+                throw new NumberFormatException();
+            }
+            return (int) value;
+        }
+    }
+
+    private static void assertSameResult(String string, Object expected, java.util.concurrent.Callable<Object> conversion)
+    {
+        Object actual;
+        try
+        {
+            actual = conversion.call();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert expected == null : "[" + string + "] expected " + expected + ", threw " + e.getMessage();
+            return;
+        }
+        catch (Exception e)
+        {
+            throw new AssertionError(e);
+        }
+        if (expected instanceof Double)
+        {   // compare bits, so -0.0 and 0.0 differ
+            assertEquals("[" + string + "]", Double.doubleToLongBits((Double) expected), Double.doubleToLongBits((Double) actual));
+        }
+        else
+        {
+            assertEquals("[" + string + "]", expected, actual);
+        }
+    }
+
+    @Test
+    public void testBatchConversion()
+    {
+        String[] strings = {"1", " 2 ", "3.75", null, "", "-4e2"};
+        assert Arrays.equals(toLongArray(strings), new long[]{1, 2, 3, 0, 0, -400});
+        assert Arrays.equals(toIntArray(strings), new int[]{1, 2, 3, 0, 0, -400});
+        assert Arrays.equals(toDoubleArray(strings), new double[]{1, 2, 3.75, 0, 0, -400});
+        assert Arrays.equals(convertAll(strings, Long.class), new Long[]{1L, 2L, 3L, null, 0L, -400L});
+        assert Arrays.equals(convertAll(strings, long.class), new Long[]{1L, 2L, 3L, 0L, 0L, -400L});
+
+        // Mixed types convert too (the conversion is resolved for the first non-null value)
+        Object[] mixed = {null, 7, "8", 9.5d, true, new BigDecimal("10.9"), new AtomicLong(11)};
+        assert Arrays.equals(toLongArray(mixed), new long[]{0, 7, 8, 9, 1, 10, 11});
+        assert Arrays.equals(toLongArray(Arrays.asList(mixed)), new long[]{0, 7, 8, 9, 1, 10, 11});
+        assert Arrays.equals(toDoubleArray(Arrays.asList(mixed)), new double[]{0, 7, 8, 9.5, 1, 10.9, 11});
+        assert Arrays.equals(toIntArray(Arrays.asList(mixed)), new int[]{0, 7, 8, 9, 1, 10, 11});
+        String[] asStrings = convertAll(mixed, String.class);
+        assert Arrays.equals(asStrings, new String[]{null, "7", "8", "9.5", "true", "10.9", "11"});
+        assert convertAll(new Object[0], BigDecimal.class).length == 0;
+        assert toLongArray(new Object[]{null, null}).length == 2;
+
+        // Parallel gives the same result
+        String[] column = new String[100000];
+        for (int i = 0; i < column.length; i++)
+        {
+            column[i] = (i % 3 == 0 ? "-" : "") + i + (i % 7 == 0 ? ".5" : "");
+        }
+        assert Arrays.equals(toLongArray(column, true), toLongArray(column));
+        assert Arrays.equals(toIntArray(column, true), toIntArray(column));
+        assert Arrays.equals(toDoubleArray(column, true), toDoubleArray(column));
+        assert Arrays.equals(convertAll(column, BigDecimal.class, true), convertAll(column, BigDecimal.class));
+
+        try
+        {
+            toLongArray(new Object[]{"1", "abc"});
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("abc");
+        }
+        try
+        {
+            convertAll(column, Long.class, true);
+            column[5000] = "x";
+            convertAll(column, Long.class, true);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("x");
+        }
+    }
+
+    @Test
+    public void testConverterInstance()
+    {
+        Converter converter = new Converter();
+        UUID uuid = UUID.randomUUID();
+
+        // Built-in conversions work as convert() does
+        assert converter.convertValue("45", Long.class) == 45L;
+        assert converter.convertValue(null, long.class) == 0L;
+        assert converter.convertValue(null, Long.class) == null;
+        assert converter.getConversion(String.class, int.class).apply("7") == 7;
+
+        // Conversion added by the ConversionProvider listed in META-INF/services (test resources)
+        assert uuid.equals(converter.convertValue(uuid.toString(), UUID.class));
+        assert converter.convertValue(null, UUID.class) == null;
+
+        // Registered conversions, matched through superclasses and interfaces
+        assert converter.addConversion(UUID.class, String.class, x -> "uuid:" + x) == null;
+        assert converter.addConversion(Enum.class, String.class, Enum::name) == null;
+        assert converter.addConversion(CharSequence.class, Integer.class, CharSequence::length) == null;
+        assert converter.addConversion(String.class, long.class, x -> -1L) == null;
+        assertEquals("uuid:" + uuid, converter.convertValue(uuid, String.class));
+        assertEquals("foo", converter.convertValue(fubar.foo, String.class));
+        assert converter.convertValue(new StringBuilder("abcd"), Integer.class) == 4;
+        assert converter.convertValue("ab", Integer.class) == 2;
+        assert converter.convertValue("12", long.class) == -1L;
+        assert converter.convertValue(null, long.class) == 0L;
+        assert converter.convertValue(12, long.class) == 12L;
+        assertEquals("12", converter.convertValue(12, String.class));
+
+        // Re-registering replaces the conversion
+        Function<Object, Object> previous = (Function) converter.addConversion(String.class, long.class, x -> -2L);
+        assert previous.apply("x").equals(-1L);
+        assert converter.convertValue("12", long.class) == -2L;
+
+        // Instances and the static methods do not see each other's conversions
+        try
+        {
+            new Converter().convertValue("ab", Integer.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("ab");
+        }
+        assert convert("12", long.class) == 12L;
+
+        try
+        {
+            converter.convertValue(uuid, Calendar.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains(uuid.toString());
+        }
+        try
+        {
+            converter.getConversion(Date.class, UUID.class);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("java.util.UUID");
+        }
+        try
+        {
+            converter.addConversion(String.class, UUID.class, null);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assert e.getMessage().contains("cannot be null");
+        }
+    }
+
+
+    @Test
+    public void testIsoDateFormatting()
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        DateTimeFormatter zonedFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+        ZoneId[] zones = {ZoneId.of("UTC"), ZoneId.of("America/New_York"), ZoneId.of("Asia/Kolkata"),
+                ZoneId.of("Australia/Lord_Howe"), ZoneOffset.ofHoursMinutesSeconds(-3, -25, -15), ZoneOffset.ofHours(14)};
+        long[] edges = {0, -1, 1, -12219292800000L, -12219292800001L, 253402300799999L, 253402300800000L, 951782400000L,
+                Long.MAX_VALUE / 2, Long.MIN_VALUE / 2};
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            long millis = i < edges.length ? edges[i] : random.nextLong() % (i % 2 == 0 ? 4000000000000L : 400000000000000L);
+            Date date = new Date(millis);
+            assertEquals(dateFormat.format(date), convert(date, String.class));
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(millis);
+            assertEquals(dateFormat.format(date), convert(calendar, String.class));
+
+            ZonedDateTime zoned = Instant.ofEpochMilli(millis).atZone(zones[i % zones.length]);
+            assertEquals(zoned.format(zonedFormat), convert(zoned, String.class));
+            LocalDateTime local = zoned.toLocalDateTime();
+            assertEquals(String.format("%04d-%02d-%02dT%02d:%02d:%02d", local.getYear(), local.getMonthValue(), local.getDayOfMonth(), local.getHour(), local.getMinute(), local.getSecond()), convert(local, String.class));
+            LocalDate localDate = local.toLocalDate();
+            assertEquals(String.format("%04d-%02d-%02d", localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth()), convert(localDate, String.class));
+        }
+        assertEquals("0005-03-01", convert(LocalDate.of(5, 3, 1), String.class));
+        assertEquals("2000-02-29T23:59:58", convert(LocalDateTime.of(2000, 2, 29, 23, 59, 58), String.class));
+        assertEquals("1999-12-31T19:00:00-0500", convert(ZonedDateTime.of(1999, 12, 31, 19, 0, 0, 0, ZoneId.of("America/New_York")), String.class));
+    }
+
+    /**
+     * Listed in src/test/resources/META-INF/services, so each new Converter gets its conversion.
+     */
+    public static class UuidConversionProvider implements Converter.ConversionProvider
+    {
+        public void addConversions(Converter converter)
+        {
+            converter.addConversion(String.class, UUID.class, UUID::fromString);
+        }
+    }
 }
@@ -554,6 +554,359 @@ public class TestDeepEquals
         assert one == two;
     }
 
+    @Test
+    public void testParallelCompare()
+    {
+        Map<String, Object> parallel = new HashMap<>();
+        parallel.put(DeepEquals.PARALLEL_COMPARE, true);
+
+        // 5000 elements per container is past Comparison.SPLIT_SIZE (2048), so every container is split and forked,
+        // and two changes of each kind cover every container.  Larger graphs cover nothing more and make this the
+        // slowest test in the suite (20000 elements and 20 changes take about 14 seconds).
+        final int size = 5000;
+        Object[] graph1 = parallelGraph(size);
+        Object[] graph2 = parallelGraph(size);
+        assertTrue(deepEquals(graph1, graph2, parallel));
+        assertTrue(deepEquals(graph1, graph2));
+
+        // A difference anywhere is found, and agrees with the sequential compare
+        Random random = new Random(7);
+        for (int i = 0; i < 8; i++)
+        {
+            Object[] other = parallelGraph(size);
+            int pos = random.nextInt(size);
+            switch (i % 4)
+            {
+                case 0:
+                    ((Class2[]) other[0])[pos].c.i = -1;
+                    break;
+                case 1:
+                    ((List<Class1>) other[1]).get(pos).d = -1;
+                    break;
+                case 2:
+                    ((Map<String, Class2>) other[2]).get("key" + pos).s = "changed";
+                    break;
+                default:
+                    ((Set<Class1>) other[3]).iterator().next().i = -1;
+                    break;
+            }
+            assertFalse(deepEquals(graph1, other, parallel));
+            assertFalse(deepEquals(graph1, other));
+        }
+
+        // Cycles
+        graph1[4] = graph1;
+        graph2[4] = graph2;
+        ((List) graph1[1]).add(graph1);
+        ((List) graph2[1]).add(graph2);
+        assertTrue(deepEquals(graph1, graph2, parallel));
+        ((List) graph2[1]).add(graph2);
+        assertFalse(deepEquals(graph1, graph2, parallel));
+    }
+
+    @Test
+    public void testDifferences()
+    {
+        Object[] graph1 = parallelGraph(100);
+        assertTrue(DeepEquals.getDifferences(graph1, parallelGraph(100), 10).isEmpty());
+        assertTrue(deepEquals(graph1, parallelGraph(100), new HashMap<>(), difference -> { fail(); return true; }));
+
+        Object[] graph2 = parallelGraph(100);
+        ((Class2[]) graph2[0])[7].c.i = -1;
+        ((Class2[]) graph2[0])[9].s = "changed";
+        ((List<Class1>) graph2[1]).get(3).d = 0.5;
+        ((Map<String, Class2>) graph2[2]).get("key5").ss = 1;
+        List<DeepEquals.Difference> differences = DeepEquals.getDifferences(graph1, graph2, 10);
+        Map<String, DeepEquals.Difference> byPath = new HashMap<>();
+        for (DeepEquals.Difference difference : differences)
+        {
+            byPath.put(difference.getPath(), difference);
+        }
+        assertEquals(new HashSet<>(asList("[0][7].c.i", "[0][9].s", "[1][3].d", "[2][key5].ss")), byPath.keySet());
+        assertEquals(7, byPath.get("[0][7].c.i").getLeft());
+        assertEquals(-1, byPath.get("[0][7].c.i").getRight());
+        assertEquals("[0][9].s: s9 != changed", byPath.get("[0][9].s").toString());
+        assertEquals("[2][key5].ss: -5 != 1", byPath.get("[2][key5].ss").toString());
+
+        // Stop early
+        assertEquals(2, DeepEquals.getDifferences(graph1, graph2, 2).size());
+        final int[] count = new int[1];
+        assertFalse(deepEquals(graph1, graph2, new HashMap<>(), difference -> ++count[0] < 1));
+        assertEquals(1, count[0]);
+
+        // Sizes, types, Map keys, Set members
+        differences = DeepEquals.getDifferences(asList(1, 2), asList(1, 2, 3), 10);
+        assertEquals(1, differences.size());
+        assertEquals("", differences.get(0).getPath());
+        assertEquals(asList(1, 2), differences.get(0).getLeft());
+
+        Map<String, Object> map1 = new TreeMap<>();
+        Map<String, Object> map2 = new TreeMap<>();
+        map1.put("a", new Class1(true, 1, 1));
+        map2.put("b", new Class1(true, 1, 1));
+        map1.put("c", new EmptyClass());
+        map2.put("c", "EmptyClass");
+        differences = DeepEquals.getDifferences(map1, map2, 10);
+        assertEquals(2, differences.size());
+        assertEquals("[c]: " + EmptyClass.class.getName() + " != EmptyClass", differences.get(0).toString());
+        assertEquals("{a}: a != b", differences.get(1).toString());
+
+        Set<Class1> set1 = new HashSet<>(asList(new Class1(true, 1, 1)));
+        Set<Class1> set2 = new HashSet<>(asList(new Class1(true, 1, 2)));
+        differences = DeepEquals.getDifferences(new Object[]{set1}, new Object[]{set2}, 10);
+        assertEquals(1, differences.size());
+        assertEquals("[0]", differences.get(0).getPath());
+
+        // Unordered Maps (and Sets) with a key missing on either side are one difference, whichever entries
+        // were matched up before the missing key was found
+        for (String key : asList("a", "q", "z", "key", "zzz"))
+        {
+            Map<String, Object> hash1 = new HashMap<>();
+            Map<String, Object> hash2 = new HashMap<>();
+            hash1.put("k", new Class1(true, 1, 1));
+            hash2.put("k", new Class1(true, 2, 1));
+            hash1.put(key, 1);
+            hash2.put(key + "2", 1);
+            differences = DeepEquals.getDifferences(hash1, hash2, 10);
+            assertEquals(1, differences.size());
+            assertEquals("", differences.get(0).getPath());
+
+            Set<Object> items1 = new HashSet<>(asList(new Class1(true, 1, 1), key));
+            Set<Object> items2 = new HashSet<>(asList(new Class1(true, 1, 1), key + "2"));
+            assertEquals(1, DeepEquals.getDifferences(items1, items2, 10).size());
+        }
+    }
+
+    @Test
+    public void testMemoizedHashCode()
+    {
+        Map<String, Object> immutable = new HashMap<>();
+        immutable.put(DeepEquals.IMMUTABLE_TYPES, new HashSet<>(asList(Class2.class)));
+        Object[] graph1 = parallelGraph(100);
+        Object[] graph2 = parallelGraph(100);
+        assertEquals(deepHashCode(graph1), deepHashCode(graph1, new HashMap<>()));
+        assertEquals(deepHashCode(graph1, immutable), deepHashCode(graph2, immutable));
+        assertEquals(deepHashCode(graph1, immutable), deepHashCode(graph1, immutable));
+
+        // A memoized object hashes as it did when it was first hashed, until the cache is cleared
+        Class2 item = ((Class2[]) graph1[0])[5];
+        int hash = deepHashCode(item, immutable);
+        assertEquals(deepHashCode(item), hash);
+        item.c.i = -1;
+        assertEquals(hash, deepHashCode(item, immutable));
+        assertEquals(deepHashCode(graph2, immutable), deepHashCode(graph1, immutable));     // still the memoized hash
+        DeepEquals.clearHashCodeCache();
+        assertNotEquals(hash, deepHashCode(item, immutable));
+        ((Class2[]) graph2[0])[5].c.i = -1;
+        assertEquals(deepHashCode(graph1, immutable), deepHashCode(graph2, immutable));
+
+        // Immutable objects in a cycle hash the same from any of them, as they do without memoization
+        Map<String, Object> arrays = new HashMap<>();
+        arrays.put(DeepEquals.IMMUTABLE_TYPES, new HashSet<>(asList(Object[].class)));
+        Object[] a = new Object[]{1, null, "a"};
+        Object[] b = new Object[]{2, a};
+        a[1] = b;
+        assertEquals(deepHashCode(a), deepHashCode(a, arrays));
+        assertEquals(deepHashCode(a, arrays), deepHashCode(b, arrays));
+        assertEquals(deepHashCode(b), deepHashCode(new Object[]{b}, arrays));
+
+        // The memoized hashCode of an object depends on which objects within it are immutable (here, the Float and
+        // the double both round to 1L, counted once unless the Class1 is hashed on its own), so one instance hashed
+        // with different IMMUTABLE_TYPES is memoized for each
+        Map<String, Object> both = new HashMap<>();
+        both.put(DeepEquals.IMMUTABLE_TYPES, new HashSet<>(asList(Class2.class, Class1.class)));
+        Map<String, Object> outer = new HashMap<>();
+        outer.put(DeepEquals.IMMUTABLE_TYPES, new HashSet<>(asList(Class2.class)));
+        Class2 x1 = new Class2(1, "a", (short) 2, new Class1(true, 1, 3));
+        Class2 x2 = new Class2(1, "a", (short) 2, new Class1(true, 1, 3));
+        int withBoth = deepHashCode(x1, both);
+        assertEquals(deepHashCode(x2), deepHashCode(x1, outer));
+        assertEquals(deepHashCode(x2, outer), deepHashCode(x1, outer));
+        assertNotEquals(withBoth, deepHashCode(x1, outer));
+        assertEquals(withBoth, deepHashCode(x2, both));
+        assertEquals(withBoth, deepHashCode(x1, both));
+
+        // Immutable objects nested 100,000 deep are hashed without running out of Java stack
+        Map<String, Object> nodes = new HashMap<>();
+        nodes.put(DeepEquals.IMMUTABLE_TYPES, new HashSet<>(asList(Node.class)));
+        Node head = null;
+        Node middle = null;
+        for (int i = 0; i < 100000; i++)
+        {
+            head = new Node(i, head);
+            if (i == 50000)
+            {
+                middle = head;
+            }
+        }
+        assertEquals(deepHashCode(head), deepHashCode(head, nodes));
+        assertEquals(deepHashCode(middle), deepHashCode(middle, nodes));
+        assertEquals(deepHashCode(new Node(-1, head)), deepHashCode(new Node(-1, head), nodes));
+    }
+
+    @Test
+    public void testUnorderedCollidingItems()
+    {
+        // Every Class1(true, k, n - k) has the same deepHashCode()
+        assertEquals(deepHashCode(new Class1(true, 1, 1999)), deepHashCode(new Class1(true, 1999, 1)));
+        Set<Class1> set1 = collidingSet(2000);
+        Set<Class1> set2 = collidingSet(2000);
+        assertTrue(deepEquals(set1, set2));
+        set2.iterator().next().i++;
+        assertFalse(deepEquals(set1, set2));
+
+        Map<Class1, Integer> map1 = new HashMap<>();
+        Map<Class1, Integer> map2 = new HashMap<>();
+        for (Class1 item : collidingSet(2000))
+        {
+            map1.put(item, item.i);
+        }
+        for (Class1 item : collidingSet(2000))
+        {
+            map2.put(item, item.i);
+        }
+        assertTrue(deepEquals(map1, map2));
+        map2.put(new Class1(true, 0, 2000), -1);
+        map2.remove(new ArrayList<>(map2.keySet()).get(7));
+        assertFalse(deepEquals(map1, map2));
+
+        // Items that are deeply equal, as many times each
+        Class1 a = new Class1(true, 1, 1);
+        Class1 b = new Class1(false, 2, 2);
+        Set<Object> multi1 = new HashSet<>(asList(a, new Class1(true, 1, 1), b));
+        Set<Object> multi2 = new HashSet<>(asList(new Class1(true, 1, 1), new Class1(true, 1, 1), new Class1(false, 2, 2)));
+        assertTrue(deepEquals(multi1, multi2));
+        Set<Object> multi3 = new HashSet<>(asList(new Class1(true, 1, 1), new Class1(false, 2, 2), new Class1(false, 2, 2)));
+        assertFalse(deepEquals(multi1, multi3));
+
+        // A Map with deeply equal keys: entries are matched by key and value
+        Map<Object, String> keys1 = new HashMap<>();
+        Map<Object, String> keys2 = new HashMap<>();
+        keys1.put(new Class1(true, 1, 1), "x");
+        keys1.put(new Class1(true, 1, 1), "y");
+        keys2.put(new Class1(true, 1, 1), "y");
+        keys2.put(new Class1(true, 1, 1), "x");
+        assertTrue(deepEquals(keys1, keys2));
+        keys2.put(new Class1(true, 1, 1), null);
+        keys1.put(new Class1(true, 1, 1), "z");
+        assertFalse(deepEquals(keys1, keys2));
+    }
+
+    @Test
+    public void testUnorderedCollidingLeaves()
+    {
+        // Strings built from "Aa" and "BB" all have the same hashCode()
+        Set<String> strings1 = collidingStrings(12);
+        Set<String> strings2 = collidingStrings(12);
+        assertEquals(4096, strings1.size());
+        assertEquals(1, strings1.stream().mapToInt(String::hashCode).distinct().count());
+        assertTrue(deepEquals(strings1, strings2));
+        Map<String, Integer> map1 = new HashMap<>();
+        Map<String, Integer> map2 = new HashMap<>();
+        for (String s : strings1)
+        {
+            map1.put(s, s.indexOf('B'));
+            map2.put(s, s.indexOf('B'));
+        }
+        assertTrue(deepEquals(map1, map2));
+        map2.put(strings1.iterator().next(), 100);
+        assertFalse(deepEquals(map1, map2));
+        strings2.remove(strings2.iterator().next());
+        strings2.add("AaAaAaAaAaAaAaAaAaAaAaBB");
+        assertFalse(deepEquals(strings1, strings2));
+
+        // Items with the same hashCode() are compared with the caller's options
+        Set<PartialEquals> partial1 = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<PartialEquals> partial2 = Collections.newSetFromMap(new IdentityHashMap<>());
+        partial1.addAll(asList(new PartialEquals(1, 1), new PartialEquals(1, 2)));
+        partial2.addAll(asList(new PartialEquals(1, 1), new PartialEquals(1, 3)));
+        assertTrue(deepEquals(partial1, partial2));
+        Map<String, Object> options = new HashMap<>();
+        options.put(DeepEquals.IGNORE_CUSTOM_EQUALS, new HashSet<>());
+        assertFalse(deepEquals(partial1, partial2, options));
+    }
+
+    /**
+     * @return the 2^n Strings of n "Aa" or "BB" pairs.
+     */
+    private static Set<String> collidingStrings(int n)
+    {
+        Set<String> strings = new HashSet<>();
+        for (int bits = 0; bits < 1 << n; bits++)
+        {
+            StringBuilder s = new StringBuilder();
+            for (int i = 0; i < n; i++)
+            {
+                s.append((bits & (1 << i)) == 0 ? "Aa" : "BB");
+            }
+            strings.add(s.toString());
+        }
+        return strings;
+    }
+
+    private static Set<Class1> collidingSet(int size)
+    {
+        Set<Class1> set = new HashSet<>();
+        for (int k = 0; k < size; k++)
+        {
+            set.add(new Class1(true, k, size - k));
+        }
+        return set;
+    }
+
+    /**
+     * @return [Class2[], List of Class1, HashMap of String to Class2, HashSet of Class1, null], size items each.
+     */
+    private static Object[] parallelGraph(int size)
+    {
+        Class2[] array = new Class2[size];
+        List<Class1> list = new ArrayList<>();
+        Map<String, Class2> map = new HashMap<>();
+        Set<Class1> set = new HashSet<>();
+        for (int i = 0; i < size; i++)
+        {
+            array[i] = new Class2(i, "s" + i, (short) i, new Class1(i % 2 == 0, i / 3.0, i));
+            list.add(new Class1(i % 3 == 0, i, -i));
+            map.put("key" + i, new Class2(-i, "m" + i, (short) -i, null));
+            set.add(new Class1(false, i, i));
+        }
+        return new Object[]{array, list, map, set, null};
+    }
+
+    static final class Node
+    {
+        final int v;
+        final Node next;
+
+        Node(int v, Node next)
+        {
+            this.v = v;
+            this.next = next;
+        }
+    }
+
+    static class PartialEquals
+    {
+        int a;
+        int b;
+
+        PartialEquals(int a, int b)
+        {
+            this.a = a;
+            this.b = b;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof PartialEquals && ((PartialEquals) o).a == a;
+        }
+
+        public int hashCode()
+        {
+            return a;
+        }
+    }
+
     static class DumbHash
     {
         String s;
@@ -238,6 +238,44 @@ public class TestReflectionUtils
         assertFalse(test2.containsKey("com.cedarsoftware.util.TestReflectionUtils$Child.foo"));
     }
 
+    @Test
+    public void testFieldAccessors() throws Exception
+    {
+        // Private, primitive, and inherited fields (not a JDK class, whose fields cannot be accessed on JDK 9+)
+        AccessorSample sample = new AccessorSample();
+        ReflectionUtils.FieldAccessor[] accessors = ReflectionUtils.getFieldAccessors(AccessorSample.class);
+        assertSame(accessors, ReflectionUtils.getFieldAccessors(AccessorSample.class));
+        Collection<Field> fields = ReflectionUtils.getDeepDeclaredFields(AccessorSample.class);
+        assertEquals(7, fields.size());
+        assertEquals(fields.size(), accessors.length);
+        Set<String> names = new HashSet<>();
+        for (ReflectionUtils.FieldAccessor accessor : accessors)
+        {
+            assertTrue(fields.contains(accessor.getField()));
+            assertEquals(accessor.getField().get(sample), accessor.get(sample));   // including boxed primitives
+            names.add(accessor.getField().getName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("id", "ratio", "flag", "letter", "items", "count", "name")), names);
+
+        // Fields of the same name in the parent and child class
+        Child child = new Child();
+        accessors = ReflectionUtils.getFieldAccessors(Child.class);
+        assertEquals(2, accessors.length);
+        for (ReflectionUtils.FieldAccessor accessor : accessors)
+        {
+            accessor.getField().set(child, accessor.getField().getDeclaringClass().getSimpleName());
+        }
+        assertEquals("Child", accessors[0].get(child));
+        assertEquals("Parent", accessors[1].get(child));
+
+        try
+        {
+            accessors[0].get("not a Child");
+            fail();
+        }
+        catch (ClassCastException ignored) { }
+    }
+
     @Test
     public void testGetClassName() throws Exception
     {
@@ -628,6 +666,22 @@ public class TestReflectionUtils
         private String foo;
     }
 
+    private static class AccessorParent
+    {
+        private int count = 3;
+        protected String name = "parent";
+    }
+
+    private static class AccessorSample extends AccessorParent
+    {
+        private static int ignored = 7;
+        private long id = 42L;
+        private double ratio = 1.5;
+        private boolean flag = true;
+        private char letter = 'x';
+        private List<String> items = Arrays.asList("a", "b");
+    }
+
     private class Child extends Parent {
         private String foo;
     }
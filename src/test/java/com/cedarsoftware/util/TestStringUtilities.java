@@ -351,4 +351,40 @@ public class TestStringUtilities
         assert hashCodeIgnoreCase(null) == 0;
         assert hashCodeIgnoreCase("") == 0;
     }
+
+    @Test
+    public void testIgnoreCaseFastPaths()
+    {
+        // ASCII, Latin-1, and chars whose case mappings cross into (or out of) ASCII: Kelvin sign, dotless i,
+        // dotted capital I, long s, sharp s
+        char[] alphabet = "aAzZ@[`{09-_ \u00e9\u00c9\u00df\u212a\u0131\u0130\u017fkKiIsS\u03a9\u03c9".toCharArray();
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++)
+        {
+            int len = random.nextInt(14);
+            char[] chars = new char[len];
+            char[] other = new char[len];
+            for (int j = 0; j < len; j++)
+            {
+                chars[j] = alphabet[random.nextInt(alphabet.length)];
+                other[j] = random.nextInt(4) == 0 ? alphabet[random.nextInt(alphabet.length)] : chars[j];
+            }
+            String s = new String(chars);
+            String t = random.nextBoolean() ? new String(other) : s.toUpperCase();
+
+            int expected = 0;
+            for (char c : chars)
+            {
+                expected = 31 * expected + Character.toLowerCase(c);
+            }
+            assert hashCodeIgnoreCase(s) == expected : s;
+            assert StringUtilities.equalsIgnoreCase(s, t) == s.equalsIgnoreCase(t) : s + " vs " + t;
+        }
+        assert StringUtilities.equalsIgnoreCase("Content-Type", "CONTENT-TYPE");
+        assert !StringUtilities.equalsIgnoreCase("Content-Type", "Content-Typf");
+        assert !StringUtilities.equalsIgnoreCase("Content-Type", "Content-Typ");
+        assert StringUtilities.equalsIgnoreCase("\u212a", "k");
+        assert StringUtilities.equalsIgnoreCase(null, null);
+        assert !StringUtilities.equalsIgnoreCase("a", null);
+    }
 }